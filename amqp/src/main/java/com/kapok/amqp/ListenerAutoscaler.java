@@ -0,0 +1,179 @@
+package com.kapok.amqp;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes the consumers of every {@link SimpleMessageListenerContainer} between
+ * {@code amqp.listener.consumers.min} and {@code max}. Every {@code interval} it reads the
+ * ready messages on the container's queues and the listener time per message from
+ * {@link ListenerLatencyAdvice}, and asks for enough consumers to drain the backlog within
+ * {@code target-drain-time}. It scales up in one step and down by one consumer per
+ * interval, so a short lull does not tear down consumers a burst is about to need.
+ * <p>
+ * Every pod running the listener sees the same backlog, so each asks only for its share
+ * of the consumers needed: the total scaled by the fraction of the queue's consumers, as
+ * the broker counts them, that are this container's. With pods scaling alike, together
+ * they reach the total instead of each sizing for the whole backlog.
+ * <p>
+ * Consumers, target consumers and queue depth are published per listener as
+ * {@code amqp.listener.consumers}, {@code amqp.listener.consumers.target} and
+ * {@code amqp.listener.queue.depth}.
+ */
+@Slf4j
+@Component
+public class ListenerAutoscaler {
+
+    private final RabbitListenerEndpointRegistry listenerEndpointRegistry;
+    private final AmqpAdmin amqpAdmin;
+    private final ListenerLatencyAdvice listenerLatencyAdvice;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int minConsumers;
+    private final int maxConsumers;
+    private final long targetDrainNanos;
+    private final Duration interval;
+    private final Map<String, Scaling> scalings = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scaler;
+
+    public ListenerAutoscaler(
+            RabbitListenerEndpointRegistry listenerEndpointRegistry,
+            AmqpAdmin amqpAdmin,
+            ListenerLatencyAdvice listenerLatencyAdvice,
+            MeterRegistry meterRegistry,
+            @Value("${amqp.listener.autoscale.enabled:false}") boolean enabled,
+            @Value("${amqp.listener.consumers.min:1}") int minConsumers,
+            @Value("${amqp.listener.consumers.max:1}") int maxConsumers,
+            @Value("${amqp.listener.autoscale.target-drain-time:1m}") Duration targetDrainTime,
+            @Value("${amqp.listener.autoscale.interval:5s}") Duration interval) {
+        this.listenerEndpointRegistry = listenerEndpointRegistry;
+        this.amqpAdmin = amqpAdmin;
+        this.listenerLatencyAdvice = listenerLatencyAdvice;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.minConsumers = minConsumers;
+        this.maxConsumers = Math.max(minConsumers, maxConsumers);
+        this.targetDrainNanos = targetDrainTime.toNanos();
+        this.interval = interval;
+        this.scaler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "amqp-listener-autoscaler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        scaler.scheduleWithFixedDelay(this::scaleQuietly,
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        scaler.shutdownNow();
+    }
+
+    private void scaleQuietly() {
+        try {
+            scale();
+        } catch (RuntimeException e) {
+            log.warn("listener autoscaling failed, keeping the current consumers", e);
+        }
+    }
+
+    void scale() {
+        for (MessageListenerContainer listenerContainer : listenerEndpointRegistry.getListenerContainers()) {
+            if (listenerContainer instanceof SimpleMessageListenerContainer container && container.isRunning()) {
+                scalings.computeIfAbsent(container.getListenerId(), id -> new Scaling(id, container)).scale();
+            }
+        }
+    }
+
+    private final class Scaling {
+
+        private final SimpleMessageListenerContainer container;
+        private final String[] queues;
+        private volatile int consumers = minConsumers;
+        private volatile long depth;
+        private long lastNanos;
+        private long lastMessages;
+
+        Scaling(String listenerId, SimpleMessageListenerContainer container) {
+            this.container = container;
+            this.queues = container.getQueueNames();
+            Gauge.builder("amqp.listener.consumers", container, SimpleMessageListenerContainer::getActiveConsumerCount)
+                    .tag("listener", listenerId)
+                    .register(meterRegistry);
+            Gauge.builder("amqp.listener.consumers.target", this, s -> s.consumers)
+                    .tag("listener", listenerId)
+                    .register(meterRegistry);
+            Gauge.builder("amqp.listener.queue.depth", this, s -> s.depth)
+                    .tag("listener", listenerId)
+                    .register(meterRegistry);
+        }
+
+        void scale() {
+            long depth = 0;
+            long nanos = 0;
+            long messages = 0;
+            int queueConsumers = 0;
+            for (String queue : queues) {
+                QueueInformation information = amqpAdmin.getQueueInfo(queue);
+                if (information != null) {
+                    depth += information.getMessageCount();
+                    queueConsumers = Math.max(queueConsumers, information.getConsumerCount());
+                }
+                ListenerLatencyAdvice.QueueStats stats = listenerLatencyAdvice.stats(queue);
+                nanos += stats.nanos.sum();
+                messages += stats.messages.sum();
+            }
+            long intervalNanos = nanos - lastNanos;
+            long intervalMessages = messages - lastMessages;
+            lastNanos = nanos;
+            lastMessages = messages;
+            this.depth = depth;
+
+            int target;
+            if (depth == 0) {
+                target = consumers - 1;
+            } else if (intervalMessages == 0) {
+                // a backlog nobody consumed in the last interval, nothing to size from yet
+                target = consumers + 1;
+            } else {
+                double nanosPerMessage = (double) intervalNanos / intervalMessages;
+                // each consumer reads all the container's queues; the queue with most consumers counts every pod's
+                int ours = Math.max(1, container.getActiveConsumerCount());
+                double share = (double) ours / Math.max(ours, queueConsumers);
+                int needed = (int) Math.ceil(depth * nanosPerMessage / targetDrainNanos * share);
+                target = needed > consumers ? needed : Math.max(needed, consumers - 1);
+            }
+            target = Math.max(minConsumers, Math.min(maxConsumers, target));
+            if (target != consumers) {
+                log.info("scaling listener {} from {} to {} consumers, {} messages ready",
+                        container.getListenerId(), consumers, target, depth);
+                container.setConcurrentConsumers(target);
+                consumers = target;
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.kapok.amqp;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.amqp.core.Message;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listener container advice that times every listener call, single message or batch,
+ * per consumer queue. {@link ListenerAutoscaler} sizes consumers from these numbers; they
+ * are also published as the {@code amqp.listener.processing} timer, counted per message.
+ */
+@Component
+public class ListenerLatencyAdvice implements MethodInterceptor {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, QueueStats> queues = new ConcurrentHashMap<>();
+
+    public ListenerLatencyAdvice(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object data = invocation.getArguments()[1];
+        Message first;
+        int messages;
+        if (data instanceof List<?> batch && !batch.isEmpty() && batch.get(0) instanceof Message message) {
+            first = message;
+            messages = batch.size();
+        } else if (data instanceof Message message) {
+            first = message;
+            messages = 1;
+        } else {
+            return invocation.proceed();
+        }
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            String queue = first.getMessageProperties().getConsumerQueue();
+            if (queue != null) {
+                QueueStats stats = stats(queue);
+                stats.nanos.add(System.nanoTime() - start);
+                stats.messages.add(messages);
+            }
+        }
+    }
+
+    QueueStats stats(String queue) {
+        return queues.computeIfAbsent(queue, name -> {
+            QueueStats stats = new QueueStats();
+            FunctionTimer.builder("amqp.listener.processing", stats,
+                            s -> s.messages.sum(),
+                            s -> s.nanos.sum(),
+                            TimeUnit.NANOSECONDS)
+                    .tag("queue", name)
+                    .description("listener time, counted per message")
+                    .register(meterRegistry);
+            return stats;
+        });
+    }
+
+    static final class QueueStats {
+        final LongAdder nanos = new LongAdder();
+        final LongAdder messages = new LongAdder();
+    }
+}
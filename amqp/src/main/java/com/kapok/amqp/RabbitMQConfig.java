@@ -1,41 +1,121 @@
 package com.kapok.amqp;
 
-import lombok.AllArgsConstructor;
-import org.springframework.amqp.core.AmqpTemplate;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.MessageBatchRecoverer;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
-@AllArgsConstructor
 public class RabbitMQConfig {
 
     private final ConnectionFactory connectionFactory;
+    private final String outboundContentType;
+
+    public RabbitMQConfig(
+            ConnectionFactory connectionFactory,
+            @Value("${amqp.converter.outbound-content-type:" + MessageProperties.CONTENT_TYPE_JSON + "}")
+            String outboundContentType) {
+        this.connectionFactory = connectionFactory;
+        this.outboundContentType = outboundContentType;
+    }
 
     @Bean
-    public AmqpTemplate amqpTemplate(){
+    public RabbitTemplate amqpTemplate(){
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
-        rabbitTemplate.setMessageConverter(jacksonConverter());
+        rabbitTemplate.setMessageConverter(messageConverter());
+        // unroutable messages come back instead of being dropped, see RabbitMQMessageProducer
+        rabbitTemplate.setMandatory(connectionFactory.isPublisherReturns());
         return  rabbitTemplate;
     }
 
     @Bean
-    public SimpleRabbitListenerContainerFactory simpleRabbitListenerContainerFactory(){
+    public SimpleRabbitListenerContainerFactory simpleRabbitListenerContainerFactory(
+            ListenerLatencyAdvice listenerLatencyAdvice,
+            @Value("${amqp.listener.consumers.min:1}") int minConsumers){
         SimpleRabbitListenerContainerFactory factory =
                 new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
 
-        factory.setMessageConverter(jacksonConverter());
+        factory.setMessageConverter(messageConverter());
+        // ListenerAutoscaler adds consumers from here
+        factory.setConcurrentConsumers(minConsumers);
+        factory.setAdviceChain(listenerLatencyAdvice);
         return factory;
 
     }
 
+    /**
+     * Delivers up to {@code batchSize} messages per listener call, or fewer once no message
+     * has arrived for {@code receiveTimeoutMs}. The batch is acked as a whole when the
+     * listener returns. A failing batch is retried in the consumer up to {@code
+     * retry.max-attempts} times with exponential back-off, then rejected as a whole without
+     * requeueing, so the queue's dead letter exchange receives it instead of the broker
+     * redelivering it forever. Prefetch defaults to two batches, so the next batch is
+     * already on the consumer while the current one is processed.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchRabbitListenerContainerFactory(
+            ListenerLatencyAdvice listenerLatencyAdvice,
+            MeterRegistry meterRegistry,
+            @Value("${amqp.listener.consumers.min:1}") int minConsumers,
+            @Value("${amqp.listener.batch.size:500}") int batchSize,
+            @Value("${amqp.listener.batch.prefetch:0}") int prefetch,
+            @Value("${amqp.listener.batch.receive-timeout-ms:100}") long receiveTimeoutMs,
+            @Value("${amqp.listener.batch.retry.max-attempts:3}") int retryMaxAttempts,
+            @Value("${amqp.listener.batch.retry.initial-interval-ms:1000}") long retryInitialIntervalMs,
+            @Value("${amqp.listener.batch.retry.max-interval-ms:10000}") long retryMaxIntervalMs){
+        SimpleRabbitListenerContainerFactory factory =
+                new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter());
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        // a prefetch below the batch size would stall every batch until the receive timeout
+        int prefetchCount = Math.max(batchSize, prefetch > 0 ? prefetch : 2 * batchSize);
+        factory.setPrefetchCount(prefetchCount);
+        factory.setConcurrentConsumers(minConsumers);
+        factory.setDefaultRequeueRejected(false);
+        MessageBatchRecoverer reject = (messages, cause) -> {
+            throw new AmqpRejectAndDontRequeueException(String.format(
+                    "batch of %d messages failed %d times", messages.size(), retryMaxAttempts), cause);
+        };
+        factory.setAdviceChain(listenerLatencyAdvice, RetryInterceptorBuilder.stateless()
+                .maxAttempts(retryMaxAttempts)
+                .backOffOptions(retryInitialIntervalMs, 2.0, retryMaxIntervalMs)
+                .recoverer(reject)
+                .build());
+        Gauge.builder("amqp.listener.prefetch", () -> prefetchCount)
+                .tag("factory", "batchRabbitListenerContainerFactory")
+                .register(meterRegistry);
+        return factory;
+    }
+
+    /**
+     * Decodes by the content type of each message, JSON or {@link RecordMessageConverter}
+     * binary, and encodes with {@code amqp.converter.outbound-content-type}. Rolling out
+     * the binary encoding means deploying every consumer first, then switching producers.
+     */
     @Bean
-    public MessageConverter jacksonConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter messageConverter() {
+        MessageConverter json = new Jackson2JsonMessageConverter();
+        MessageConverter binary = new RecordMessageConverter("com.kapok.clients");
+        ContentTypeDelegatingMessageConverter converter = new ContentTypeDelegatingMessageConverter(
+                RecordMessageConverter.CONTENT_TYPE.equals(outboundContentType) ? binary : json);
+        converter.addDelegate(MessageProperties.CONTENT_TYPE_JSON, json);
+        converter.addDelegate(RecordMessageConverter.CONTENT_TYPE, binary);
+        return converter;
     }
 }
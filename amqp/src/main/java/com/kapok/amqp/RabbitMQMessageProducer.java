@@ -1,19 +1,144 @@
 package com.kapok.amqp;
 
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes without waiting for the broker. When the connection factory has correlated
+ * publisher confirms enabled ({@code spring.rabbitmq.publisher-confirm-type: correlated})
+ * every message carries its own correlation, confirms are pipelined, and the returned
+ * future completes on the broker ack, or exceptionally on a nack or a closed channel.
+ * With {@code spring.rabbitmq.publisher-returns: true} as well, messages are published
+ * mandatory and a message the broker could not route to any queue, which it still acks,
+ * fails its future too, so callers such as the outbox relay never treat it as delivered. At
+ * most {@code amqp.publisher.max-in-flight} messages await a confirm; beyond that,
+ * publishers wait up to {@code amqp.publisher.in-flight-timeout-ms} for room. Without
+ * confirms the future completes once the message is handed to the channel.
+ * <p>
+ * Futures complete on the connection's thread, so callbacks must not block.
+ */
 @Component
 @Slf4j
-@AllArgsConstructor
 public class RabbitMQMessageProducer {
 
-    private final AmqpTemplate amqpTemplate;
-    public void publish(Object payload, String exchange, String routingKey) {
-        log.info("Publishing to {} using routingkey {}. Peuload: {}",exchange,routingKey,payload);
-        amqpTemplate.convertAndSend(exchange, routingKey, payload);
-        log.info("Published to {} using routingkey {}. Peuload: {}",exchange,routingKey,payload);
+    private final RabbitTemplate rabbitTemplate;
+    private final boolean confirms;
+    private final Semaphore inFlight;
+    private final long inFlightTimeoutMs;
+
+    public RabbitMQMessageProducer(
+            RabbitTemplate rabbitTemplate,
+            @Value("${amqp.publisher.max-in-flight:10000}") int maxInFlight,
+            @Value("${amqp.publisher.in-flight-timeout-ms:5000}") long inFlightTimeoutMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.confirms = rabbitTemplate.getConnectionFactory().isPublisherConfirms();
+        if (rabbitTemplate.getConnectionFactory().isPublisherReturns()) {
+            // the confirm callback fails the future, this only keeps the template from complaining
+            rabbitTemplate.setReturnsCallback(returned -> log.debug("Returned {}", returned));
+        }
+        this.inFlight = new Semaphore(maxInFlight);
+        this.inFlightTimeoutMs = inFlightTimeoutMs;
+    }
+
+    public CompletableFuture<Void> publish(Object payload, String exchange, String routingKey) {
+        log.debug("Publishing to {} using routingkey {}. Payload: {}", exchange, routingKey, payload);
+        return logFailures(send(rabbitTemplate, payload, exchange, routingKey), 1, exchange, routingKey);
+    }
+
+    /**
+     * Publishes the whole batch over one channel; the future completes once every message
+     * has been confirmed.
+     */
+    public CompletableFuture<Void> publishAll(List<?> payloads, String exchange, String routingKey) {
+        if (payloads.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        log.debug("Publishing {} messages to {} using routingkey {}", payloads.size(), exchange, routingKey);
+        // one channel for the whole batch instead of a checkout per message
+        List<CompletableFuture<Void>> sent = rabbitTemplate.invoke(operations -> {
+            List<CompletableFuture<Void>> futures = new ArrayList<>(payloads.size());
+            for (Object payload : payloads) {
+                futures.add(send(operations, payload, exchange, routingKey));
+            }
+            return futures;
+        });
+        return logFailures(CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new)),
+                payloads.size(), exchange, routingKey);
+    }
+
+    private CompletableFuture<Void> send(RabbitOperations operations, Object payload,
+                                         String exchange, String routingKey) {
+        if (!confirms) {
+            return run(() -> operations.convertAndSend(exchange, routingKey, payload));
+        }
+        try {
+            if (!inFlight.tryAcquire(inFlightTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.failedFuture(new AmqpException(
+                        "publisher confirm window full for " + inFlightTimeoutMs + " ms"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Void> confirmed = new CompletableFuture<>();
+        CorrelationData correlationData = new CorrelationData(UUID.randomUUID().toString());
+        correlationData.getFuture().addCallback(
+                confirm -> {
+                    inFlight.release();
+                    // a return always arrives before the ack of the same message
+                    ReturnedMessage returned = correlationData.getReturned();
+                    if (confirm != null && confirm.isAck() && returned == null) {
+                        confirmed.complete(null);
+                    } else if (returned != null) {
+                        confirmed.completeExceptionally(new AmqpException(String.format(
+                                "publish returned unroutable: %d %s", returned.getReplyCode(), returned.getReplyText())));
+                    } else {
+                        confirmed.completeExceptionally(new AmqpException(
+                                "publish not confirmed: " + (confirm == null ? null : confirm.getReason())));
+                    }
+                },
+                failure -> {
+                    inFlight.release();
+                    confirmed.completeExceptionally(failure);
+                });
+        try {
+            operations.convertAndSend(exchange, routingKey, payload, correlationData);
+        } catch (RuntimeException e) {
+            // no confirm will follow a send that never reached the channel
+            correlationData.getFuture().setException(e);
+        }
+        return confirmed;
+    }
+
+    private static CompletableFuture<Void> run(Runnable send) {
+        try {
+            send.run();
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static CompletableFuture<Void> logFailures(CompletableFuture<Void> future, int messages,
+                                                       String exchange, String routingKey) {
+        return future.whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                log.error("Failed to publish {} messages to {} using routingkey {}",
+                        messages, exchange, routingKey, failure);
+            }
+        });
     }
 }
@@ -0,0 +1,371 @@
+package com.kapok.amqp;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Binary encoding for Java records, used for the {@code clients} payloads instead of
+ * JSON. The record's components, in declaration order, are the schema: values are
+ * written one after the other with no field names, integers as zig-zag varints, UUIDs as
+ * 16 raw bytes and strings as length-prefixed UTF-8. A CRC of the component names and
+ * types travels in the {@value #SCHEMA_HEADER} header, so a producer and consumer with
+ * different versions of a record fail the conversion instead of misreading fields.
+ * <p>
+ * Only records in the trusted packages are decoded. Supported component types are
+ * {@code String}, {@code UUID}, {@code int}/{@code Integer}, {@code long}/{@code Long}
+ * and {@code boolean}/{@code Boolean}, each of the boxed ones nullable.
+ */
+public class RecordMessageConverter extends AbstractMessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-kapok-record";
+    public static final String TYPE_HEADER = "__TypeId__";
+    public static final String SCHEMA_HEADER = "x-record-schema";
+
+    private final List<String> trustedPackages;
+    private final Map<Class<?>, RecordCodec> codecs = new ConcurrentHashMap<>();
+    private final Map<String, RecordCodec> codecsByName = new ConcurrentHashMap<>();
+
+    public RecordMessageConverter(String... trustedPackages) {
+        this.trustedPackages = Arrays.stream(trustedPackages).map(p -> p + ".").toList();
+    }
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        if (!(object instanceof Record record)) {
+            throw new MessageConversionException("not a record: " + object.getClass().getName());
+        }
+        RecordCodec codec = codecs.computeIfAbsent(object.getClass(), RecordCodec::new);
+        byte[] body = codec.encode(record);
+        messageProperties.setContentType(CONTENT_TYPE);
+        messageProperties.setContentLength(body.length);
+        messageProperties.setHeader(TYPE_HEADER, codec.type.getName());
+        messageProperties.setHeader(SCHEMA_HEADER, codec.schema);
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        Object typeId = properties.getHeader(TYPE_HEADER);
+        Object schema = properties.getHeader(SCHEMA_HEADER);
+        if (typeId == null || schema == null) {
+            throw new MessageConversionException("missing " + TYPE_HEADER + " or " + SCHEMA_HEADER + " header");
+        }
+        RecordCodec codec = codecsByName.computeIfAbsent(typeId.toString(), this::codecFor);
+        if (codec.schema != ((Number) schema).longValue()) {
+            throw new MessageConversionException("schema of " + typeId + " differs from the local record");
+        }
+        return codec.decode(message.getBody());
+    }
+
+    private RecordCodec codecFor(String typeId) {
+        if (trustedPackages.stream().noneMatch(typeId::startsWith)) {
+            throw new MessageConversionException("untrusted record type " + typeId);
+        }
+        try {
+            return codecs.computeIfAbsent(
+                    Class.forName(typeId, true, Thread.currentThread().getContextClassLoader()), RecordCodec::new);
+        } catch (ClassNotFoundException e) {
+            throw new MessageConversionException("unknown record type " + typeId, e);
+        }
+    }
+
+    private static final class RecordCodec {
+
+        private final Class<?> type;
+        private final long schema;
+        private final Constructor<?> constructor;
+        private final Method[] accessors;
+        private final FieldCodec[] fields;
+
+        RecordCodec(Class<?> type) {
+            if (!type.isRecord()) {
+                throw new MessageConversionException("not a record: " + type.getName());
+            }
+            RecordComponent[] components = type.getRecordComponents();
+            this.type = type;
+            this.accessors = new Method[components.length];
+            this.fields = new FieldCodec[components.length];
+            Class<?>[] componentTypes = new Class<?>[components.length];
+            CRC32 crc = new CRC32();
+            for (int i = 0; i < components.length; i++) {
+                accessors[i] = components[i].getAccessor();
+                componentTypes[i] = components[i].getType();
+                fields[i] = FieldCodec.of(componentTypes[i]);
+                crc.update((components[i].getName() + ':' + componentTypes[i].getName() + ';')
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+            this.schema = crc.getValue();
+            try {
+                this.constructor = type.getDeclaredConstructor(componentTypes);
+            } catch (NoSuchMethodException e) {
+                throw new MessageConversionException("no canonical constructor on " + type.getName(), e);
+            }
+        }
+
+        byte[] encode(Record record) {
+            Output output = new Output();
+            try {
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i].write(output, accessors[i].invoke(record));
+                }
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new MessageConversionException("failed to read " + type.getName(), e);
+            }
+            return output.toByteArray();
+        }
+
+        Object decode(byte[] body) {
+            Input input = new Input(body);
+            Object[] values = new Object[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                values[i] = fields[i].read(input);
+            }
+            if (input.position != body.length) {
+                throw new MessageConversionException("trailing bytes after " + type.getName());
+            }
+            try {
+                return constructor.newInstance(values);
+            } catch (ReflectiveOperationException e) {
+                throw new MessageConversionException("failed to create " + type.getName(), e);
+            }
+        }
+    }
+
+    private enum FieldCodec {
+        STRING {
+            @Override
+            void write(Output output, Object value) {
+                if (value == null) {
+                    output.writeVarLong(0);
+                    return;
+                }
+                byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                // length + 1, 0 is null
+                output.writeVarLong(bytes.length + 1L);
+                output.writeBytes(bytes);
+            }
+
+            @Override
+            Object read(Input input) {
+                int length = (int) input.readVarLong() - 1;
+                return length < 0 ? null : input.readString(length);
+            }
+        },
+        UUID_VALUE {
+            @Override
+            void write(Output output, Object value) {
+                output.writeByte(value == null ? 0 : 1);
+                if (value != null) {
+                    output.writeLong(((UUID) value).getMostSignificantBits());
+                    output.writeLong(((UUID) value).getLeastSignificantBits());
+                }
+            }
+
+            @Override
+            Object read(Input input) {
+                return input.readByte() == 0 ? null : new UUID(input.readLong(), input.readLong());
+            }
+        },
+        INT {
+            @Override
+            void write(Output output, Object value) {
+                output.writeVarLong(zigZag((Integer) value));
+            }
+
+            @Override
+            Object read(Input input) {
+                return (int) unZigZag(input.readVarLong());
+            }
+        },
+        NULLABLE_INT {
+            @Override
+            void write(Output output, Object value) {
+                output.writeByte(value == null ? 0 : 1);
+                if (value != null) {
+                    INT.write(output, value);
+                }
+            }
+
+            @Override
+            Object read(Input input) {
+                return input.readByte() == 0 ? null : INT.read(input);
+            }
+        },
+        LONG {
+            @Override
+            void write(Output output, Object value) {
+                output.writeVarLong(zigZag((Long) value));
+            }
+
+            @Override
+            Object read(Input input) {
+                return unZigZag(input.readVarLong());
+            }
+        },
+        NULLABLE_LONG {
+            @Override
+            void write(Output output, Object value) {
+                output.writeByte(value == null ? 0 : 1);
+                if (value != null) {
+                    LONG.write(output, value);
+                }
+            }
+
+            @Override
+            Object read(Input input) {
+                return input.readByte() == 0 ? null : LONG.read(input);
+            }
+        },
+        BOOLEAN {
+            @Override
+            void write(Output output, Object value) {
+                // 0 null, 1 false, 2 true
+                output.writeByte(value == null ? 0 : (Boolean) value ? 2 : 1);
+            }
+
+            @Override
+            Object read(Input input) {
+                byte value = input.readByte();
+                return value == 0 ? null : value == 2;
+            }
+        };
+
+        abstract void write(Output output, Object value);
+
+        abstract Object read(Input input);
+
+        static FieldCodec of(Class<?> type) {
+            if (type == String.class) {
+                return STRING;
+            } else if (type == UUID.class) {
+                return UUID_VALUE;
+            } else if (type == int.class) {
+                return INT;
+            } else if (type == Integer.class) {
+                return NULLABLE_INT;
+            } else if (type == long.class) {
+                return LONG;
+            } else if (type == Long.class) {
+                return NULLABLE_LONG;
+            } else if (type == boolean.class || type == Boolean.class) {
+                return BOOLEAN;
+            }
+            throw new MessageConversionException("unsupported record component type " + type.getName());
+        }
+
+        private static long zigZag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+
+        private static long unZigZag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+
+    private static final class Output {
+
+        private byte[] buffer = new byte[64];
+        private int position;
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+            }
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] buffer;
+        private int position;
+
+        Input(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        byte readByte() {
+            require(1);
+            return buffer[position++];
+        }
+
+        long readLong() {
+            require(8);
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (buffer[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new MessageConversionException("malformed varint");
+        }
+
+        String readString(int length) {
+            require(length);
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private void require(int bytes) {
+            if (bytes < 0 || position + bytes > buffer.length) {
+                throw new MessageConversionException("truncated record body");
+            }
+        }
+    }
+}
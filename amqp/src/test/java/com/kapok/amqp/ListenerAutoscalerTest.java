@@ -0,0 +1,178 @@
+package com.kapok.amqp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+
+class ListenerAutoscalerTest {
+
+    private static final String QUEUE = "notification.queue";
+
+    @Mock
+    private RabbitListenerEndpointRegistry listenerEndpointRegistry;
+    @Mock
+    private AmqpAdmin amqpAdmin;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ListenerLatencyAdvice listenerLatencyAdvice = new ListenerLatencyAdvice(meterRegistry);
+    private final SimpleMessageListenerContainer container = spy(new SimpleMessageListenerContainer());
+    private int activeConsumers = 1;
+    private ListenerAutoscaler underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        given(listenerEndpointRegistry.getListenerContainers()).willReturn(List.of(container));
+        container.setListenerId("notification");
+        container.setQueueNames(QUEUE);
+        // isRunning() is final; a started container would need a broker
+        ReflectionTestUtils.setField(container, "running", true);
+        given(container.getActiveConsumerCount()).willAnswer(invocation -> activeConsumers);
+        willAnswer(invocation -> activeConsumers = invocation.getArgument(0))
+                .given(container).setConcurrentConsumers(anyInt());
+        underTest = new ListenerAutoscaler(listenerEndpointRegistry, amqpAdmin, listenerLatencyAdvice, meterRegistry,
+                false, 1, 10, Duration.ofSeconds(1), Duration.ofSeconds(5));
+    }
+
+    @Test
+    void itShouldScaleUpInOneStep() {
+        // given, 5ms a message leaves 1000 messages for 5 consumers to drain within a second
+        ready(1000);
+        processed(100, Duration.ofMillis(500));
+
+        // when
+        underTest.scale();
+
+        // then
+        then(container).should().setConcurrentConsumers(5);
+    }
+
+    @Test
+    void itShouldScaleDownByOneConsumerPerInterval() {
+        // given
+        ready(1000);
+        processed(100, Duration.ofMillis(500));
+        underTest.scale();
+
+        // when
+        ready(0);
+        underTest.scale();
+        underTest.scale();
+
+        // then
+        var order = inOrder(container);
+        order.verify(container).setConcurrentConsumers(5);
+        order.verify(container).setConcurrentConsumers(4);
+        order.verify(container).setConcurrentConsumers(3);
+    }
+
+    @Test
+    void itShouldNotDropBelowOneLessConsumerWhileBacklogShrinks() {
+        // given
+        ready(1000);
+        processed(100, Duration.ofMillis(500));
+        underTest.scale();
+
+        // when, the backlog needs a single consumer now
+        ready(10);
+        processed(100, Duration.ofMillis(500));
+        underTest.scale();
+
+        // then
+        then(container).should().setConcurrentConsumers(4);
+    }
+
+    @Test
+    void itShouldAddConsumerForBacklogNobodyConsumed() {
+        // given
+        ready(100);
+
+        // when
+        underTest.scale();
+        underTest.scale();
+
+        // then
+        var order = inOrder(container);
+        order.verify(container).setConcurrentConsumers(2);
+        order.verify(container).setConcurrentConsumers(3);
+    }
+
+    @Test
+    void itShouldClampToMaxConsumers() {
+        // given
+        ready(100_000);
+        processed(100, Duration.ofMillis(500));
+
+        // when
+        underTest.scale();
+
+        // then
+        then(container).should().setConcurrentConsumers(10);
+    }
+
+    @Test
+    void itShouldNotScaleBelowMinConsumers() {
+        // given
+        ready(0);
+
+        // when
+        underTest.scale();
+
+        // then
+        then(container).should(never()).setConcurrentConsumers(anyInt());
+    }
+
+    @Test
+    void itShouldAskOnlyForItsShareOfConsumersAcrossPods() {
+        // given, this pod holds one of the queue's four consumers
+        given(amqpAdmin.getQueueInfo(QUEUE)).willReturn(new QueueInformation(QUEUE, 1600, 4));
+        processed(100, Duration.ofMillis(500));
+
+        // when
+        underTest.scale();
+
+        // then, 8 consumers drain the backlog, 2 of them on this pod
+        then(container).should().setConcurrentConsumers(2);
+    }
+
+    @Test
+    void itShouldSkipContainersThatAreNotRunning() {
+        // given
+        ReflectionTestUtils.setField(container, "running", false);
+        ready(1000);
+
+        // when
+        underTest.scale();
+
+        // then
+        then(amqpAdmin).shouldHaveNoInteractions();
+    }
+
+    private void ready(int messages) {
+        given(amqpAdmin.getQueueInfo(QUEUE)).willReturn(new QueueInformation(QUEUE, messages, activeConsumers));
+    }
+
+    private void processed(int messages, Duration time) {
+        ListenerLatencyAdvice.QueueStats stats = listenerLatencyAdvice.stats(QUEUE);
+        stats.messages.add(messages);
+        stats.nanos.add(time.toNanos());
+    }
+}
@@ -0,0 +1,106 @@
+package com.kapok.amqp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+
+class ListenerLatencyAdviceTest {
+
+    private static final String QUEUE = "notification.queue";
+
+    @Mock
+    private MethodInvocation invocation;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ListenerLatencyAdvice underTest = new ListenerLatencyAdvice(meterRegistry);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void itShouldTimeSingleMessagePerConsumerQueue() throws Throwable {
+        // given
+        given(invocation.getArguments()).willReturn(new Object[]{null, message(QUEUE)});
+        given(invocation.proceed()).willReturn("done");
+
+        // when
+        Object result = underTest.invoke(invocation);
+
+        // then
+        assertThat(result).isEqualTo("done");
+        assertThat(underTest.stats(QUEUE).messages.sum()).isEqualTo(1);
+        assertThat(underTest.stats(QUEUE).nanos.sum()).isPositive();
+        assertThat(meterRegistry.get("amqp.listener.processing").tag("queue", QUEUE).functionTimer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void itShouldCountEveryMessageOfBatch() throws Throwable {
+        // given
+        given(invocation.getArguments()).willReturn(new Object[]{null, List.of(message(QUEUE), message(QUEUE))});
+
+        // when
+        underTest.invoke(invocation);
+
+        // then
+        assertThat(underTest.stats(QUEUE).messages.sum()).isEqualTo(2);
+    }
+
+    @Test
+    void itShouldRecordFailingListenerCalls() throws Throwable {
+        // given
+        given(invocation.getArguments()).willReturn(new Object[]{null, message(QUEUE)});
+        given(invocation.proceed()).willThrow(new IllegalStateException("poison message"));
+
+        // when
+        assertThatThrownBy(() -> underTest.invoke(invocation)).hasMessage("poison message");
+
+        // then
+        assertThat(underTest.stats(QUEUE).messages.sum()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldPassThroughCallsWithoutMessages() throws Throwable {
+        // given
+        given(invocation.getArguments()).willReturn(new Object[]{null, List.of()});
+        given(invocation.proceed()).willReturn("done");
+
+        // when
+        Object result = underTest.invoke(invocation);
+
+        // then
+        assertThat(result).isEqualTo("done");
+        assertThat(meterRegistry.find("amqp.listener.processing").functionTimer()).isNull();
+    }
+
+    @Test
+    void itShouldIgnoreMessagesWithoutConsumerQueue() throws Throwable {
+        // given
+        given(invocation.getArguments()).willReturn(new Object[]{null, message(null)});
+
+        // when
+        underTest.invoke(invocation);
+
+        // then
+        assertThat(meterRegistry.find("amqp.listener.processing").functionTimer()).isNull();
+    }
+
+    private static Message message(String consumerQueue) {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue(consumerQueue);
+        return new Message(new byte[0], properties);
+    }
+}
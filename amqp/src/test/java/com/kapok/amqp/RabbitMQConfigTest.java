@@ -0,0 +1,94 @@
+package com.kapok.amqp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aopalliance.aop.Advice;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RabbitMQConfigTest {
+
+    private final CachingConnectionFactory connectionFactory = new CachingConnectionFactory();
+    private final RabbitMQConfig underTest = new RabbitMQConfig(connectionFactory, MessageProperties.CONTENT_TYPE_JSON);
+
+    @AfterEach
+    void tearDown() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void itShouldRejectFailingBatchWithoutRequeueAfterRetries() {
+        // given
+        SimpleRabbitListenerContainerFactory factory = underTest.batchRabbitListenerContainerFactory(
+                new ListenerLatencyAdvice(new SimpleMeterRegistry()), new SimpleMeterRegistry(),
+                1, 500, 0, 100, 3, 1, 1);
+        AtomicInteger attempts = new AtomicInteger();
+        BatchListener listener = advised(factory.getAdviceChain(), (channel, batch) -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("poison message");
+        });
+
+        // when
+        assertThatThrownBy(() -> listener.invokeListener(null, batch(2)))
+                // then
+                .isInstanceOf(AmqpRejectAndDontRequeueException.class)
+                .hasMessageContaining("batch of 2 messages failed 3 times");
+        assertThat(attempts.get()).isEqualTo(3);
+    }
+
+    @Test
+    void itShouldRetryTransientBatchFailures() {
+        // given
+        SimpleRabbitListenerContainerFactory factory = underTest.batchRabbitListenerContainerFactory(
+                new ListenerLatencyAdvice(new SimpleMeterRegistry()), new SimpleMeterRegistry(),
+                1, 500, 0, 100, 3, 1, 1);
+        AtomicInteger attempts = new AtomicInteger();
+        BatchListener listener = advised(factory.getAdviceChain(), (channel, batch) -> {
+            if (attempts.incrementAndGet() < 2) {
+                throw new IllegalStateException("database unavailable");
+            }
+        });
+
+        // when
+        listener.invokeListener(null, batch(2));
+
+        // then
+        assertThat(attempts.get()).isEqualTo(2);
+    }
+
+    /**
+     * Same signature the container advises, the batch is the second argument.
+     */
+    interface BatchListener {
+        void invokeListener(Object channel, Object data);
+    }
+
+    private static BatchListener advised(Advice[] adviceChain, BatchListener target) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addInterface(BatchListener.class);
+        for (Advice advice : adviceChain) {
+            proxyFactory.addAdvice(advice);
+        }
+        return (BatchListener) proxyFactory.getProxy();
+    }
+
+    private static List<Message> batch(int size) {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue("notification.queue");
+        return IntStream.range(0, size)
+                .mapToObj(i -> new Message(new byte[0], properties))
+                .toList();
+    }
+}
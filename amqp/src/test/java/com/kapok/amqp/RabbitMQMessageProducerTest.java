@@ -0,0 +1,98 @@
+package com.kapok.amqp;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+
+class RabbitMQMessageProducerTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+    @Mock
+    private ConnectionFactory connectionFactory;
+
+    private RabbitMQMessageProducer underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        given(rabbitTemplate.getConnectionFactory()).willReturn(connectionFactory);
+        given(connectionFactory.isPublisherConfirms()).willReturn(true);
+        given(connectionFactory.isPublisherReturns()).willReturn(true);
+        underTest = new RabbitMQMessageProducer(rabbitTemplate, 10, 100);
+    }
+
+    @Test
+    void itShouldCompleteOnAck() throws Exception {
+        // given
+        brokerAnswers(false, true);
+
+        // when
+        CompletableFuture<Void> published = underTest.publish("payload", "exchange", "routing-key");
+
+        // then
+        assertThat(published.get(1, TimeUnit.SECONDS)).isNull();
+    }
+
+    @Test
+    void itShouldFailWhenBrokerReturnsUnroutableMessage() {
+        // given the broker returns the message, then acks it
+        brokerAnswers(true, true);
+
+        // when
+        CompletableFuture<Void> published = underTest.publish("payload", "exchange", "unbound");
+
+        // then
+        assertThatThrownBy(() -> published.get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(AmqpException.class)
+                .hasMessageContaining("312 NO_ROUTE");
+    }
+
+    @Test
+    void itShouldFailOnNack() {
+        // given
+        brokerAnswers(false, false);
+
+        // when
+        CompletableFuture<Void> published = underTest.publish("payload", "exchange", "routing-key");
+
+        // then
+        assertThatThrownBy(() -> published.get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("publish not confirmed");
+    }
+
+    private void brokerAnswers(boolean returned, boolean ack) {
+        willAnswer(invocation -> {
+            CorrelationData correlationData = invocation.getArgument(3);
+            if (returned) {
+                correlationData.setReturned(new ReturnedMessage(
+                        new Message(new byte[0], new MessageProperties()), 312, "NO_ROUTE",
+                        invocation.getArgument(0), invocation.getArgument(1)));
+            }
+            correlationData.getFuture().set(new CorrelationData.Confirm(ack, ack ? null : "nacked"));
+            return null;
+        }).given(rabbitTemplate).convertAndSend(any(String.class), any(String.class), eq("payload"),
+                any(CorrelationData.class));
+    }
+}
@@ -0,0 +1,195 @@
+package com.kapok.amqp;
+
+import com.kapok.clients.notification.NotificationRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecordMessageConverterTest {
+
+    record AllTypes(String text, UUID id, int number, Integer boxedNumber, long count, Long boxedCount,
+                    boolean flag, Boolean boxedFlag) {
+    }
+
+    record Renamed(String name, UUID id, int number, Integer boxedNumber, long count, Long boxedCount,
+                   boolean flag, Boolean boxedFlag) {
+    }
+
+    private final RecordMessageConverter underTest = new RecordMessageConverter("com.kapok.amqp");
+
+    @Test
+    void itShouldRoundTripEveryComponentType() {
+        // given
+        AllTypes value = new AllTypes("kapök", UUID.randomUUID(), -42, Integer.MIN_VALUE,
+                Long.MIN_VALUE, Long.MAX_VALUE, true, false);
+
+        // when
+        Message message = underTest.toMessage(value, new MessageProperties());
+
+        // then
+        assertThat(message.getMessageProperties().getContentType()).isEqualTo(RecordMessageConverter.CONTENT_TYPE);
+        assertThat(underTest.fromMessage(message)).isEqualTo(value);
+    }
+
+    @Test
+    void itShouldRoundTripNullInEveryNullableCodec() {
+        // given
+        AllTypes value = new AllTypes(null, null, 0, null, 0L, null, false, null);
+
+        // when
+        Message message = underTest.toMessage(value, new MessageProperties());
+
+        // then
+        assertThat(underTest.fromMessage(message)).isEqualTo(value);
+    }
+
+    @Test
+    void itShouldTellEmptyStringFromNull() {
+        // given
+        AllTypes value = new AllTypes("", UUID.randomUUID(), 1, 0, 1L, 0L, false, true);
+
+        // when
+        Object decoded = underTest.fromMessage(underTest.toMessage(value, new MessageProperties()));
+
+        // then
+        assertThat(decoded).isEqualTo(value);
+    }
+
+    @Test
+    void itShouldRejectSchemaMismatch() {
+        // given
+        Message message = underTest.toMessage(allTypes(), new MessageProperties());
+        // same component types, first one renamed
+        Message renamed = underTest.toMessage(new Renamed("kapok", UUID.randomUUID(), 1, 2, 3L, 4L, true, false),
+                new MessageProperties());
+        message.getMessageProperties().setHeader(RecordMessageConverter.SCHEMA_HEADER,
+                renamed.getMessageProperties().getHeader(RecordMessageConverter.SCHEMA_HEADER));
+
+        // when
+        // then
+        assertThatThrownBy(() -> underTest.fromMessage(message))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("schema of " + AllTypes.class.getName());
+    }
+
+    @Test
+    void itShouldRejectMissingHeaders() {
+        // given
+        Message message = underTest.toMessage(allTypes(), new MessageProperties());
+        message.getMessageProperties().getHeaders().remove(RecordMessageConverter.SCHEMA_HEADER);
+
+        // when
+        // then
+        assertThatThrownBy(() -> underTest.fromMessage(message))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("missing");
+    }
+
+    @Test
+    void itShouldRejectUntrustedTypes() {
+        // given
+        RecordMessageConverter converter = new RecordMessageConverter("com.kapok.clients");
+        Message message = underTest.toMessage(allTypes(), new MessageProperties());
+
+        // when
+        // then
+        assertThatThrownBy(() -> converter.fromMessage(message))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("untrusted record type " + AllTypes.class.getName());
+    }
+
+    @Test
+    void itShouldNotTrustPackagesSharingTheTrustedPrefix() {
+        // given
+        RecordMessageConverter converter = new RecordMessageConverter("com.kapok.am");
+        Message message = underTest.toMessage(allTypes(), new MessageProperties());
+
+        // when
+        // then
+        assertThatThrownBy(() -> converter.fromMessage(message))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("untrusted");
+    }
+
+    @Test
+    void itShouldRejectEveryTruncatedBody() {
+        // given
+        Message message = underTest.toMessage(allTypes(), new MessageProperties());
+        byte[] body = message.getBody();
+
+        for (int length = 0; length < body.length; length++) {
+            Message truncated = new Message(Arrays.copyOf(body, length), message.getMessageProperties());
+
+            // when
+            // then
+            assertThatThrownBy(() -> underTest.fromMessage(truncated))
+                    .as("body truncated to %d of %d bytes", length, body.length)
+                    .isInstanceOf(MessageConversionException.class)
+                    .hasMessageContaining("truncated");
+        }
+    }
+
+    @Test
+    void itShouldRejectTrailingBytes() {
+        // given
+        Message message = underTest.toMessage(allTypes(), new MessageProperties());
+        byte[] body = Arrays.copyOf(message.getBody(), message.getBody().length + 1);
+
+        // when
+        // then
+        assertThatThrownBy(() -> underTest.fromMessage(new Message(body, message.getMessageProperties())))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("trailing bytes");
+    }
+
+    @Test
+    void itShouldRejectNonRecords() {
+        // when
+        // then
+        assertThatThrownBy(() -> underTest.toMessage("kapok", new MessageProperties()))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("not a record");
+    }
+
+    @Test
+    void itShouldNegotiateJsonAndBinaryByContentType() {
+        // given
+        CachingConnectionFactory connectionFactory = new CachingConnectionFactory();
+        MessageConverter jsonProducer = new RabbitMQConfig(connectionFactory, MessageProperties.CONTENT_TYPE_JSON)
+                .messageConverter();
+        MessageConverter binaryProducer = new RabbitMQConfig(connectionFactory, RecordMessageConverter.CONTENT_TYPE)
+                .messageConverter();
+        NotificationRequest request = new NotificationRequest(UUID.randomUUID(), "kapok", "Hi kapok");
+
+        // when
+        Message json = jsonProducer.toMessage(request, new MessageProperties());
+        Message binary = binaryProducer.toMessage(request, new MessageProperties());
+        // listeners decode JSON into the type of their parameter
+        json.getMessageProperties().setInferredArgumentType(NotificationRequest.class);
+        binary.getMessageProperties().setInferredArgumentType(NotificationRequest.class);
+
+        // then
+        assertThat(json.getMessageProperties().getContentType()).isEqualTo(MessageProperties.CONTENT_TYPE_JSON);
+        assertThat(binary.getMessageProperties().getContentType()).isEqualTo(RecordMessageConverter.CONTENT_TYPE);
+        assertThat(binary.getBody().length).isLessThan(json.getBody().length);
+        // each side decodes whatever the other one produces
+        assertThat(binaryProducer.fromMessage(json)).isEqualTo(request);
+        assertThat(jsonProducer.fromMessage(binary)).isEqualTo(request);
+        assertThat(jsonProducer.fromMessage(json)).isEqualTo(request);
+        assertThat(binaryProducer.fromMessage(binary)).isEqualTo(request);
+        connectionFactory.destroy();
+    }
+
+    private static AllTypes allTypes() {
+        return new AllTypes("kapok", UUID.randomUUID(), 7, 8, 9L, 10L, true, false);
+    }
+}
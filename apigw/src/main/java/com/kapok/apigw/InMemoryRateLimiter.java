@@ -0,0 +1,207 @@
+package com.kapok.apigw;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code RequestRateLimiter} backend that keeps its {@link TokenBuckets} in memory instead
+ * of Redis. Every route has a bucket per client key, and optionally one shared by all its
+ * clients, which caps what the route sends downstream. Limits come from the route's
+ * {@code in-memory-rate-limiter.*} filter arguments, or {@code gateway.rate-limit.*}; a
+ * replenish rate of 0 turns that bucket off.
+ * <p>
+ * Replicas do not talk to each other. With {@code gateway.rate-limit.replica-aware} each
+ * one enforces its share of the limits, dividing them by the number of gateway instances
+ * registered in discovery, refreshed every {@code replica-refresh-interval}; the sum is
+ * right as long as the load balancer spreads clients evenly.
+ * <p>
+ * Published as {@code gateway.rate-limit.requests} tagged allowed or denied,
+ * {@code gateway.rate-limit.buckets} and {@code gateway.rate-limit.replicas}.
+ */
+@Slf4j
+@Primary
+@Component
+public class InMemoryRateLimiter extends AbstractRateLimiter<InMemoryRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "in-memory-rate-limiter";
+
+    private final TokenBuckets tokenBuckets;
+    private final Config defaultConfig;
+    private final ObjectProvider<DiscoveryClient> discoveryClient;
+    private final String serviceId;
+    private final boolean replicaAware;
+    private final Duration replicaRefreshInterval;
+    private final ScheduledExecutorService replicaRefresher;
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+    private volatile int replicas = 1;
+
+    public InMemoryRateLimiter(
+            ConfigurationService configurationService,
+            ObjectProvider<DiscoveryClient> discoveryClient,
+            MeterRegistry meterRegistry,
+            @Value("${spring.application.name}") String serviceId,
+            @Value("${gateway.rate-limit.replenish-rate:50}") double replenishRate,
+            @Value("${gateway.rate-limit.burst-capacity:100}") long burstCapacity,
+            @Value("${gateway.rate-limit.route-replenish-rate:0}") double routeReplenishRate,
+            @Value("${gateway.rate-limit.route-burst-capacity:0}") long routeBurstCapacity,
+            @Value("${gateway.rate-limit.maximum-buckets:100000}") long maximumBuckets,
+            @Value("${gateway.rate-limit.idle-timeout:10m}") Duration idleTimeout,
+            @Value("${gateway.rate-limit.replica-aware:false}") boolean replicaAware,
+            @Value("${gateway.rate-limit.replica-refresh-interval:30s}") Duration replicaRefreshInterval) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.tokenBuckets = new TokenBuckets(maximumBuckets, idleTimeout);
+        this.defaultConfig = new Config()
+                .setReplenishRate(replenishRate)
+                .setBurstCapacity(burstCapacity)
+                .setRouteReplenishRate(routeReplenishRate)
+                .setRouteBurstCapacity(routeBurstCapacity);
+        this.discoveryClient = discoveryClient;
+        this.serviceId = serviceId;
+        this.replicaAware = replicaAware;
+        this.replicaRefreshInterval = replicaRefreshInterval;
+        this.replicaRefresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-replicas");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        FunctionCounter.builder("gateway.rate-limit.requests", allowed, LongAdder::sum)
+                .tag("result", "allowed")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.rate-limit.requests", denied, LongAdder::sum)
+                .tag("result", "denied")
+                .register(meterRegistry);
+        Gauge.builder("gateway.rate-limit.buckets", tokenBuckets, TokenBuckets::size)
+                .register(meterRegistry);
+        Gauge.builder("gateway.rate-limit.replicas", this, limiter -> limiter.replicas)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (replicaAware) {
+            replicaRefresher.scheduleWithFixedDelay(this::refreshReplicas,
+                    0, replicaRefreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        replicaRefresher.shutdownNow();
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        int share = replicas;
+        double replenishRate = config.getReplenishRate() / share;
+        long burstCapacity = Math.max(1, config.getBurstCapacity() / share);
+
+        // the client's own bucket first, so a client over its limit spends none of the route's;
+        // a request the route then denies gets the client's token back
+        String clientKey = routeId + '|' + id;
+        long remaining = replenishRate > 0
+                ? tokenBuckets.tryAcquire(clientKey, replenishRate, burstCapacity)
+                : Long.MAX_VALUE;
+        if (remaining >= 0 && config.getRouteReplenishRate() > 0) {
+            long routeRemaining = tokenBuckets.tryAcquire(routeId, config.getRouteReplenishRate() / share,
+                    Math.max(1, config.getRouteBurstCapacity() / share));
+            if (routeRemaining < 0 && replenishRate > 0) {
+                tokenBuckets.refund(clientKey, replenishRate);
+            }
+            remaining = routeRemaining < 0 ? -1 : Math.min(remaining, routeRemaining);
+        }
+        if (remaining < 0) {
+            denied.increment();
+            return Mono.just(new Response(false, headers(0, replenishRate, burstCapacity)));
+        }
+        allowed.increment();
+        return Mono.just(new Response(true, headers(remaining, replenishRate, burstCapacity)));
+    }
+
+    private static Map<String, String> headers(long remaining, double replenishRate, long burstCapacity) {
+        return Map.of(
+                "X-RateLimit-Remaining", Long.toString(remaining),
+                "X-RateLimit-Replenish-Rate", Double.toString(replenishRate),
+                "X-RateLimit-Burst-Capacity", Long.toString(burstCapacity));
+    }
+
+    private void refreshReplicas() {
+        try {
+            DiscoveryClient client = discoveryClient.getIfAvailable();
+            if (client != null) {
+                int registered = Math.max(1, client.getInstances(serviceId).size());
+                if (registered != replicas) {
+                    log.info("rate limits now shared by {} gateway replicas", registered);
+                    replicas = registered;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("failed to count gateway replicas, keeping {}", replicas, e);
+        }
+    }
+
+    public static class Config {
+
+        private double replenishRate;
+        private long burstCapacity;
+        private double routeReplenishRate;
+        private long routeBurstCapacity;
+
+        public double getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(double replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public long getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(long burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public double getRouteReplenishRate() {
+            return routeReplenishRate;
+        }
+
+        public Config setRouteReplenishRate(double routeReplenishRate) {
+            this.routeReplenishRate = routeReplenishRate;
+            return this;
+        }
+
+        public long getRouteBurstCapacity() {
+            return routeBurstCapacity;
+        }
+
+        public Config setRouteBurstCapacity(long routeBurstCapacity) {
+            this.routeBurstCapacity = routeBurstCapacity;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.kapok.apigw;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.support.ipresolver.RemoteAddressResolver;
+import org.springframework.cloud.gateway.support.ipresolver.XForwardedRemoteAddressResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+@Configuration
+public class RateLimitConfig {
+
+    public static final String API_KEY_HEADER = "X-API-Key";
+
+    /**
+     * Rate limit key of a request: its API key when it has one, its client address otherwise.
+     * Behind {@code gateway.rate-limit.trusted-proxies} proxies the client address is taken
+     * from {@code X-Forwarded-For}, counting that many entries from the right, so clients
+     * cannot pick their key by prepending addresses; with 0 it is the remote address.
+     */
+    @Bean
+    public KeyResolver clientKeyResolver(@Value("${gateway.rate-limit.trusted-proxies:0}") int trustedProxies) {
+        RemoteAddressResolver remoteAddressResolver = trustedProxies > 0
+                ? XForwardedRemoteAddressResolver.maxTrustedIndex(trustedProxies)
+                : new RemoteAddressResolver() {
+                };
+        return exchange -> {
+            String apiKey = exchange.getRequest().getHeaders().getFirst(API_KEY_HEADER);
+            if (apiKey != null && !apiKey.isBlank()) {
+                return Mono.just("key:" + apiKey);
+            }
+            InetSocketAddress remoteAddress = remoteAddressResolver.resolve(exchange);
+            // forwarded addresses come unresolved, the host string is the address either way
+            return remoteAddress == null
+                    ? Mono.empty()
+                    : Mono.just("ip:" + remoteAddress.getHostString());
+        };
+    }
+}
@@ -0,0 +1,300 @@
+package com.kapok.apigw;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@code ResponseCache} route filter: keeps successful GET responses in memory so repeated
+ * reads are answered by the gateway. Responses are keyed by path, query, {@code Accept}
+ * and {@code Accept-Encoding}, and live for {@code gateway.response-cache.ttl} or the
+ * response's {@code max-age}, whichever is shorter. Responses marked {@code no-store},
+ * {@code no-cache} or {@code private}, setting cookies, varying on other headers, streamed
+ * or larger than {@code max-body-size} pass through uncached; so do requests with
+ * {@code Authorization} or {@code Cache-Control: no-store}. A request with
+ * {@code Cache-Control: no-cache} gets its own upstream response, neither cached nor
+ * shared with a load in flight, which then refreshes the cache.
+ * <p>
+ * While a response is loading, identical requests wait up to {@code coalesce-timeout} for
+ * it instead of going upstream; if it turns out not to be cacheable they go upstream
+ * themselves as soon as that is known.
+ * <p>
+ * Published as the {@code gateway.response} cache in the standard {@code cache.*} meters,
+ * plus {@code gateway.response.coalesced}.
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
+
+    private static final Pattern MAX_AGE = Pattern.compile("(?:^|[,\\s])(?:s-maxage|max-age)=(\\d+)");
+    private static final Set<String> CACHEABLE_VARY = Set.of("accept", "accept-encoding");
+    private static final Set<String> HOP_BY_HOP = Set.of(
+            "connection", "keep-alive", "transfer-encoding", "te", "trailer", "upgrade");
+
+    private final Cache<String, CachedResponse> responses;
+    private final Map<String, CompletableFuture<CachedResponse>> loads = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final long maxBodySize;
+    private final Duration coalesceTimeout;
+    private final Counter coalesced;
+
+    public ResponseCacheGatewayFilterFactory(
+            MeterRegistry meterRegistry,
+            @Value("${gateway.response-cache.maximum-size:10000}") long maximumSize,
+            @Value("${gateway.response-cache.ttl:5s}") Duration ttl,
+            @Value("${gateway.response-cache.max-body-size:1MB}") DataSize maxBodySize,
+            @Value("${gateway.response-cache.coalesce-timeout:5s}") Duration coalesceTimeout) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxBodySize = maxBodySize.toBytes();
+        this.coalesceTimeout = coalesceTimeout;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ResponseExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "gateway.response");
+        this.coalesced = Counter.builder("gateway.response.coalesced")
+                .description("requests answered by another request's upstream call")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public GatewayFilter apply(Object config) {
+        // ahead of NettyWriteResponseFilter, so the upstream response is written through our decorator
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET || request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)) {
+                return chain.filter(exchange);
+            }
+            String cacheControl = request.getHeaders().getCacheControl();
+            if (hasDirective(cacheControl, "no-store")) {
+                return chain.filter(exchange);
+            }
+            String key = key(request);
+            if (hasDirective(cacheControl, "no-cache")) {
+                // not registered in loads: nobody waits on it, it only refreshes the cache
+                CachingResponse response = new CachingResponse(exchange.getResponse(), key, new CompletableFuture<>());
+                return chain.filter(exchange.mutate().response(response).build())
+                        .doFinally(signal -> response.release());
+            }
+            CachedResponse cached = responses.getIfPresent(key);
+            if (cached != null) {
+                return write(exchange.getResponse(), cached);
+            }
+            CompletableFuture<CachedResponse> load = new CompletableFuture<>();
+            CompletableFuture<CachedResponse> inFlight = loads.putIfAbsent(key, load);
+            if (inFlight != null) {
+                return Mono.fromFuture(inFlight)
+                        .timeout(coalesceTimeout, Mono.empty())
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMap(loaded -> {
+                            if (loaded.isEmpty()) {
+                                // a load that outlived the timeout is abandoned, later requests start their own
+                                if (loads.remove(key, inFlight)) {
+                                    inFlight.complete(null);
+                                }
+                                return chain.filter(exchange);
+                            }
+                            coalesced.increment();
+                            return write(exchange.getResponse(), loaded.get());
+                        });
+            }
+            CachingResponse response = new CachingResponse(exchange.getResponse(), key, load);
+            return chain.filter(exchange.mutate().response(response).build())
+                    .doFinally(signal -> response.release());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private static String key(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        return request.getURI().getRawPath()
+                + '?' + (request.getURI().getRawQuery() == null ? "" : request.getURI().getRawQuery())
+                + '|' + String.join(",", headers.getOrEmpty(HttpHeaders.ACCEPT))
+                + '|' + String.join(",", headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    private static boolean hasDirective(String cacheControl, String directive) {
+        return cacheControl != null && cacheControl.contains(directive);
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, CachedResponse cached) {
+        response.setStatusCode(cached.status());
+        response.getHeaders().putAll(cached.headers());
+        response.getHeaders().set(HttpHeaders.AGE, Long.toString(
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - cached.storedAt())));
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.body())));
+    }
+
+    /**
+     * Lifetime of the response, or 0 when it must not be stored.
+     */
+    private long ttlNanos(HttpStatus status, HttpHeaders headers) {
+        if (status != HttpStatus.OK || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return 0;
+        }
+        long contentLength = headers.getContentLength();
+        if (contentLength > maxBodySize) {
+            return 0;
+        }
+        for (String vary : headers.getVary()) {
+            if (!CACHEABLE_VARY.contains(vary.toLowerCase())) {
+                return 0;
+            }
+        }
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return ttlNanos;
+        }
+        if (hasDirective(cacheControl, "no-store") || hasDirective(cacheControl, "no-cache")
+                || hasDirective(cacheControl, "private")) {
+            return 0;
+        }
+        Matcher maxAge = MAX_AGE.matcher(cacheControl);
+        return maxAge.find() ? Math.min(ttlNanos, TimeUnit.SECONDS.toNanos(Long.parseLong(maxAge.group(1)))) : ttlNanos;
+    }
+
+    /**
+     * Copies the upstream body as it is written and stores it once complete, if it may be.
+     */
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+        private final CompletableFuture<CachedResponse> load;
+        private ByteArrayOutputStream body;
+        private long ttl;
+        private volatile boolean copying;
+
+        CachingResponse(ServerHttpResponse delegate, String key, CompletableFuture<CachedResponse> load) {
+            super(delegate);
+            this.key = key;
+            this.load = load;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> publisher) {
+            ttl = ttlNanos(getStatusCode(), getHeaders());
+            if (ttl == 0) {
+                // waiters go upstream right away instead of after this response
+                finish(null);
+                return super.writeWith(publisher);
+            }
+            body = new ByteArrayOutputStream();
+            copying = true;
+            Flux<? extends DataBuffer> copied = Flux.from(publisher)
+                    .doOnNext(this::copy)
+                    .doOnComplete(() -> finish(body == null ? null : new CachedResponse(
+                            getStatusCode(), headersToStore(), body.toByteArray(), ttl, System.nanoTime())))
+                    // failed or cancelled, waiters go upstream
+                    .doFinally(signal -> finish(null));
+            return super.writeWith(copied);
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> publisher) {
+            // streamed responses such as the ndjson export are never cached
+            finish(null);
+            return super.writeAndFlushWith(publisher);
+        }
+
+        private void copy(DataBuffer buffer) {
+            if (body == null) {
+                return;
+            }
+            if (body.size() + buffer.readableByteCount() > maxBodySize) {
+                body = null;
+                finish(null);
+                return;
+            }
+            ByteBuffer bytes = buffer.asByteBuffer();
+            byte[] chunk = new byte[bytes.remaining()];
+            bytes.get(chunk);
+            body.write(chunk, 0, chunk.length);
+        }
+
+        private HttpHeaders headersToStore() {
+            HttpHeaders headers = new HttpHeaders();
+            getHeaders().forEach((name, values) -> {
+                if (!HOP_BY_HOP.contains(name.toLowerCase())) {
+                    headers.put(name, List.copyOf(values));
+                }
+            });
+            return HttpHeaders.readOnlyHttpHeaders(headers);
+        }
+
+        /**
+         * The exchange is done. The write may complete before its body has been consumed,
+         * so once a copy has started the body settles the load, not the exchange.
+         */
+        void release() {
+            if (!copying) {
+                finish(null);
+            }
+        }
+
+        void finish(CachedResponse response) {
+            if (load.isDone()) {
+                return;
+            }
+            if (response != null) {
+                responses.put(key, response);
+            }
+            loads.remove(key, load);
+            load.complete(response);
+        }
+    }
+
+    private record CachedResponse(HttpStatus status, HttpHeaders headers, byte[] body, long ttlNanos, long storedAt) {
+    }
+
+    private static final class ResponseExpiry implements Expiry<String, CachedResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+            return value.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return value.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
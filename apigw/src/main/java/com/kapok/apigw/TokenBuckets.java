@@ -0,0 +1,83 @@
+package com.kapok.apigw;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory token buckets, one per key. Each bucket is a single {@link AtomicLong} holding
+ * the time at which it would be full again (the GCRA form of a token bucket), so taking a
+ * token is one compare-and-set with no lock, and refilling needs no timer. Buckets untouched
+ * for {@code idleTimeout} are evicted; by then they are full, so evicting one changes
+ * nothing but memory.
+ */
+public class TokenBuckets {
+
+    private final Cache<String, Bucket> buckets;
+    private final Ticker ticker;
+
+    public TokenBuckets(long maximumBuckets, Duration idleTimeout) {
+        this(maximumBuckets, idleTimeout, Ticker.systemTicker());
+    }
+
+    TokenBuckets(long maximumBuckets, Duration idleTimeout, Ticker ticker) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumBuckets)
+                .expireAfterAccess(idleTimeout)
+                .ticker(ticker)
+                .build();
+        this.ticker = ticker;
+    }
+
+    /**
+     * Takes a token from the bucket of {@code key}, refilled at {@code ratePerSecond} up to
+     * {@code burstCapacity} tokens.
+     *
+     * @return the tokens left, or -1 if the bucket is empty
+     */
+    public long tryAcquire(String key, double ratePerSecond, long burstCapacity) {
+        long emissionNanos = emissionNanos(ratePerSecond);
+        long toleranceNanos = emissionNanos * burstCapacity;
+        Bucket bucket = buckets.get(key, k -> new Bucket());
+        long now = ticker.read();
+        while (true) {
+            long fullAt = bucket.fullAt.get();
+            long next = Math.max(fullAt, now) + emissionNanos;
+            if (next - now > toleranceNanos) {
+                return -1;
+            }
+            if (bucket.fullAt.compareAndSet(fullAt, next)) {
+                return (toleranceNanos - (next - now)) / emissionNanos;
+            }
+        }
+    }
+
+    /**
+     * Puts back a token taken from the bucket of {@code key} by {@link #tryAcquire} with the
+     * same {@code ratePerSecond}, for a request that was denied further on.
+     */
+    public void refund(String key, double ratePerSecond) {
+        Bucket bucket = buckets.getIfPresent(key);
+        if (bucket == null) {
+            return;
+        }
+        bucket.fullAt.addAndGet(-emissionNanos(ratePerSecond));
+    }
+
+    public long size() {
+        return buckets.estimatedSize();
+    }
+
+    private static long emissionNanos(double ratePerSecond) {
+        return Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+    }
+
+    private static final class Bucket {
+
+        private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+    }
+}
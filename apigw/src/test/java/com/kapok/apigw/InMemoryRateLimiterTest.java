@@ -0,0 +1,82 @@
+package com.kapok.apigw;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryRateLimiterTest {
+
+    private static final String ROUTE = "customer";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private InMemoryRateLimiter underTest;
+
+    @BeforeEach
+    void setUp() {
+        // rates low enough that nothing refills during a test
+        underTest = new InMemoryRateLimiter(
+                new ConfigurationService(null, () -> null, () -> null),
+                new StaticListableBeanFactory().getBeanProvider(DiscoveryClient.class),
+                meterRegistry, "apigw",
+                0.001, 2, 0.001, 2, 100, Duration.ofMinutes(10), false, Duration.ofSeconds(30));
+    }
+
+    @Test
+    void itShouldDenyClientOverItsLimit() {
+        // given
+        underTest.getConfig().put(ROUTE, new InMemoryRateLimiter.Config().setReplenishRate(0.001).setBurstCapacity(1));
+        isAllowed("a");
+
+        // when
+        Response response = isAllowed("a");
+
+        // then
+        assertThat(response.isAllowed()).isFalse();
+        assertThat(response.getHeaders()).containsEntry("X-RateLimit-Remaining", "0");
+        assertThat(isAllowed("b").isAllowed()).isTrue();
+    }
+
+    @Test
+    void itShouldDenyEveryClientOnceRouteIsExhausted() {
+        // given
+        isAllowed("a");
+        isAllowed("b");
+
+        // when
+        Response response = isAllowed("c");
+
+        // then
+        assertThat(response.isAllowed()).isFalse();
+        assertThat(meterRegistry.get("gateway.rate-limit.requests").tag("result", "denied")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldGiveClientTokenBackWhenRouteDenies() {
+        // given
+        isAllowed("a");
+        isAllowed("b");
+        assertThat(isAllowed("a").isAllowed()).isFalse();
+
+        // when
+        // the route bucket off, only the client's own is left
+        underTest.getConfig().put(ROUTE, new InMemoryRateLimiter.Config().setReplenishRate(0.001).setBurstCapacity(2));
+        Response response = isAllowed("a");
+
+        // then
+        assertThat(response.isAllowed()).isTrue();
+        assertThat(response.getHeaders()).containsEntry("X-RateLimit-Remaining", "0");
+    }
+
+    private Response isAllowed(String id) {
+        return underTest.isAllowed(ROUTE, id).block();
+    }
+}
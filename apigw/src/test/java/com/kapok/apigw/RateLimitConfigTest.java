@@ -0,0 +1,76 @@
+package com.kapok.apigw;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.net.InetSocketAddress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitConfigTest {
+
+    private final RateLimitConfig underTest = new RateLimitConfig();
+
+    @Test
+    void itShouldKeyByApiKey() {
+        // given
+        KeyResolver keyResolver = underTest.clientKeyResolver(1);
+
+        // when
+        String key = keyResolver.resolve(exchange(request()
+                .header(RateLimitConfig.API_KEY_HEADER, "secret")
+                .header("X-Forwarded-For", "203.0.113.7"))).block();
+
+        // then
+        assertThat(key).isEqualTo("key:secret");
+    }
+
+    @Test
+    void itShouldIgnoreForwardedForWithoutTrustedProxies() {
+        // given
+        KeyResolver keyResolver = underTest.clientKeyResolver(0);
+
+        // when
+        String key = keyResolver.resolve(exchange(request().header("X-Forwarded-For", "203.0.113.7"))).block();
+
+        // then
+        assertThat(key).isEqualTo("ip:10.0.0.1");
+    }
+
+    @Test
+    void itShouldKeyByAddressTheTrustedProxyForwarded() {
+        // given
+        KeyResolver keyResolver = underTest.clientKeyResolver(1);
+
+        // when
+        // the client prepended a spoofed address, the proxy appended the real one
+        String key = keyResolver.resolve(exchange(request()
+                .header("X-Forwarded-For", "198.51.100.1, 203.0.113.7"))).block();
+
+        // then
+        assertThat(key).isEqualTo("ip:203.0.113.7");
+    }
+
+    @Test
+    void itShouldFallBackToRemoteAddressWithoutForwardedFor() {
+        // given
+        KeyResolver keyResolver = underTest.clientKeyResolver(1);
+
+        // when
+        String key = keyResolver.resolve(exchange(request())).block();
+
+        // then
+        assertThat(key).isEqualTo("ip:10.0.0.1");
+    }
+
+    private static MockServerHttpRequest.BaseBuilder<?> request() {
+        return MockServerHttpRequest.get("/api/v1/customers")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 51234));
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        return MockServerWebExchange.from(request);
+    }
+}
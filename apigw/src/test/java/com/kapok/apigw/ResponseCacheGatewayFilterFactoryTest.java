@@ -0,0 +1,197 @@
+package com.kapok.apigw;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheGatewayFilterFactoryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final CountDownLatch upstreamCalled = new CountDownLatch(1);
+    private Duration upstreamDelay = Duration.ZERO;
+    private Consumer<HttpHeaders> upstreamHeaders = headers -> {
+    };
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        GatewayFilter filter = new ResponseCacheGatewayFilterFactory(
+                meterRegistry, 100, Duration.ofMinutes(1), DataSize.ofKilobytes(1), Duration.ofSeconds(5))
+                .apply(new Object());
+        GatewayFilterChain upstream = exchange -> {
+            int call = upstreamCalls.incrementAndGet();
+            upstreamCalled.countDown();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            upstreamHeaders.accept(response.getHeaders());
+            byte[] body = ("response " + call).getBytes(StandardCharsets.UTF_8);
+            return Mono.delay(upstreamDelay)
+                    .then(response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(body))));
+        };
+        webTestClient = WebTestClient.bindToWebHandler(exchange -> filter.filter(exchange, upstream))
+                .configureClient()
+                .responseTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @Test
+    void itShouldAnswerRepeatedGetFromCache() {
+        // given
+        get().expectBody(String.class).isEqualTo("response 1");
+
+        // when
+        // then
+        get().expectHeader().exists(HttpHeaders.AGE)
+                .expectBody(String.class).isEqualTo("response 1");
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldKeyByAcceptHeader() {
+        // given
+        get().expectBody(String.class).isEqualTo("response 1");
+
+        // when
+        // then
+        webTestClient.get().uri("/api/v1/customers").header(HttpHeaders.ACCEPT, "application/x-ndjson")
+                .exchange()
+                .expectBody(String.class).isEqualTo("response 2");
+    }
+
+    @Test
+    void itShouldCoalesceConcurrentIdenticalRequests() throws Exception {
+        // given
+        upstreamDelay = Duration.ofMillis(500);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> body(get()));
+        assertThat(upstreamCalled.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // when
+        String second = body(get());
+
+        // then
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("response 1");
+        assertThat(second).isEqualTo("response 1");
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.response.coalesced").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldNotJoinInFlightLoadForNoCacheRequest() throws Exception {
+        // given
+        upstreamDelay = Duration.ofMillis(500);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> body(get()));
+        assertThat(upstreamCalled.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // when
+        String second = body(webTestClient.get().uri("/api/v1/customers")
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .exchange());
+
+        // then
+        assertThat(second).isEqualTo("response 2");
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("response 1");
+        assertThat(meterRegistry.get("gateway.response.coalesced").counter().count()).isZero();
+    }
+
+    @Test
+    void itShouldRefreshCacheWithNoCacheResponse() {
+        // given
+        get().expectBody(String.class).isEqualTo("response 1");
+
+        // when
+        webTestClient.get().uri("/api/v1/customers").header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .exchange()
+                .expectBody(String.class).isEqualTo("response 2");
+
+        // then
+        get().expectBody(String.class).isEqualTo("response 2");
+    }
+
+    @Test
+    void itShouldNotStoreForNoStoreRequest() {
+        // given
+        webTestClient.get().uri("/api/v1/customers").header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .exchange()
+                .expectBody(String.class).isEqualTo("response 1");
+
+        // when
+        // then
+        get().expectBody(String.class).isEqualTo("response 2");
+    }
+
+    @Test
+    void itShouldNotCacheNoStoreResponse() {
+        // given
+        upstreamHeaders = headers -> headers.setCacheControl("no-store");
+
+        // when
+        get().expectBody(String.class).isEqualTo("response 1");
+
+        // then
+        get().expectBody(String.class).isEqualTo("response 2");
+    }
+
+    @Test
+    void itShouldNotCachePrivateResponse() {
+        // given
+        upstreamHeaders = headers -> headers.setCacheControl("private, max-age=60");
+
+        // when
+        get().expectBody(String.class).isEqualTo("response 1");
+
+        // then
+        get().expectBody(String.class).isEqualTo("response 2");
+    }
+
+    @Test
+    void itShouldNotCacheResponseSettingCookie() {
+        // given
+        upstreamHeaders = headers -> headers.add(HttpHeaders.SET_COOKIE, "session=kapok");
+
+        // when
+        get().expectBody(String.class).isEqualTo("response 1");
+
+        // then
+        get().expectBody(String.class).isEqualTo("response 2");
+    }
+
+    @Test
+    void itShouldNotCacheAuthorizedRequest() {
+        // given
+        webTestClient.get().uri("/api/v1/customers").header(HttpHeaders.AUTHORIZATION, "Bearer kapok")
+                .exchange()
+                .expectBody(String.class).isEqualTo("response 1");
+
+        // when
+        // then
+        get().expectBody(String.class).isEqualTo("response 2");
+    }
+
+    private WebTestClient.ResponseSpec get() {
+        return webTestClient.get().uri("/api/v1/customers").exchange().expectStatus().isOk();
+    }
+
+    private static String body(WebTestClient.ResponseSpec response) {
+        return response.expectBody(String.class).returnResult().getResponseBody();
+    }
+}
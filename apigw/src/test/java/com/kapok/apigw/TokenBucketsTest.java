@@ -0,0 +1,116 @@
+package com.kapok.apigw;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketsTest {
+
+    // 10 tokens per second, one every 100ms
+    private static final double RATE = 10;
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+    private TokenBuckets underTest;
+
+    @BeforeEach
+    void setUp() {
+        Ticker ticker = nanos::get;
+        underTest = new TokenBuckets(100, Duration.ofMinutes(10), ticker);
+    }
+
+    @Test
+    void itShouldAllowBurstCapacityThenDeny() {
+        // given
+        // when
+        // then
+        assertThat(underTest.tryAcquire("client", RATE, 3)).isEqualTo(2);
+        assertThat(underTest.tryAcquire("client", RATE, 3)).isEqualTo(1);
+        assertThat(underTest.tryAcquire("client", RATE, 3)).isEqualTo(0);
+        assertThat(underTest.tryAcquire("client", RATE, 3)).isEqualTo(-1);
+    }
+
+    @Test
+    void itShouldNotSpendTokensWhenDenied() {
+        // given
+        drain("client", 3);
+        underTest.tryAcquire("client", RATE, 3);
+
+        // when
+        advance(100);
+
+        // then
+        assertThat(underTest.tryAcquire("client", RATE, 3)).isEqualTo(0);
+        assertThat(underTest.tryAcquire("client", RATE, 3)).isEqualTo(-1);
+    }
+
+    @Test
+    void itShouldRefillAtRate() {
+        // given
+        drain("client", 3);
+
+        // when
+        advance(99);
+        long early = underTest.tryAcquire("client", RATE, 3);
+        advance(101);
+        long refilled = underTest.tryAcquire("client", RATE, 3);
+
+        // then
+        assertThat(early).isEqualTo(-1);
+        // 200ms refill two tokens, one of them taken
+        assertThat(refilled).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldRefillNoFurtherThanBurstCapacity() {
+        // given
+        drain("client", 3);
+
+        // when
+        advance(10_000);
+
+        // then
+        assertThat(underTest.tryAcquire("client", RATE, 3)).isEqualTo(2);
+    }
+
+    @Test
+    void itShouldKeepBucketsPerKey() {
+        // given
+        drain("client", 3);
+
+        // when
+        long other = underTest.tryAcquire("other", RATE, 3);
+
+        // then
+        assertThat(other).isEqualTo(2);
+        assertThat(underTest.tryAcquire("client", RATE, 3)).isEqualTo(-1);
+    }
+
+    @Test
+    void itShouldPutBackRefundedToken() {
+        // given
+        drain("client", 3);
+
+        // when
+        underTest.refund("client", RATE);
+
+        // then
+        assertThat(underTest.tryAcquire("client", RATE, 3)).isEqualTo(0);
+        assertThat(underTest.tryAcquire("client", RATE, 3)).isEqualTo(-1);
+    }
+
+    private void drain(String key, long burstCapacity) {
+        for (long i = 0; i < burstCapacity; i++) {
+            assertThat(underTest.tryAcquire(key, RATE, burstCapacity)).isGreaterThanOrEqualTo(0);
+        }
+    }
+
+    private void advance(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,78 @@
+package com.kapok.amqp;
+
+import com.kapok.clients.notification.NotificationRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of a welcome {@link NotificationRequest} with the JSON converter
+ * against {@link RecordMessageConverter}; the encoded body size is printed at the start
+ * of each trial. Run {@link #main} and add {@code -prof gc} for allocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageConverterBenchmark {
+
+    @Param({"json", "binary"})
+    public String encoding;
+
+    private MessageConverter converter;
+    private NotificationRequest request;
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        converter = encoding.equals("json")
+                ? new Jackson2JsonMessageConverter()
+                : new RecordMessageConverter("com.kapok.clients");
+        String email = "kapoktest@gmail.com";
+        request = new NotificationRequest(
+                UUID.randomUUID(), email, String.format("Hi %s, welcome to kapok ...", email));
+        message = converter.toMessage(request, new MessageProperties());
+        // the consumer side infers the type from the listener signature
+        message.getMessageProperties().setInferredArgumentType(NotificationRequest.class);
+        if (!request.equals(converter.fromMessage(message))) {
+            throw new IllegalStateException(encoding + " does not round-trip " + request);
+        }
+        System.out.printf("%s body: %d bytes%n", encoding, message.getBody().length);
+    }
+
+    @Benchmark
+    public Message encode() {
+        return converter.toMessage(request, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object decode() {
+        return converter.fromMessage(message);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MessageConverterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
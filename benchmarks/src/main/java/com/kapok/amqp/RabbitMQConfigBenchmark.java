@@ -0,0 +1,74 @@
+package com.kapok.amqp;
+
+import com.kapok.clients.notification.NotificationRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The converter {@link RabbitMQConfig} puts on the templates and listener containers,
+ * content type dispatch included, for each outbound content type. {@link
+ * MessageConverterBenchmark} measures the bare encodings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RabbitMQConfigBenchmark {
+
+    @Param({MessageProperties.CONTENT_TYPE_JSON, RecordMessageConverter.CONTENT_TYPE})
+    public String outboundContentType;
+
+    private MessageConverter converter;
+    private NotificationRequest request;
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        // the connection factory is only handed to the templates and containers
+        converter = new RabbitMQConfig(null, outboundContentType).messageConverter();
+        String email = "kapoktest@gmail.com";
+        request = new NotificationRequest(
+                UUID.randomUUID(), email, String.format("Hi %s, welcome to kapok ...", email));
+        message = converter.toMessage(request, new MessageProperties());
+        message.getMessageProperties().setInferredArgumentType(NotificationRequest.class);
+        if (!request.equals(converter.fromMessage(message))) {
+            throw new IllegalStateException(outboundContentType + " does not round-trip " + request);
+        }
+    }
+
+    @Benchmark
+    public Message encode() {
+        return converter.toMessage(request, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object decode() {
+        return converter.fromMessage(message);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RabbitMQConfigBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,72 @@
+package com.kapok.apigw;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of {@link TokenBuckets#tryAcquire} with 8 threads admitting requests at
+ * once. {@code hotKey} sends every request to one bucket, the worst case for the
+ * compare-and-set; {@code spreadKeys} picks one of {@code keys} clients per request.
+ * {@code allowed} has a rate no thread can exhaust, so every call takes a token;
+ * {@code denied} has an exhausted bucket, the path a flooding client takes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class TokenBucketsBenchmark {
+
+    @Param({"allowed", "denied"})
+    public String outcome;
+
+    @Param({"10000"})
+    public int keys;
+
+    private TokenBuckets tokenBuckets;
+    private String[] keyNames;
+    private double ratePerSecond;
+
+    @Setup
+    public void setUp() {
+        tokenBuckets = new TokenBuckets(100_000, Duration.ofMinutes(10));
+        keyNames = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            keyNames[i] = "customer|ip:10.0." + (i >> 8) + '.' + (i & 0xFF);
+        }
+        ratePerSecond = outcome.equals("allowed") ? 1e9 : 1e-3;
+    }
+
+    @Benchmark
+    public long hotKey() {
+        return tokenBuckets.tryAcquire(keyNames[0], ratePerSecond, 100);
+    }
+
+    @Benchmark
+    public long spreadKeys() {
+        return tokenBuckets.tryAcquire(keyNames[ThreadLocalRandom.current().nextInt(keys)], ratePerSecond, 100);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TokenBucketsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
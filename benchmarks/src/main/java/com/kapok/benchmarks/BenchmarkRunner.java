@@ -0,0 +1,74 @@
+package com.kapok.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Main class of {@code benchmarks.jar}. Takes the usual JMH command line, so {@code java
+ * -jar benchmarks/target/benchmarks.jar CustomerService -prof gc} works as expected, but
+ * unless {@code -rf}/{@code -rff} say otherwise the results are written as JSON to {@code
+ * benchmarks/results/<commit>-<time>.json}, ready for {@link CompareResults}. The directory
+ * is found from {@code benchmarks/target}, where the jar or the IDE's classes are, so it
+ * does not depend on the directory the runner is started from.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (commandLine.getResultFormat().hasValue() || commandLine.getResult().hasValue()) {
+            new Runner(options.build()).run();
+            return;
+        }
+        Path results = resultsDirectory();
+        Files.createDirectories(results);
+        Path result = results.resolve(commit(results.getParent()) + "-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        new Runner(options
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build()).run();
+        System.out.println("results written to " + result);
+    }
+
+    /**
+     * {@code benchmarks/results}, next to the {@code target} directory holding {@code
+     * benchmarks.jar} or {@code classes}.
+     */
+    private static Path resultsDirectory() throws URISyntaxException {
+        Path location = Path.of(BenchmarkRunner.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        return location.toAbsolutePath().getParent().getParent().resolve("results");
+    }
+
+    private static String commit(Path directory) {
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD")
+                    .directory(directory.toFile())
+                    .redirectErrorStream(true)
+                    .start();
+            String commit;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(git.getInputStream(), StandardCharsets.UTF_8))) {
+                commit = reader.readLine();
+            }
+            return git.waitFor() == 0 && commit != null ? commit.trim() : "unknown";
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.kapok.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Lines up two JMH JSON result files, typically from {@link BenchmarkRunner} on two
+ * commits, by benchmark and parameters, and prints both scores with the change:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.kapok.benchmarks.CompareResults \
+ *     benchmarks/results/&lt;baseline&gt;.json benchmarks/results/&lt;current&gt;.json
+ * </pre>
+ * Lower is better for the time modes, higher for throughput; the error column is the
+ * current run's 99.9% confidence half-width, so a change within it is noise.
+ */
+public final class CompareResults {
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: CompareResults <baseline.json> <current.json>");
+            System.exit(2);
+        }
+        Map<String, JsonNode> baseline = read(Path.of(args[0]));
+        Map<String, JsonNode> current = read(Path.of(args[1]));
+
+        System.out.printf("%-100s %14s %14s %12s %9s%n", "benchmark", "baseline", "current", "error", "change");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode metric = entry.getValue().path("primaryMetric");
+            double score = metric.path("score").asDouble();
+            String unit = metric.path("scoreUnit").asText();
+            JsonNode before = baseline.remove(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-100s %14s %14.3f %12.3f %9s %s%n",
+                        entry.getKey(), "-", score, metric.path("scoreError").asDouble(), "new", unit);
+                continue;
+            }
+            double baselineScore = before.path("primaryMetric").path("score").asDouble();
+            System.out.printf("%-100s %14.3f %14.3f %12.3f %+8.1f%% %s%n",
+                    entry.getKey(), baselineScore, score, metric.path("scoreError").asDouble(),
+                    100 * (score - baselineScore) / baselineScore, unit);
+        }
+        for (String removed : baseline.keySet()) {
+            System.out.printf("%-100s %14s %14s %12s %9s%n", removed, "", "-", "", "gone");
+        }
+    }
+
+    /**
+     * Results keyed by benchmark, mode and parameters, in the order of the file.
+     */
+    private static Map<String, JsonNode> read(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText())
+                    .append(" ").append(result.path("mode").asText());
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = result.path("params").fields();
+            fields.forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            params.forEach((name, value) -> key.append(" ").append(name).append("=").append(value));
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,37 @@
+package com.kapok.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * In-memory stand-ins for the interfaces a benchmarked path calls out through, mostly
+ * Spring Data repositories, whose dozens of methods the path never touches.
+ */
+public final class Stubs {
+
+    private Stubs() {
+    }
+
+    /**
+     * An implementation of {@code type} answering the methods named in {@code answers},
+     * whatever the overload, with the call's arguments. Any other method throws.
+     */
+    public static <T> T of(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        Object stub = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + " stub";
+                };
+            }
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName() + " is not stubbed");
+            }
+            return answer.apply(args);
+        });
+        return type.cast(stub);
+    }
+}
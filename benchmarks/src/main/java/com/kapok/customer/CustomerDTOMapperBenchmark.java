@@ -0,0 +1,73 @@
+package com.kapok.customer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * {@link CustomerDTOMapper} on one customer and on a page of customers collected the way
+ * {@link CustomerService#getCustomers} does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerDTOMapperBenchmark {
+
+    @Param({"100", "1000"})
+    public int pageSize;
+
+    private final CustomerDTOMapper mapper = new CustomerDTOMapper();
+    private Customer customer;
+    private List<Customer> page;
+
+    @Setup
+    public void setUp() {
+        page = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            page.add(Customer.builder()
+                    .id(UUID.randomUUID())
+                    .firstName("kapok")
+                    .lastName("code")
+                    .phoneNumber(100_000 + i)
+                    .email("kapoktest" + i + "@gmail.com")
+                    .build());
+        }
+        customer = page.get(0);
+    }
+
+    @Benchmark
+    public CustomerDTO map() {
+        return mapper.apply(customer);
+    }
+
+    @Benchmark
+    public List<CustomerDTO> mapPage() {
+        return page.stream().map(mapper).collect(Collectors.toList());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CustomerDTOMapperBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,155 @@
+package com.kapok.customer;
+
+import com.kapok.benchmarks.Stubs;
+import com.kapok.clients.fraud.FraudCheckGuard;
+import com.kapok.clients.fraud.FraudCheckRequest;
+import com.kapok.clients.fraud.FraudCheckResponse;
+import com.kapok.clients.fraud.FraudClient;
+import com.kapok.clients.fraud.FraudVerdictCache;
+import com.kapok.customer.outbox.NotificationOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.sleuth.CurrentTraceContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link CustomerService#registerCustomer} with the production caches, fraud guard and
+ * registration pool, in front of stubs answering like an empty database and a fraud
+ * service that clears everyone instantly. The numbers are the service's own overhead:
+ * the overlapped checks with their pool handoff, the cache lookups and the outbox write.
+ * <ul>
+ *     <li>{@code registerNew}, a new phone number per call, so both checks run;</li>
+ *     <li>{@code registerDuplicate}, the same request again, answered from the phone
+ *     number cache.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerServiceBenchmark {
+
+    private final AtomicInteger phoneNumbers = new AtomicInteger(100_000_000);
+    private CustomerRegistrationChecks customerRegistrationChecks;
+    private CustomerService customerService;
+    private CustomerRegistrationRequest duplicate;
+
+    @Setup
+    public void setUp() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CustomerRepository customerRepository = Stubs.of(CustomerRepository.class, Map.of(
+                "findCustomerByPhoneNumber", args -> Optional.empty(),
+                "save", args -> args[0]));
+        NotificationOutboxRepository notificationOutboxRepository = Stubs.of(NotificationOutboxRepository.class,
+                Map.of("save", args -> args[0]));
+        FraudClient fraudClient = new FraudClient() {
+            @Override
+            public FraudCheckResponse isFraudster(UUID customerId) {
+                return new FraudCheckResponse(false);
+            }
+
+            @Override
+            public FraudCheckResponse isFraudster(FraudCheckRequest fraudCheckRequest) {
+                return new FraudCheckResponse(false);
+            }
+
+            @Override
+            public Map<UUID, Boolean> areFraudsters(List<FraudCheckRequest> fraudCheckRequests) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        PlatformTransactionManager transactionManager = new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+
+        // the defaults of the customer service configuration
+        CustomerPhoneNumberCache customerPhoneNumberCache = new CustomerPhoneNumberCache(
+                customerRepository, meterRegistry, 100_000, Duration.ofMinutes(10));
+        FraudCheckGuard fraudCheckGuard = new FraudCheckGuard(
+                fraudClient, meterRegistry, 20, 4, 200, Duration.ofMillis(500), 0.9,
+                0.5, 50, 20, Duration.ofSeconds(10), 5, "fail-closed");
+        FraudVerdictCache fraudVerdictCache = new FraudVerdictCache(
+                fraudCheckGuard, meterRegistry, 100_000, Duration.ofMinutes(1), Duration.ofMinutes(10));
+        customerRegistrationChecks = new CustomerRegistrationChecks(
+                customerPhoneNumberCache, fraudVerdictCache,
+                new StaticListableBeanFactory().getBeanProvider(CurrentTraceContext.class), meterRegistry,
+                16, 256, Duration.ofSeconds(2), Duration.ofSeconds(3));
+        customerService = new CustomerService(
+                customerRepository,
+                customerPhoneNumberCache,
+                fraudVerdictCache,
+                customerRegistrationChecks,
+                notificationOutboxRepository,
+                new TransactionTemplate(transactionManager),
+                new CustomerDTOMapper());
+
+        duplicate = request(phoneNumbers.getAndIncrement());
+        customerService.registerCustomer(duplicate);
+    }
+
+    @TearDown
+    public void tearDown() {
+        customerRegistrationChecks.stop();
+    }
+
+    @Benchmark
+    public void registerNew() {
+        customerService.registerCustomer(request(phoneNumbers.getAndIncrement()));
+    }
+
+    @Benchmark
+    public void registerDuplicate() {
+        customerService.registerCustomer(duplicate);
+    }
+
+    private static CustomerRegistrationRequest request(int phoneNumber) {
+        return new CustomerRegistrationRequest(
+                UUID.randomUUID(), "kapok", "code", phoneNumber, "kapoktest" + phoneNumber + "@gmail.com");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CustomerServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
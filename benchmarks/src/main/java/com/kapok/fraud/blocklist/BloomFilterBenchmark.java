@@ -0,0 +1,111 @@
+package com.kapok.fraud.blocklist;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probe cost, memory per entry and observed false-positive rate of the blocklist filter.
+ * Every probe is a random customer id that was never added, so each hit is a false
+ * positive; the {@code probes} and {@code falsePositives} secondary results give the
+ * rate and the setup prints the bits spent per entry. The {@code mapped*} variant probes
+ * the same filter through a memory-mapped {@link BlocklistSnapshot}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BloomFilterBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int entries;
+
+    @Param({"0.01", "0.001"})
+    private double falsePositiveRate;
+
+    private BloomFilter filter;
+    private MappedBloomFilter mapped;
+
+    @Setup
+    public void setUp() throws IOException {
+        filter = BloomFilter.create(entries, falsePositiveRate);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < entries; i++) {
+            filter.put(BlocklistKeys.hash(new UUID(random.nextLong(), random.nextLong())));
+        }
+        System.out.printf("%n%d entries, %d hash functions, %.2f bits (%.2f bytes) per entry%n",
+                entries, filter.hashFunctions(),
+                (double) filter.bitSize() / entries, filter.bitSize() / 8.0 / entries);
+
+        Path snapshot = Files.createTempFile("blocklist", ".snapshot");
+        snapshot.toFile().deleteOnExit();
+        BlocklistSnapshot.write(filter, snapshot, System.currentTimeMillis());
+        long start = System.nanoTime();
+        mapped = BlocklistSnapshot.map(snapshot);
+        System.out.printf("mapped %d byte snapshot in %d us%n",
+                Files.size(snapshot), TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Probes {
+        public long probes;
+        public long falsePositives;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            probes = 0;
+            falsePositives = 0;
+        }
+    }
+
+    @Benchmark
+    public boolean mightContainAbsentKey(Probes counters) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean hit = filter.mightContain(BlocklistKeys.hash(new UUID(random.nextLong(), random.nextLong())));
+        counters.probes++;
+        if (hit) {
+            counters.falsePositives++;
+        }
+        return hit;
+    }
+
+    @Benchmark
+    public boolean mappedMightContainAbsentKey(Probes counters) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean hit = mapped.mightContain(BlocklistKeys.hash(new UUID(random.nextLong(), random.nextLong())));
+        counters.probes++;
+        if (hit) {
+            counters.falsePositives++;
+        }
+        return hit;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BloomFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
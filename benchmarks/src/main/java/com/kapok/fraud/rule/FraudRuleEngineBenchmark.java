@@ -0,0 +1,120 @@
+package com.kapok.fraud.rule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one rule evaluation with every rule enabled: 10k blocked domains, 1k phone
+ * ranges and constant activity signals, so the numbers show the evaluator itself and
+ * not the signal source. Run {@link #main} and add {@code -prof gc} to confirm the
+ * evaluation does not allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FraudRuleEngineBenchmark {
+
+    private FraudRuleEngine engine;
+    private BlockedEmailDomainRule blockedEmailDomainRule;
+    private PhoneNumberRangeRule phoneNumberRangeRule;
+    private FraudCheckContext clean;
+    private FraudCheckContext blockedDomain;
+    private FraudCheckContext blockedPhoneNumber;
+
+    @Setup
+    public void setUp() {
+        List<String> domains = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            domains.add("blocked-" + i + ".example.com");
+        }
+        List<FraudRuleProperties.PhoneNumberRange> ranges = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            FraudRuleProperties.PhoneNumberRange range = new FraudRuleProperties.PhoneNumberRange();
+            range.setFrom(i * 10_000);
+            range.setTo(i * 10_000 + 100);
+            ranges.add(range);
+        }
+        VelocitySignals velocitySignals = new VelocitySignals() {
+            @Override
+            public long customerChecks(FraudCheckContext context) {
+                return 1;
+            }
+
+            @Override
+            public long emailDomainChecks(FraudCheckContext context) {
+                return 1;
+            }
+
+            @Override
+            public long phonePrefixChecks(FraudCheckContext context) {
+                return 1;
+            }
+        };
+        FraudSignals fraudSignals = (customerId, window) -> 0;
+        blockedEmailDomainRule = new BlockedEmailDomainRule(domains);
+        phoneNumberRangeRule = new PhoneNumberRangeRule(ranges);
+        engine = new FraudRuleEngine(List.of(
+                blockedEmailDomainRule,
+                phoneNumberRangeRule,
+                new VelocityRule(velocitySignals, 10, 100, 100),
+                new RecentHistoryRule(fraudSignals, Duration.ofDays(30), 0)
+        ), new SimpleMeterRegistry());
+
+        UUID customerId = UUID.randomUUID();
+        clean = new FraudCheckContext().reset(customerId, "kapoktest@gmail.com", 5_000);
+        blockedDomain = new FraudCheckContext().reset(customerId, "kapok@Blocked-42.example.com", 5_000);
+        blockedPhoneNumber = new FraudCheckContext().reset(customerId, "kapoktest@gmail.com", 420_050);
+    }
+
+    @Benchmark
+    public FraudRule cleanCustomer() {
+        return engine.evaluate(clean);
+    }
+
+    @Benchmark
+    public FraudRule blockedEmailDomain() {
+        return engine.evaluate(blockedDomain);
+    }
+
+    @Benchmark
+    public FraudRule blockedPhoneNumber() {
+        return engine.evaluate(blockedPhoneNumber);
+    }
+
+    @Benchmark
+    public boolean blockedEmailDomainRuleOnly() {
+        return blockedEmailDomainRule.matches(clean);
+    }
+
+    @Benchmark
+    public boolean phoneNumberRangeRuleOnly() {
+        return phoneNumberRangeRule.matches(clean);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FraudRuleEngineBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+package com.kapok.fraud.velocity;
+
+import com.kapok.fraud.rule.FraudCheckContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of recording and querying velocity counts. {@code hotKey*} makes every
+ * thread hit the same customer, email domain and phone prefix, the worst case for the
+ * CAS on a bucket; {@code spreadKeys*} draws from 100k customers the way real traffic
+ * does. {@link #main} runs the suite at 1 to 64 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VelocityCountersBenchmark {
+
+    private static final int CUSTOMERS = 100_000;
+
+    private VelocityCounters counters;
+    private FraudCheckContext[] contexts;
+
+    @Setup
+    public void setUp() {
+        counters = new VelocityCounters(new SimpleMeterRegistry(), Duration.ofMinutes(1), 60, 1_000_000, 4);
+        contexts = new FraudCheckContext[CUSTOMERS];
+        for (int i = 0; i < CUSTOMERS; i++) {
+            contexts[i] = new FraudCheckContext().reset(UUID.randomUUID(), "customer" + i + "@domain" + (i % 100) + ".com", i);
+        }
+        for (FraudCheckContext context : contexts) {
+            counters.record(context);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        counters.stop();
+    }
+
+    @Benchmark
+    public void hotKeyIncrement() {
+        counters.record(contexts[0]);
+    }
+
+    @Benchmark
+    public long hotKeyRead() {
+        return counters.customerChecks(contexts[0]);
+    }
+
+    @Benchmark
+    public void spreadKeysIncrement() {
+        counters.record(contexts[ThreadLocalRandom.current().nextInt(CUSTOMERS)]);
+    }
+
+    @Benchmark
+    public long spreadKeysRead() {
+        FraudCheckContext context = contexts[ThreadLocalRandom.current().nextInt(CUSTOMERS)];
+        return counters.customerChecks(context)
+                + counters.emailDomainChecks(context)
+                + counters.phonePrefixChecks(context);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 2, 4, 8, 16, 32, 64}) {
+            new Runner(new OptionsBuilder()
+                    .include(VelocityCountersBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
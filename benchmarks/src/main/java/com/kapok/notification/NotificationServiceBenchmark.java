@@ -0,0 +1,71 @@
+package com.kapok.notification;
+
+import com.kapok.benchmarks.Stubs;
+import com.kapok.clients.notification.NotificationRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NotificationService#send} and, for the batch listener, {@link
+ * NotificationService#sendAll} with 500 requests, against a repository stub that accepts
+ * every save: the cost of turning requests into {@link Notification}s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationServiceBenchmark {
+
+    private NotificationService notificationService;
+    private NotificationRequest request;
+    private List<NotificationRequest> batch;
+
+    @Setup
+    public void setUp() {
+        notificationService = new NotificationService(Stubs.of(NotificationRepository.class, Map.of(
+                "save", args -> args[0],
+                "saveAll", args -> args[0])));
+        batch = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String email = "kapoktest" + i + "@gmail.com";
+            batch.add(new NotificationRequest(
+                    UUID.randomUUID(), email, String.format("Hi %s, welcome to kapok ...", email)));
+        }
+        request = batch.get(0);
+    }
+
+    @Benchmark
+    public void send() {
+        notificationService.send(request);
+    }
+
+    @Benchmark
+    public void sendAll() {
+        notificationService.sendAll(batch);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(NotificationServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,73 @@
+package com.kapok.clients.eureka;
+
+import com.kapok.registrysnapshot.RegistrySnapshotWriter;
+import com.netflix.discovery.EurekaClient;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.netflix.eureka.EurekaClientAutoConfiguration;
+import org.springframework.cloud.netflix.eureka.EurekaClientConfigBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Registry snapshots for every Eureka client depending on {@code clients}: the fetched
+ * registry is written to {@code clients.eureka.snapshot.file} every
+ * {@code clients.eureka.snapshot.interval}, and read back by
+ * {@link SnapshotBackupRegistry} when the first fetch after a start fails, provided it is
+ * no older than {@code clients.eureka.snapshot.max-age}. Switched off with
+ * {@code clients.eureka.snapshot.enabled=false}, and for clients that do not fetch the
+ * registry.
+ */
+@AutoConfiguration(after = EurekaClientAutoConfiguration.class)
+@ConditionalOnClass(EurekaClient.class)
+@ConditionalOnProperty(name = {
+        "eureka.client.enabled",
+        "eureka.client.fetch-registry",
+        "clients.eureka.snapshot.enabled"
+}, matchIfMissing = true)
+public class EurekaRegistrySnapshotAutoConfiguration {
+
+    private static final String PREFIX = "clients.eureka.snapshot.";
+
+    @Bean
+    static BeanPostProcessor snapshotBackupRegistryPostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof EurekaClientConfigBean config && config.getBackupRegistryImpl() == null) {
+                    SnapshotBackupRegistry.configure(snapshotFile(environment), Binder.get(environment)
+                            .bind(PREFIX + "max-age", Duration.class)
+                            .orElse(Duration.ofDays(1)));
+                    config.setBackupRegistryImpl(SnapshotBackupRegistry.class.getName());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnBean(EurekaClient.class)
+    public RegistrySnapshotWriter eurekaClientRegistrySnapshotWriter(
+            EurekaClient eurekaClient,
+            Environment environment,
+            @Value("${clients.eureka.snapshot.interval:30s}") Duration interval) {
+        return new RegistrySnapshotWriter(eurekaClient::getApplications, snapshotFile(environment), interval);
+    }
+
+    private static Path snapshotFile(Environment environment) {
+        String file = environment.getProperty(PREFIX + "file");
+        return file != null
+                ? Path.of(file)
+                : Path.of(System.getProperty("java.io.tmpdir"),
+                environment.getProperty("spring.application.name", "application") + "-eureka-registry.json.gz");
+    }
+}
@@ -0,0 +1,52 @@
+package com.kapok.clients.eureka;
+
+import com.kapok.registrysnapshot.RegistrySnapshot;
+import com.netflix.discovery.BackupRegistry;
+import com.netflix.discovery.shared.Applications;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Serves the last {@link RegistrySnapshot} this service wrote. Eureka asks its backup
+ * registry only when the first fetch from the server fails, so a service starting while
+ * the server is down or unreachable routes to the instances it last knew about instead of
+ * to none. The regular fetches replace them as soon as the server answers; a delta that
+ * leaves the registry's hash different from the server's triggers a full fetch.
+ * <p>
+ * Eureka creates the backup registry reflectively from
+ * {@code eureka.client.backup-registry-impl}, hence the static configuration, set by
+ * {@link EurekaRegistrySnapshotAutoConfiguration}.
+ */
+@Slf4j
+public class SnapshotBackupRegistry implements BackupRegistry {
+
+    private static volatile Path file;
+    private static volatile Duration maxAge = Duration.ZERO;
+
+    static void configure(Path file, Duration maxAge) {
+        SnapshotBackupRegistry.file = file;
+        SnapshotBackupRegistry.maxAge = maxAge;
+    }
+
+    @Override
+    public Applications fetchRegistry() {
+        Path snapshot = file;
+        if (snapshot == null) {
+            return null;
+        }
+        return RegistrySnapshot.read(snapshot, maxAge)
+                .map(applications -> {
+                    log.info("registry fetch failed, starting from snapshot {} with {} instances",
+                            snapshot, applications.size());
+                    return applications;
+                })
+                .orElse(null);
+    }
+
+    @Override
+    public Applications fetchRegistry(String[] includeRemoteRegions) {
+        return fetchRegistry();
+    }
+}
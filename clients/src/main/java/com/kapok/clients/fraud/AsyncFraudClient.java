@@ -0,0 +1,16 @@
+package com.kapok.clients.fraud;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link FraudClient#isFraudster(FraudCheckRequest)}, for
+ * callers that must not hold a thread while the fraud service answers. Guarded and cached
+ * through {@link FraudVerdictCache#isFraudsterAsync(FraudCheckRequest, AsyncFraudClient)}.
+ * A 4xx answer should fail the future with Spring's {@link
+ * org.springframework.web.client.HttpClientErrorException}, so the guard can tell it from
+ * a failing fraud service.
+ */
+public interface AsyncFraudClient {
+
+    CompletableFuture<FraudCheckResponse> isFraudster(FraudCheckRequest fraudCheckRequest);
+}
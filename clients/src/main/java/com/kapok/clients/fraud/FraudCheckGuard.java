@@ -0,0 +1,231 @@
+package com.kapok.clients.fraud;
+
+import com.kapok.clients.resilience.AdaptiveConcurrencyLimiter;
+import com.kapok.clients.resilience.CallNotPermittedException;
+import com.kapok.clients.resilience.CircuitBreaker;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Protects callers of {@link FraudClient} from a slow or failing fraud service. Calls pass
+ * a {@link CircuitBreaker} and an {@link AdaptiveConcurrencyLimiter}, both configured under
+ * {@code clients.fraud.guard.*}; a rejected call fails at once with a
+ * {@link CallNotPermittedException} instead of holding a thread. Calls through an
+ * {@link AsyncFraudClient} take the same permits and give them back when their future
+ * completes, so blocking and non-blocking callers share one limit and one breaker. Client
+ * errors (4xx) count neither as failures nor as overload, and reach the caller instead of
+ * the fallback.
+ * <p>
+ * What a caller gets instead of a verdict is the {@code fallback} policy:
+ * {@code fail-closed} refuses the registration, {@code fail-open} lets the customer through
+ * as not a fraudster. Fallback verdicts are never cached.
+ * <p>
+ * Published as {@code fraud.client.limit}, {@code fraud.client.inflight},
+ * {@code fraud.client.rejected} tagged with the reason, {@code fraud.client.circuit.state}
+ * (0 closed, 1 half-open, 2 open) and {@code fraud.client.fallback}.
+ */
+@Slf4j
+@Component
+public class FraudCheckGuard {
+
+    private final FraudClient fraudClient;
+    private final CircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final boolean failOpen;
+    private final Counter fallbackCounter;
+
+    public FraudCheckGuard(
+            FraudClient fraudClient,
+            MeterRegistry meterRegistry,
+            @Value("${clients.fraud.guard.limit.initial:20}") int initialLimit,
+            @Value("${clients.fraud.guard.limit.min:4}") int minLimit,
+            @Value("${clients.fraud.guard.limit.max:200}") int maxLimit,
+            @Value("${clients.fraud.guard.limit.latency-threshold:500ms}") Duration latencyThreshold,
+            @Value("${clients.fraud.guard.limit.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${clients.fraud.guard.circuit.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${clients.fraud.guard.circuit.window-size:50}") int windowSize,
+            @Value("${clients.fraud.guard.circuit.minimum-calls:20}") int minimumCalls,
+            @Value("${clients.fraud.guard.circuit.open-duration:10s}") Duration openDuration,
+            @Value("${clients.fraud.guard.circuit.half-open-calls:5}") int halfOpenCalls,
+            @Value("${clients.fraud.guard.fallback:fail-closed}") String fallback) {
+        this.fraudClient = fraudClient;
+        this.limiter = new AdaptiveConcurrencyLimiter(
+                initialLimit, minLimit, maxLimit, latencyThreshold.toNanos(), backoffRatio);
+        this.circuitBreaker = new CircuitBreaker(
+                failureRateThreshold, windowSize, minimumCalls, openDuration.toNanos(), halfOpenCalls);
+        this.failOpen = switch (fallback) {
+            case "fail-open" -> true;
+            case "fail-closed" -> false;
+            default -> throw new IllegalArgumentException(
+                    String.format("unknown fraud check fallback [%s], expected fail-open or fail-closed", fallback));
+        };
+
+        Gauge.builder("fraud.client.limit", limiter, AdaptiveConcurrencyLimiter::limit)
+                .description("concurrent fraud checks currently allowed")
+                .register(meterRegistry);
+        Gauge.builder("fraud.client.inflight", limiter, AdaptiveConcurrencyLimiter::inflight)
+                .register(meterRegistry);
+        FunctionCounter.builder("fraud.client.rejected", limiter, AdaptiveConcurrencyLimiter::rejected)
+                .tag("reason", "limit")
+                .register(meterRegistry);
+        FunctionCounter.builder("fraud.client.rejected", circuitBreaker, CircuitBreaker::rejected)
+                .tag("reason", "circuit-open")
+                .register(meterRegistry);
+        Gauge.builder("fraud.client.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .register(meterRegistry);
+        this.fallbackCounter = Counter.builder("fraud.client.fallback")
+                .tag("policy", fallback)
+                .register(meterRegistry);
+    }
+
+    public FraudCheckResponse isFraudster(FraudCheckRequest fraudCheckRequest) {
+        return call(() -> fraudClient.isFraudster(fraudCheckRequest));
+    }
+
+    public Map<UUID, Boolean> areFraudsters(List<FraudCheckRequest> fraudCheckRequests) {
+        return call(() -> fraudClient.areFraudsters(fraudCheckRequests));
+    }
+
+    /**
+     * {@link #isFraudster(FraudCheckRequest)} through {@code asyncFraudClient}. Never
+     * throws; a rejected or failed call fails the returned future.
+     */
+    public CompletableFuture<FraudCheckResponse> isFraudsterAsync(
+            FraudCheckRequest fraudCheckRequest, AsyncFraudClient asyncFraudClient) {
+        return callAsync(() -> asyncFraudClient.isFraudster(fraudCheckRequest));
+    }
+
+    /**
+     * The verdict to use when checking {@code fraudCheckRequest} failed with {@code failure}.
+     */
+    public FraudCheckResponse fallback(FraudCheckRequest fraudCheckRequest, RuntimeException failure) {
+        fallbackCounter.increment();
+        if (!failOpen) {
+            throw new IllegalStateException("fraud check unavailable", failure);
+        }
+        log.warn("fraud check for customer {} unavailable, letting it through: {}",
+                fraudCheckRequest.customerId(), failure.toString());
+        return new FraudCheckResponse(false);
+    }
+
+    /**
+     * Batch counterpart of {@link #fallback(FraudCheckRequest, RuntimeException)}.
+     */
+    public Map<UUID, Boolean> fallback(List<FraudCheckRequest> fraudCheckRequests, RuntimeException failure) {
+        fallbackCounter.increment(fraudCheckRequests.size());
+        if (!failOpen) {
+            throw new IllegalStateException("fraud check unavailable", failure);
+        }
+        log.warn("fraud check for {} customers unavailable, letting them through: {}",
+                fraudCheckRequests.size(), failure.toString());
+        Map<UUID, Boolean> verdicts = new HashMap<>();
+        fraudCheckRequests.forEach(request -> verdicts.put(request.customerId(), false));
+        return verdicts;
+    }
+
+    private <T> T call(Supplier<T> call) {
+        long permit = acquire();
+        long start = System.nanoTime();
+        // anything not classified below, an Error included, releases the permits as a failure
+        Outcome outcome = Outcome.FAILURE;
+        try {
+            T result = call.get();
+            outcome = Outcome.SUCCESS;
+            return result;
+        } catch (RuntimeException e) {
+            if (isClientError(e)) {
+                outcome = Outcome.IGNORED;
+            }
+            throw e;
+        } finally {
+            release(outcome, permit, start);
+        }
+    }
+
+    private <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> call) {
+        long permit;
+        try {
+            permit = acquire();
+        } catch (CallNotPermittedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long start = System.nanoTime();
+        CompletableFuture<T> result;
+        try {
+            result = call.get();
+        } catch (Throwable e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((response, failure) -> release(outcome(failure), permit, start));
+    }
+
+    /**
+     * Takes a circuit breaker and a limiter permit, returning the circuit breaker's.
+     */
+    private long acquire() {
+        long permit = circuitBreaker.tryAcquire();
+        if (permit == CircuitBreaker.REJECTED) {
+            throw new CallNotPermittedException("fraud service circuit is open");
+        }
+        if (!limiter.tryAcquire()) {
+            circuitBreaker.onIgnored(permit);
+            throw new CallNotPermittedException("fraud service concurrency limit reached");
+        }
+        return permit;
+    }
+
+    private void release(Outcome outcome, long permit, long start) {
+        switch (outcome) {
+            case SUCCESS -> {
+                limiter.onSuccess(System.nanoTime() - start);
+                circuitBreaker.onSuccess(permit);
+            }
+            case IGNORED -> {
+                limiter.onIgnored();
+                circuitBreaker.onIgnored(permit);
+            }
+            case FAILURE -> {
+                limiter.onDropped();
+                circuitBreaker.onFailure(permit);
+            }
+        }
+    }
+
+    private static Outcome outcome(Throwable failure) {
+        if (failure == null) {
+            return Outcome.SUCCESS;
+        }
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+        return cause instanceof RuntimeException e && isClientError(e) ? Outcome.IGNORED : Outcome.FAILURE;
+    }
+
+    /**
+     * A 4xx answer: the request is at fault, not the fraud service, so no fallback applies.
+     */
+    static boolean isClientError(RuntimeException e) {
+        return e instanceof FeignException feignException
+                && feignException.status() >= 400 && feignException.status() < 500
+                || e instanceof HttpClientErrorException;
+    }
+
+    private enum Outcome {
+        SUCCESS, IGNORED, FAILURE
+    }
+}
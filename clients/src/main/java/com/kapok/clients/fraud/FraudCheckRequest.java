@@ -0,0 +1,10 @@
+package com.kapok.clients.fraud;
+
+import java.util.UUID;
+
+public record FraudCheckRequest(
+        UUID customerId,
+        String email,
+        Integer phoneNumber
+) {
+}
@@ -1,14 +1,20 @@
 package com.kapok.clients.fraud;
 
+import com.kapok.clients.http.PooledFeignClientConfiguration;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @FeignClient(
         name = "fraud",
-        url = "${clients.fraud.url}"
+        url = "${clients.fraud.url}",
+        configuration = PooledFeignClientConfiguration.class
 )
 public interface FraudClient {
 
@@ -16,4 +22,10 @@ public interface FraudClient {
     FraudCheckResponse isFraudster(
             @PathVariable("customerId") UUID customerId);
 
+    @PostMapping(path = "api/v1/fraud-check")
+    FraudCheckResponse isFraudster(@RequestBody FraudCheckRequest fraudCheckRequest);
+
+    @PostMapping(path = "api/v1/fraud-check/batch")
+    Map<UUID, Boolean> areFraudsters(@RequestBody List<FraudCheckRequest> fraudCheckRequests);
+
 }
@@ -0,0 +1,266 @@
+package com.kapok.clients.fraud;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Client-side cache of fraud verdicts in front of {@link FraudClient}, keyed by the full
+ * {@link FraudCheckRequest} since the verdict depends on email and phone number as well as
+ * the customer. Clean and fraudulent verdicts expire separately, so a customer flagged
+ * later is not held as clean for long while a known fraudster stays rejected without
+ * another round trip.
+ * <p>
+ * A request neither cached nor being checked registers a future in {@code loads} and is
+ * checked, alone or as part of a batch; overlapping lookups of the same request, single or
+ * batch, wait for that future instead of calling again. The verdict is cached before the
+ * future is removed, so there is no window in which a lookup finds neither. A failed call
+ * or a missing verdict leaves nothing cached. Calls go through {@link FraudCheckGuard},
+ * whose fallback answers for every request the fraud service gave no verdict for, and is
+ * not cached either; a 4xx rejection of the request itself is rethrown rather than covered
+ * by the fallback. {@link #isFraudsterAsync} shares the same verdicts and loads with the
+ * blocking lookups, without holding a thread while a load is in flight.
+ * <p>
+ * Published as the {@code fraud.verdict} cache in the standard {@code cache.*} meters,
+ * plus {@code cache.hit.ratio}.
+ */
+@Component
+public class FraudVerdictCache {
+
+    private final FraudCheckGuard fraudCheckGuard;
+    private final Cache<FraudCheckRequest, FraudCheckResponse> verdicts;
+    private final ConcurrentMap<FraudCheckRequest, CompletableFuture<FraudCheckResponse>> loads =
+            new ConcurrentHashMap<>();
+
+    @Autowired
+    public FraudVerdictCache(
+            FraudCheckGuard fraudCheckGuard,
+            MeterRegistry meterRegistry,
+            @Value("${clients.fraud.verdict-cache.maximum-size:100000}") long maximumSize,
+            @Value("${clients.fraud.verdict-cache.clean-ttl:1m}") Duration cleanTtl,
+            @Value("${clients.fraud.verdict-cache.fraudster-ttl:10m}") Duration fraudsterTtl) {
+        this(fraudCheckGuard, meterRegistry, maximumSize, cleanTtl, fraudsterTtl, Ticker.systemTicker());
+    }
+
+    FraudVerdictCache(FraudCheckGuard fraudCheckGuard, MeterRegistry meterRegistry, long maximumSize,
+                      Duration cleanTtl, Duration fraudsterTtl, Ticker ticker) {
+        this.fraudCheckGuard = fraudCheckGuard;
+        this.verdicts = Caffeine.newBuilder()
+                .ticker(ticker)
+                .maximumSize(maximumSize)
+                .expireAfter(new VerdictExpiry(cleanTtl.toNanos(), fraudsterTtl.toNanos()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verdicts, "fraud.verdict");
+        Gauge.builder("cache.hit.ratio", verdicts, cache -> cache.stats().hitRate())
+                .tag("cache", "fraud.verdict")
+                .description("The ratio of cache requests which were hits")
+                .register(meterRegistry);
+    }
+
+    public FraudCheckResponse isFraudster(FraudCheckRequest fraudCheckRequest) {
+        FraudCheckResponse cached = verdicts.getIfPresent(fraudCheckRequest);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<FraudCheckResponse> load = new CompletableFuture<>();
+        CompletableFuture<FraudCheckResponse> inFlight = loads.putIfAbsent(fraudCheckRequest, load);
+        if (inFlight == null) {
+            complete(fraudCheckRequest, load, call(() -> fraudCheckGuard.isFraudster(fraudCheckRequest)));
+            inFlight = load;
+        }
+        try {
+            FraudCheckResponse response = inFlight.join();
+            return response != null ? response : fraudCheckGuard.fallback(fraudCheckRequest, noVerdict());
+        } catch (CompletionException e) {
+            RuntimeException failure = failure(e);
+            if (FraudCheckGuard.isClientError(failure)) {
+                throw failure;
+            }
+            return fraudCheckGuard.fallback(fraudCheckRequest, failure);
+        }
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #isFraudster(FraudCheckRequest)}: a load it starts
+     * goes through {@code asyncFraudClient}, and it waits on a load already in flight by
+     * chaining onto it. The fallback applies as for the blocking lookup, so under
+     * {@code fail-closed} the future fails with {@code fraud check unavailable}.
+     */
+    public CompletableFuture<FraudCheckResponse> isFraudsterAsync(
+            FraudCheckRequest fraudCheckRequest, AsyncFraudClient asyncFraudClient) {
+        FraudCheckResponse cached = verdicts.getIfPresent(fraudCheckRequest);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<FraudCheckResponse> load = new CompletableFuture<>();
+        CompletableFuture<FraudCheckResponse> inFlight = loads.putIfAbsent(fraudCheckRequest, load);
+        if (inFlight == null) {
+            complete(fraudCheckRequest, load, fraudCheckGuard.isFraudsterAsync(fraudCheckRequest, asyncFraudClient));
+            inFlight = load;
+        }
+        return inFlight.handle((response, e) -> {
+            if (e == null) {
+                return response != null ? response : fraudCheckGuard.fallback(fraudCheckRequest, noVerdict());
+            }
+            RuntimeException failure = failure(e);
+            if (FraudCheckGuard.isClientError(failure)) {
+                throw failure;
+            }
+            return fraudCheckGuard.fallback(fraudCheckRequest, failure);
+        });
+    }
+
+    /**
+     * The fallback verdict of {@link FraudCheckGuard}, for callers that could not even
+     * attempt the check.
+     */
+    public FraudCheckResponse fallback(FraudCheckRequest fraudCheckRequest, RuntimeException failure) {
+        return fraudCheckGuard.fallback(fraudCheckRequest, failure);
+    }
+
+    /**
+     * Batch counterpart of {@link #isFraudster(FraudCheckRequest)}: only the requests
+     * neither cached nor already being checked go to {@link FraudClient#areFraudsters(List)}.
+     * Every request gets a verdict; those the fraud service did not answer, because the
+     * call failed or its reply left them out, get the fallback's.
+     */
+    public Map<UUID, Boolean> areFraudsters(List<FraudCheckRequest> fraudCheckRequests) {
+        Map<UUID, Boolean> result = new HashMap<>();
+        Map<FraudCheckRequest, CompletableFuture<FraudCheckResponse>> pending = new LinkedHashMap<>();
+        Map<FraudCheckRequest, CompletableFuture<FraudCheckResponse>> own = new LinkedHashMap<>();
+        for (FraudCheckRequest fraudCheckRequest : fraudCheckRequests) {
+            FraudCheckResponse cached = verdicts.getIfPresent(fraudCheckRequest);
+            if (cached != null) {
+                result.put(fraudCheckRequest.customerId(), cached.isFraudster());
+            } else if (!pending.containsKey(fraudCheckRequest)) {
+                CompletableFuture<FraudCheckResponse> load = new CompletableFuture<>();
+                CompletableFuture<FraudCheckResponse> inFlight = loads.putIfAbsent(fraudCheckRequest, load);
+                if (inFlight == null) {
+                    own.put(fraudCheckRequest, load);
+                    inFlight = load;
+                }
+                pending.put(fraudCheckRequest, inFlight);
+            }
+        }
+        // our own loads complete before waiting on anyone else's, so overlapping batches cannot deadlock
+        if (!own.isEmpty()) {
+            CompletableFuture<Map<UUID, Boolean>> loaded =
+                    call(() -> fraudCheckGuard.areFraudsters(new ArrayList<>(own.keySet())));
+            own.forEach((request, load) -> complete(request, load, loaded.thenApply(verdicts -> {
+                Boolean isFraudster = verdicts == null ? null : verdicts.get(request.customerId());
+                return isFraudster == null ? null : new FraudCheckResponse(isFraudster);
+            })));
+        }
+
+        List<FraudCheckRequest> unanswered = new ArrayList<>();
+        RuntimeException failure = null;
+        for (Map.Entry<FraudCheckRequest, CompletableFuture<FraudCheckResponse>> entry : pending.entrySet()) {
+            try {
+                FraudCheckResponse response = entry.getValue().join();
+                if (response != null) {
+                    result.put(entry.getKey().customerId(), response.isFraudster());
+                    continue;
+                }
+            } catch (CompletionException e) {
+                RuntimeException cause = failure(e);
+                if (FraudCheckGuard.isClientError(cause)) {
+                    throw cause;
+                }
+                failure = failure == null ? cause : failure;
+            }
+            unanswered.add(entry.getKey());
+        }
+        if (!unanswered.isEmpty()) {
+            result.putAll(fraudCheckGuard.fallback(unanswered, failure != null ? failure : noVerdict()));
+        }
+        return result;
+    }
+
+    /**
+     * Settles the load of {@code request} with {@code outcome}: a verdict is cached first,
+     * then the load leaves {@code loads} and its waiters get the outcome.
+     */
+    private void complete(FraudCheckRequest request, CompletableFuture<FraudCheckResponse> load,
+                          CompletableFuture<FraudCheckResponse> outcome) {
+        outcome.whenComplete((response, failure) -> {
+            if (response != null) {
+                verdicts.put(request, response);
+            }
+            loads.remove(request, load);
+            if (failure != null) {
+                load.completeExceptionally(failure);
+            } else {
+                load.complete(response);
+            }
+        });
+    }
+
+    /**
+     * Runs a blocking call on the calling thread, as a completed future. Whatever it
+     * throws, an {@link Error} included, fails the future, so waiters are always released;
+     * {@link #failure} rethrows an {@code Error} once it is joined.
+     */
+    private static <T> CompletableFuture<T> call(Supplier<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            result.complete(call.get());
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private static RuntimeException failure(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return cause instanceof RuntimeException runtimeException ? runtimeException : new CompletionException(cause);
+    }
+
+    private static RuntimeException noVerdict() {
+        return new IllegalStateException("fraud service returned no verdict");
+    }
+
+    private record VerdictExpiry(long cleanNanos, long fraudsterNanos)
+            implements Expiry<FraudCheckRequest, FraudCheckResponse> {
+
+        @Override
+        public long expireAfterCreate(FraudCheckRequest key, FraudCheckResponse value, long currentTime) {
+            return Boolean.TRUE.equals(value.isFraudster()) ? fraudsterNanos : cleanNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(FraudCheckRequest key, FraudCheckResponse value,
+                                      long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(FraudCheckRequest key, FraudCheckResponse value,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
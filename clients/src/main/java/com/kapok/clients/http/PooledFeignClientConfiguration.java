@@ -0,0 +1,48 @@
+package com.kapok.clients.http;
+
+import feign.Client;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.openfeign.loadbalancer.FeignBlockingLoadBalancerClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Feign client configuration giving every target its own pooled HTTP transport, applied
+ * with {@code @FeignClient(configuration = PooledFeignClientConfiguration.class)}. A slow
+ * target then exhausts its own pool only, and its connections are reused instead of being
+ * opened and closed per call. See {@link PooledHttpTransport} for the settings.
+ * <p>
+ * The same client serves load-balanced targets (an empty {@code clients.<target>.url}, the
+ * instances come from Eureka) and URL-based ones: Feign unwraps the load balancer when the
+ * client has a URL.
+ * <p>
+ * Deliberately not a {@code @Configuration}: it belongs to the Feign client contexts only
+ * and must not be picked up by a component scan of {@code com.kapok.clients}.
+ */
+public class PooledFeignClientConfiguration {
+
+    @Bean
+    public PooledHttpTransport pooledHttpTransport(
+            @Value("${feign.client.name}") String target,
+            Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return PooledHttpTransport.create(target, environment, meterRegistry.getIfAvailable());
+    }
+
+    @Bean
+    public Client feignClient(
+            PooledHttpTransport pooledHttpTransport,
+            ObjectProvider<LoadBalancerClient> loadBalancerClient,
+            ObjectProvider<LoadBalancerClientFactory> loadBalancerClientFactory) {
+        LoadBalancerClient balancer = loadBalancerClient.getIfAvailable();
+        LoadBalancerClientFactory balancerFactory = loadBalancerClientFactory.getIfAvailable();
+        if (balancer == null || balancerFactory == null) {
+            return pooledHttpTransport.client();
+        }
+        return new FeignBlockingLoadBalancerClient(pooledHttpTransport.client(), balancer, balancerFactory);
+    }
+}
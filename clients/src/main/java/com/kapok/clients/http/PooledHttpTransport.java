@@ -0,0 +1,185 @@
+package com.kapok.clients.http;
+
+import feign.Client;
+import feign.httpclient.ApacheHttpClient;
+import feign.okhttp.OkHttpClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpConnectionPoolMetrics;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.GzipCompressingEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HTTP transport of one Feign target. Settings are read from
+ * {@code clients.http.<target>.*}, falling back to {@code clients.http.*}:
+ * <ul>
+ *     <li>{@code max-connections}, connections to the target across its instances, and
+ *     {@code max-connections-per-instance};</li>
+ *     <li>{@code connection-request-timeout}, how long a call waits for a pooled
+ *     connection once all are leased;</li>
+ *     <li>{@code keep-alive}, how long an idle connection is kept for reuse, also the cap on
+ *     a server's {@code Keep-Alive}, and {@code time-to-live}, the age after which a
+ *     connection is retired so new instances receive traffic;</li>
+ *     <li>{@code compress-requests}, gzip request bodies of at least
+ *     {@code compress-requests-min-size} bytes. Off by default, the target must accept
+ *     {@code Content-Encoding: gzip};</li>
+ *     <li>{@code http2}, speak HTTP/2 through OkHttp: negotiated over TLS, prior knowledge
+ *     (h2c) over plain HTTP, which the target enables with {@code server.http2.enabled}.</li>
+ * </ul>
+ * Responses are always requested with {@code Accept-Encoding: gzip} and decompressed.
+ * <p>
+ * The HTTP/1.1 pool is published as {@code httpcomponents.httpclient.pool.*} with leased,
+ * available and pending connections, the HTTP/2 one as {@code okhttp.pool.*} with active
+ * and idle connections, tagged {@code httpclient} and {@code target} respectively.
+ */
+@Slf4j
+public final class PooledHttpTransport implements Closeable {
+
+    private static final String PREFIX = "clients.http.";
+
+    private final Client client;
+    private final Closeable resources;
+
+    private PooledHttpTransport(Client client, Closeable resources) {
+        this.client = client;
+        this.resources = resources;
+    }
+
+    public Client client() {
+        return client;
+    }
+
+    @Override
+    public void close() throws IOException {
+        resources.close();
+    }
+
+    static PooledHttpTransport create(String target, Environment environment, MeterRegistry meterRegistry) {
+        Settings settings = new Settings(target, Binder.get(environment));
+        PooledHttpTransport transport = settings.get("http2", Boolean.class, false)
+                ? http2(target, settings, environment.getProperty("clients." + target + ".url", ""), meterRegistry)
+                : http11(target, settings, meterRegistry);
+        log.info("feign target {} uses {}", target, transport.client.getClass().getSimpleName());
+        return transport;
+    }
+
+    private static PooledHttpTransport http11(String target, Settings settings, MeterRegistry meterRegistry) {
+        long keepAliveMillis = settings.get("keep-alive", Duration.class, Duration.ofSeconds(30)).toMillis();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                settings.get("time-to-live", Duration.class, Duration.ofMinutes(5)).toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(settings.get("max-connections", Integer.class, 200));
+        connectionManager.setDefaultMaxPerRoute(settings.get("max-connections-per-instance", Integer.class, 50));
+
+        var builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout((int) settings
+                                .get("connection-request-timeout", Duration.class, Duration.ofSeconds(1)).toMillis())
+                        .build())
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE
+                            .getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMillis) : keepAliveMillis;
+                })
+                .evictIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS)
+                .evictExpiredConnections()
+                .disableCookieManagement();
+        if (settings.get("compress-requests", Boolean.class, false)) {
+            long minSize = settings.get("compress-requests-min-size", Long.class, 2048L);
+            // ahead of the protocol interceptors, which derive the body headers from the entity
+            builder.addInterceptorFirst((HttpRequestInterceptor) (request, context) -> {
+                if (request instanceof HttpEntityEnclosingRequest enclosing
+                        && !request.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+                    HttpEntity entity = enclosing.getEntity();
+                    if (entity != null && entity.getContentLength() >= minSize) {
+                        enclosing.setEntity(new GzipCompressingEntity(entity));
+                    }
+                }
+            });
+        }
+        CloseableHttpClient httpClient = builder.build();
+        if (meterRegistry != null) {
+            new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, target, Tags.empty())
+                    .bindTo(meterRegistry);
+        }
+        return new PooledHttpTransport(new ApacheHttpClient(httpClient), httpClient);
+    }
+
+    private static PooledHttpTransport http2(String target, Settings settings, String url, MeterRegistry meterRegistry) {
+        // one multiplexed connection per instance carries the concurrent calls
+        int maxIdle = settings.get("max-connections-per-instance", Integer.class, 50);
+        ConnectionPool connectionPool = new ConnectionPool(maxIdle,
+                settings.get("keep-alive", Duration.class, Duration.ofSeconds(30)).toMillis(), TimeUnit.MILLISECONDS);
+        var builder = new okhttp3.OkHttpClient.Builder()
+                .connectionPool(connectionPool)
+                .protocols(url.startsWith("https:")
+                        ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                        : List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+        if (settings.get("compress-requests", Boolean.class, false)) {
+            long minSize = settings.get("compress-requests-min-size", Long.class, 2048L);
+            builder.addInterceptor(chain -> {
+                Request request = chain.request();
+                RequestBody body = request.body();
+                if (body == null || request.header(HttpHeaders.CONTENT_ENCODING) != null
+                        || body.contentLength() < minSize) {
+                    return chain.proceed(request);
+                }
+                Buffer compressed = new Buffer();
+                try (BufferedSink gzip = Okio.buffer(new GzipSink(compressed))) {
+                    body.writeTo(gzip);
+                }
+                return chain.proceed(request.newBuilder()
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .method(request.method(), RequestBody.create(compressed.readByteString(), body.contentType()))
+                        .build());
+            });
+        }
+        okhttp3.OkHttpClient httpClient = builder.build();
+        if (meterRegistry != null) {
+            new OkHttpConnectionPoolMetrics(connectionPool, "okhttp.pool", Tags.of("target", target), maxIdle)
+                    .bindTo(meterRegistry);
+        }
+        return new PooledHttpTransport(new OkHttpClient(httpClient), () -> {
+            httpClient.dispatcher().executorService().shutdown();
+            connectionPool.evictAll();
+        });
+    }
+
+    /**
+     * Binds rather than {@code Environment.getProperty}: the Feign client context has no
+     * conversion for values such as {@code 30s}.
+     */
+    private record Settings(String target, Binder binder) {
+
+        <T> T get(String key, Class<T> type, T defaultValue) {
+            return binder.bind(PREFIX + target + "." + key, type)
+                    .orElseGet(() -> binder.bind(PREFIX + key, type).orElse(defaultValue));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.kapok.clients.loadbalancer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Latency and outstanding requests of each instance of one service, recorded by
+ * {@link LatencyRecordingLifecycle} and read by {@link LatencyAwareLoadBalancer}. Settings
+ * are read from {@code clients.loadbalancer.<service>.*}, falling back to
+ * {@code clients.loadbalancer.*}:
+ * <ul>
+ *     <li>{@code decay-time}, how long it takes the latency average to forget a sample,
+ *     and an idle instance its past latency;</li>
+ *     <li>{@code failure-penalty}, the latency at least recorded for a failed call or a
+ *     5xx response, so an instance failing fast does not attract traffic.</li>
+ * </ul>
+ * The average is a peak EWMA: a sample above it replaces it at once, lower samples pull it
+ * down gradually. An instance that pauses for GC is therefore avoided right away and wins
+ * traffic back over {@code decay-time}.
+ * <p>
+ * Published per instance as {@code loadbalancer.instance.latency} and
+ * {@code loadbalancer.instance.outstanding}, tagged {@code service} and {@code instance}.
+ */
+public final class InstanceLatencies {
+
+    private static final String PREFIX = "clients.loadbalancer.";
+
+    private final String serviceId;
+    private final double decayNanos;
+    private final long failurePenaltyNanos;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Instance> instances = new ConcurrentHashMap<>();
+
+    InstanceLatencies(String serviceId, Duration decayTime, Duration failurePenalty, MeterRegistry meterRegistry) {
+        this.serviceId = serviceId;
+        this.decayNanos = Math.max(1, decayTime.toNanos());
+        this.failurePenaltyNanos = failurePenalty.toNanos();
+        this.meterRegistry = meterRegistry;
+    }
+
+    static InstanceLatencies create(String serviceId, Environment environment, MeterRegistry meterRegistry) {
+        String service = serviceId.toLowerCase(Locale.ROOT);
+        Binder binder = Binder.get(environment);
+        return new InstanceLatencies(serviceId,
+                setting(binder, service, "decay-time", Duration.ofSeconds(10)),
+                setting(binder, service, "failure-penalty", Duration.ofSeconds(1)),
+                meterRegistry);
+    }
+
+    /**
+     * Cost of sending one more request to the instance: its decayed latency times its
+     * outstanding requests plus this one. An instance without a sample costs nothing while
+     * idle and {@code failure-penalty} per request once it has some in flight.
+     */
+    double cost(ServiceInstance serviceInstance, long now) {
+        Instance instance = instances.get(key(serviceInstance));
+        return instance == null ? 0 : instance.cost(now);
+    }
+
+    void onStart(ServiceInstance serviceInstance) {
+        instances.computeIfAbsent(key(serviceInstance), this::register).outstanding.incrementAndGet();
+    }
+
+    void onComplete(ServiceInstance serviceInstance, long latencyNanos, boolean failed, long now) {
+        Instance instance = instances.get(key(serviceInstance));
+        if (instance == null) {
+            return;
+        }
+        instance.outstanding.decrementAndGet();
+        if (latencyNanos >= 0) {
+            instance.observe(failed ? Math.max(latencyNanos, failurePenaltyNanos) : latencyNanos, now);
+        }
+    }
+
+    /**
+     * Forgets instances that left the service.
+     */
+    void retain(List<ServiceInstance> current) {
+        // called per request: without departed instances no set is built
+        int known = 0;
+        for (ServiceInstance serviceInstance : current) {
+            if (instances.containsKey(key(serviceInstance))) {
+                known++;
+            }
+        }
+        if (known == instances.size()) {
+            return;
+        }
+        Set<String> keys = current.stream().map(InstanceLatencies::key).collect(Collectors.toSet());
+        instances.entrySet().removeIf(entry -> {
+            if (keys.contains(entry.getKey())) {
+                return false;
+            }
+            if (meterRegistry != null) {
+                entry.getValue().meters.forEach(meterRegistry::remove);
+            }
+            return true;
+        });
+    }
+
+    private Instance register(String key) {
+        Instance instance = new Instance();
+        if (meterRegistry != null) {
+            instance.meters = List.of(
+                    TimeGauge.builder("loadbalancer.instance.latency", instance, TimeUnit.NANOSECONDS,
+                                    i -> i.latency(System.nanoTime()))
+                            .description("decayed peak EWMA latency the load balancer sees for the instance")
+                            .tags("service", serviceId, "instance", key)
+                            .register(meterRegistry),
+                    Gauge.builder("loadbalancer.instance.outstanding", instance, i -> i.outstanding.get())
+                            .tags("service", serviceId, "instance", key)
+                            .register(meterRegistry));
+        }
+        return instance;
+    }
+
+    private static String key(ServiceInstance serviceInstance) {
+        String instanceId = serviceInstance.getInstanceId();
+        return instanceId != null ? instanceId : serviceInstance.getHost() + ":" + serviceInstance.getPort();
+    }
+
+    private static Duration setting(Binder binder, String service, String key, Duration defaultValue) {
+        return binder.bind(PREFIX + service + "." + key, Duration.class)
+                .orElseGet(() -> binder.bind(PREFIX + key, Duration.class).orElse(defaultValue));
+    }
+
+    private final class Instance {
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private List<Meter> meters = List.of();
+        private double latencyNanos;
+        private long stamp;
+
+        synchronized double latency(long now) {
+            return latencyNanos * Math.exp(-(now - stamp) / decayNanos);
+        }
+
+        double cost(long now) {
+            int pending = outstanding.get();
+            double latency = latency(now);
+            if (latency == 0) {
+                return pending == 0 ? 0 : (double) failurePenaltyNanos * (pending + 1);
+            }
+            return latency * (pending + 1);
+        }
+
+        synchronized void observe(long sampleNanos, long now) {
+            if (sampleNanos > latencyNanos) {
+                latencyNanos = sampleNanos;
+            } else {
+                double weight = Math.exp(-(now - stamp) / decayNanos);
+                latencyNanos = latencyNanos * weight + sampleNanos * (1 - weight);
+            }
+            stamp = now;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.kapok.clients.loadbalancer;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+
+/**
+ * Latency-aware load balancing for every service depending on {@code clients}: gateway
+ * {@code lb://} routes and Eureka-resolved Feign clients alike pick instances with
+ * {@link LatencyAwareLoadBalancer} instead of round robin. Switched off with
+ * {@code clients.loadbalancer.latency-aware.enabled=false}.
+ */
+@AutoConfiguration
+@ConditionalOnClass(ReactorServiceInstanceLoadBalancer.class)
+@ConditionalOnProperty(name = "clients.loadbalancer.latency-aware.enabled", matchIfMissing = true)
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerConfiguration.class)
+public class LatencyAwareLoadBalancerAutoConfiguration {
+}
@@ -0,0 +1,45 @@
+package com.kapok.clients.loadbalancer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Load balancer client configuration replacing round robin with
+ * {@link LatencyAwareLoadBalancer}, registered for every service by
+ * {@link LatencyAwareLoadBalancerAutoConfiguration}. Each service gets its own
+ * {@link InstanceLatencies}, shared by the balancer and the lifecycle that feeds it.
+ * <p>
+ * Deliberately not a {@code @Configuration}: it belongs to the load balancer client
+ * contexts only and must not be picked up by a component scan of {@code com.kapok.clients}.
+ */
+public class LatencyAwareLoadBalancerConfiguration {
+
+    @Bean
+    public InstanceLatencies instanceLatencies(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        return InstanceLatencies.create(environment.getRequiredProperty(LoadBalancerClientFactory.PROPERTY_NAME),
+                environment, meterRegistry.getIfAvailable());
+    }
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> reactorServiceInstanceLoadBalancer(
+            Environment environment,
+            LoadBalancerClientFactory loadBalancerClientFactory,
+            InstanceLatencies instanceLatencies) {
+        String serviceId = environment.getRequiredProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new LatencyAwareLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                serviceId,
+                instanceLatencies);
+    }
+
+    @Bean
+    public LatencyRecordingLifecycle latencyRecordingLifecycle(InstanceLatencies instanceLatencies) {
+        return new LatencyRecordingLifecycle(instanceLatencies);
+    }
+}
@@ -1,11 +1,13 @@
 package com.kapok.clients.notification;
 
+import com.kapok.clients.http.PooledFeignClientConfiguration;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PostMapping;
 
 @FeignClient(
         name = "notification",
-        url = "${clients.notification.url}"
+        url = "${clients.notification.url}",
+        configuration = PooledFeignClientConfiguration.class
 )
 public interface NotificationClient {
 
@@ -0,0 +1,106 @@
+package com.kapok.clients.resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AIMD concurrency limit for calls to a remote service. A call that finds {@code limit}
+ * calls in flight is rejected immediately instead of queueing, so callers do not pile up
+ * behind a slow dependency. Each call that completes within {@code latencyThreshold} while
+ * at least half the limit is in use adds {@code 1 / limit}; a slower or failed call
+ * multiplies the limit by {@code backoffRatio}. The limit stays between
+ * {@code minLimit} and {@code maxLimit}.
+ * <p>
+ * One overload shows up in every call in flight at the time, so the limit backs off at
+ * most once per window: after a decrease, the calls that were in flight complete without
+ * backing off again, and only a slow or failed call after them decreases the limit again.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double limit;
+    private long completions;
+    private long nextDecreaseAt;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      long latencyThresholdNanos, double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a call that got a response after {@code latencyNanos}.
+     */
+    public void onSuccess(long latencyNanos) {
+        int current = inflight.getAndDecrement();
+        synchronized (this) {
+            completions++;
+            if (latencyNanos > latencyThresholdNanos) {
+                decrease();
+            } else if (current * 2 >= limit) {
+                // only grow while the limit is what bounds us, not an idle caller
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+    }
+
+    /**
+     * Releases a call that timed out or failed in a way that signals overload.
+     */
+    public void onDropped() {
+        inflight.decrementAndGet();
+        synchronized (this) {
+            completions++;
+            decrease();
+        }
+    }
+
+    /**
+     * Releases a call whose outcome says nothing about the service's load.
+     */
+    public void onIgnored() {
+        inflight.decrementAndGet();
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    private void decrease() {
+        if (completions < nextDecreaseAt) {
+            // still a call admitted before the last decrease, reporting the same overload
+            return;
+        }
+        limit = Math.max(minLimit, limit * backoffRatio);
+        nextDecreaseAt = completions + inflight.get() + 1;
+    }
+}
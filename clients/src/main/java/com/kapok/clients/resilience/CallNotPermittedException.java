@@ -0,0 +1,12 @@
+package com.kapok.clients.resilience;
+
+/**
+ * A call rejected locally, by an open {@link CircuitBreaker} or a full
+ * {@link AdaptiveConcurrencyLimiter}, without reaching the remote service.
+ */
+public class CallNotPermittedException extends RuntimeException {
+
+    public CallNotPermittedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,146 @@
+package com.kapok.clients.resilience;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count-based circuit breaker. While closed it keeps the outcome of the last
+ * {@code windowSize} calls and opens once at least {@code minimumCalls} of them were made
+ * and {@code failureRateThreshold} of them failed. An open breaker rejects every call for
+ * {@code openNanos}, then lets {@code halfOpenCalls} trial calls through: all of them
+ * succeeding closes it, any failure opens it again.
+ * <p>
+ * {@link #tryAcquire()} hands out a permit naming the generation of the breaker, which
+ * advances with every state change; the outcome of a call is reported with its permit and
+ * dropped if the breaker has changed state since. A slow call admitted while closed thus
+ * neither counts as a trial call of the half-open breaker nor gives it back a permit.
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    /**
+     * What {@link #tryAcquire()} returns when the call is not permitted.
+     */
+    public static final long REJECTED = -1;
+
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final boolean[] window;
+    private final LongAdder rejected = new LongAdder();
+    private int position;
+    private int calls;
+    private int failures;
+    private volatile State state = State.CLOSED;
+    private long openUntil;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+    private long generation;
+
+    public CircuitBreaker(double failureRateThreshold, int windowSize, int minimumCalls,
+                          long openNanos, int halfOpenCalls) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.min(Math.max(1, minimumCalls), window.length);
+        this.openNanos = openNanos;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+    }
+
+    /**
+     * A permit for one call, to report its outcome with, or {@link #REJECTED}.
+     */
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openUntil >= 0) {
+            transition(State.HALF_OPEN);
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.OPEN || (state == State.HALF_OPEN && halfOpenPermits == 0)) {
+            rejected.increment();
+            return REJECTED;
+        }
+        if (state == State.HALF_OPEN) {
+            halfOpenPermits--;
+        }
+        return generation;
+    }
+
+    public synchronized void onSuccess(long permit) {
+        if (permit != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure(long permit) {
+        if (permit != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (calls >= minimumCalls && failures >= failureRateThreshold * calls) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Gives back a permit whose call was not made or says nothing about the service's health.
+     */
+    public synchronized void onIgnored(long permit) {
+        if (permit == generation && state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    private void record(boolean failure) {
+        if (calls == window.length) {
+            if (window[position]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        window[position] = failure;
+        if (failure) {
+            failures++;
+        }
+        position = (position + 1) % window.length;
+    }
+
+    private void open() {
+        transition(State.OPEN);
+        openUntil = System.nanoTime() + openNanos;
+    }
+
+    private void close() {
+        transition(State.CLOSED);
+        position = 0;
+        calls = 0;
+        failures = 0;
+    }
+
+    private void transition(State next) {
+        state = next;
+        generation++;
+    }
+}
@@ -0,0 +1,30 @@
+package com.kapok.clients.threads;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual thread factories and executors.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Factory of virtual threads named {@code prefix} followed by a counter.
+     */
+    public static ThreadFactory factory(String prefix) {
+        return Thread.ofVirtual().name(prefix, 0).factory();
+    }
+
+    /**
+     * Unbounded executor starting one virtual thread per task.
+     */
+    public static SimpleAsyncTaskExecutor taskExecutor(String prefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+        executor.setThreadFactory(factory(prefix));
+        return executor;
+    }
+}
@@ -0,0 +1,68 @@
+package com.kapok.clients.threads;
+
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+/**
+ * Opt-in virtual thread execution for every service depending on {@code clients}, enabled
+ * with {@code kapok.threads.virtual.enabled=true}:
+ * <ul>
+ *     <li>Tomcat handles each request on its own virtual thread instead of the
+ *     {@code server.tomcat.threads.max} pool, so Feign and JPA calls made while handling
+ *     a request block a virtual thread only;</li>
+ *     <li>{@code @RabbitListener} consumers run on virtual threads;</li>
+ *     <li>the application task executor, used for async MVC such as streaming exports,
+ *     starts a virtual thread per task.</li>
+ * </ul>
+ * Concurrency is then bounded by the connection pools rather than by threads, so Hikari
+ * and HTTP client pool sizes become the limits to tune.
+ */
+@AutoConfiguration(before = TaskExecutionAutoConfiguration.class)
+@ConditionalOnProperty(name = "kapok.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadsAutoConfiguration {
+
+    @Bean(name = {
+            TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            "taskExecutor"
+    })
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return VirtualThreads.taskExecutor("task-");
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.apache.catalina.startup.Tomcat")
+    static class TomcatVirtualThreadsConfiguration {
+
+        @Bean
+        TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+            return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.taskExecutor("http-"));
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory")
+    static class RabbitVirtualThreadsConfiguration {
+
+        @Bean
+        static BeanPostProcessor virtualThreadsRabbitListenerContainerFactoryPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                    if (bean instanceof SimpleRabbitListenerContainerFactory factory) {
+                        factory.setTaskExecutor(VirtualThreads.taskExecutor(beanName + "-"));
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+}
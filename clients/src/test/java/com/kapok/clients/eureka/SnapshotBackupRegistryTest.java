@@ -0,0 +1,96 @@
+package com.kapok.clients.eureka;
+
+import com.kapok.registrysnapshot.RegistrySnapshot;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotBackupRegistryTest {
+
+    private static final Duration MAX_AGE = Duration.ofDays(1);
+
+    @TempDir
+    Path directory;
+
+    private final SnapshotBackupRegistry underTest = new SnapshotBackupRegistry();
+
+    @AfterEach
+    void tearDown() {
+        SnapshotBackupRegistry.configure(null, Duration.ZERO);
+    }
+
+    @Test
+    void itShouldServeLastSnapshot() throws IOException {
+        // given
+        Path file = directory.resolve("registry.json.gz");
+        RegistrySnapshot.write(applications(instance("FRAUD", "fraud-1")), file);
+        SnapshotBackupRegistry.configure(file, MAX_AGE);
+
+        // when
+        Applications applications = underTest.fetchRegistry(new String[]{"us-east-1"});
+
+        // then
+        assertThat(applications.getRegisteredApplications("FRAUD").getByInstanceId("fraud-1")).isNotNull();
+    }
+
+    @Test
+    void itShouldServeNothingForSnapshotOlderThanMaxAge() throws IOException {
+        // given
+        Path file = directory.resolve("registry.json.gz");
+        RegistrySnapshot.write(applications(instance("FRAUD", "fraud-1")), file);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(MAX_AGE).minusSeconds(1)));
+        SnapshotBackupRegistry.configure(file, MAX_AGE);
+
+        // when
+        // then
+        assertThat(underTest.fetchRegistry()).isNull();
+    }
+
+    @Test
+    void itShouldServeNothingWithoutSnapshot() {
+        // given
+        SnapshotBackupRegistry.configure(directory.resolve("registry.json.gz"), MAX_AGE);
+
+        // when
+        // then
+        assertThat(underTest.fetchRegistry()).isNull();
+    }
+
+    @Test
+    void itShouldServeNothingUntilConfigured() {
+        // given
+        // when
+        // then
+        assertThat(underTest.fetchRegistry()).isNull();
+    }
+
+    private static Applications applications(InstanceInfo instance) {
+        Application application = new Application(instance.getAppName());
+        application.addInstance(instance);
+        Applications applications = new Applications();
+        applications.addApplication(application);
+        return applications;
+    }
+
+    private static InstanceInfo instance(String appName, String instanceId) {
+        return InstanceInfo.Builder.newBuilder()
+                .setAppName(appName)
+                .setInstanceId(instanceId)
+                .setHostName(instanceId + ".local")
+                .setIPAddr("10.0.0.1")
+                .setStatus(InstanceInfo.InstanceStatus.UP)
+                .build();
+    }
+}
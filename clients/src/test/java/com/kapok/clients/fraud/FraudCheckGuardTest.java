@@ -0,0 +1,125 @@
+package com.kapok.clients.fraud;
+
+import feign.FeignException;
+import feign.Request;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+
+class FraudCheckGuardTest {
+
+    private static final Request REQUEST = Request.create(
+            Request.HttpMethod.POST, "/api/v1/fraud-check", Map.of(), null, StandardCharsets.UTF_8, null);
+
+    @Mock
+    private FraudClient fraudClient;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FraudCheckRequest fraudCheckRequest =
+            new FraudCheckRequest(UUID.randomUUID(), "alex@gmail.com", 123456);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void itShouldReleasePermitsWhenCallThrowsError() {
+        // given
+        FraudCheckGuard underTest = guard("fail-closed");
+        given(fraudClient.isFraudster(any(FraudCheckRequest.class))).willThrow(new StackOverflowError());
+
+        // when
+        assertThatThrownBy(() -> underTest.isFraudster(fraudCheckRequest)).isInstanceOf(StackOverflowError.class);
+
+        // then
+        assertThat(meterRegistry.get("fraud.client.inflight").gauge().value()).isZero();
+    }
+
+    @Test
+    void itShouldRethrowClientErrorsInsteadOfFailingOpen() {
+        // given
+        FraudVerdictCache underTest = cache(guard("fail-open"));
+        given(fraudClient.isFraudster(any(FraudCheckRequest.class))).willThrow(new FeignException.BadRequest(
+                "bad request", REQUEST, null, Map.of()));
+
+        // when
+        // then
+        assertThatThrownBy(() -> underTest.isFraudster(fraudCheckRequest))
+                .isInstanceOf(FeignException.BadRequest.class);
+        assertThat(meterRegistry.get("fraud.client.fallback").counter().count()).isZero();
+        assertThat(meterRegistry.get("fraud.client.inflight").gauge().value()).isZero();
+    }
+
+    @Test
+    void itShouldRethrowBatchClientErrorsInsteadOfFailingOpen() {
+        // given
+        FraudVerdictCache underTest = cache(guard("fail-open"));
+        given(fraudClient.areFraudsters(anyList())).willThrow(new FeignException.BadRequest(
+                "bad request", REQUEST, null, Map.of()));
+
+        // when
+        // then
+        assertThatThrownBy(() -> underTest.areFraudsters(List.of(fraudCheckRequest)))
+                .isInstanceOf(FeignException.BadRequest.class);
+        assertThat(meterRegistry.get("fraud.client.fallback").counter().count()).isZero();
+    }
+
+    @Test
+    void itShouldFailOpenOnServerErrors() {
+        // given
+        FraudVerdictCache underTest = cache(guard("fail-open"));
+        given(fraudClient.isFraudster(any(FraudCheckRequest.class))).willThrow(new FeignException.InternalServerError(
+                "unavailable", REQUEST, null, Map.of()));
+
+        // when
+        FraudCheckResponse response = underTest.isFraudster(fraudCheckRequest);
+
+        // then
+        assertThat(response.isFraudster()).isFalse();
+        assertThat(meterRegistry.get("fraud.client.fallback").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldRethrowAsyncClientErrorsAndReleasePermits() {
+        // given
+        FraudVerdictCache underTest = cache(guard("fail-open"));
+        AsyncFraudClient asyncFraudClient = request -> CompletableFuture.failedFuture(
+                HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "bad request", null, null, null));
+
+        // when
+        // then
+        assertThatThrownBy(() -> underTest.isFraudsterAsync(fraudCheckRequest, asyncFraudClient).join())
+                .hasCauseInstanceOf(HttpClientErrorException.BadRequest.class);
+        assertThat(meterRegistry.get("fraud.client.fallback").counter().count()).isZero();
+        assertThat(meterRegistry.get("fraud.client.inflight").gauge().value()).isZero();
+    }
+
+    private FraudCheckGuard guard(String fallback) {
+        return new FraudCheckGuard(
+                fraudClient, meterRegistry, 20, 4, 200, Duration.ofMillis(500), 0.9,
+                0.5, 50, 20, Duration.ofSeconds(10), 5, fallback);
+    }
+
+    private FraudVerdictCache cache(FraudCheckGuard fraudCheckGuard) {
+        return new FraudVerdictCache(
+                fraudCheckGuard, meterRegistry, 1000, Duration.ofMinutes(1), Duration.ofMinutes(10));
+    }
+}
@@ -0,0 +1,284 @@
+package com.kapok.clients.fraud;
+
+import feign.FeignException;
+import feign.Request;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+class FraudVerdictCacheTest {
+
+    private static final Duration CLEAN_TTL = Duration.ofMinutes(1);
+    private static final Duration FRAUDSTER_TTL = Duration.ofMinutes(10);
+    private static final Request REQUEST = Request.create(
+            Request.HttpMethod.POST, "/api/v1/fraud-check", Map.of(), null, StandardCharsets.UTF_8, null);
+
+    @Mock
+    private FraudClient fraudClient;
+    @Mock
+    private AsyncFraudClient asyncFraudClient;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong nanos = new AtomicLong();
+    private final FraudCheckRequest alex = new FraudCheckRequest(UUID.randomUUID(), "alex@gmail.com", 123456);
+    private final FraudCheckRequest jamila = new FraudCheckRequest(UUID.randomUUID(), "jamila@gmail.com", 654321);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void itShouldKeepCleanVerdictForCleanTtl() {
+        // given
+        FraudVerdictCache underTest = cache("fail-closed");
+        given(fraudClient.isFraudster(alex)).willReturn(new FraudCheckResponse(false));
+        underTest.isFraudster(alex);
+
+        // when
+        advance(CLEAN_TTL.minusSeconds(1));
+        underTest.isFraudster(alex);
+        advance(Duration.ofSeconds(2));
+        underTest.isFraudster(alex);
+
+        // then
+        then(fraudClient).should(times(2)).isFraudster(alex);
+    }
+
+    @Test
+    void itShouldKeepFraudsterVerdictForFraudsterTtl() {
+        // given
+        FraudVerdictCache underTest = cache("fail-closed");
+        given(fraudClient.isFraudster(alex)).willReturn(new FraudCheckResponse(true));
+        underTest.isFraudster(alex);
+
+        // when
+        advance(CLEAN_TTL.plusSeconds(1));
+        FraudCheckResponse cached = underTest.isFraudster(alex);
+        advance(FRAUDSTER_TTL);
+        underTest.isFraudster(alex);
+
+        // then
+        assertThat(cached.isFraudster()).isTrue();
+        then(fraudClient).should(times(2)).isFraudster(alex);
+    }
+
+    @Test
+    void itShouldNotCacheFallbackVerdict() {
+        // given
+        FraudVerdictCache underTest = cache("fail-open");
+        given(fraudClient.isFraudster(alex))
+                .willThrow(new FeignException.InternalServerError("unavailable", REQUEST, null, Map.of()))
+                .willReturn(new FraudCheckResponse(true));
+        FraudCheckResponse fallback = underTest.isFraudster(alex);
+
+        // when
+        FraudCheckResponse response = underTest.isFraudster(alex);
+
+        // then
+        assertThat(fallback.isFraudster()).isFalse();
+        assertThat(response.isFraudster()).isTrue();
+        assertThat(meterRegistry.get("fraud.client.fallback").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldCollapseConcurrentLookupsIntoOneCall() throws Exception {
+        // given
+        FraudVerdictCache underTest = cache("fail-closed");
+        CountDownLatch called = new CountDownLatch(1);
+        CountDownLatch answer = new CountDownLatch(1);
+        given(fraudClient.isFraudster(alex)).willAnswer(invocation -> {
+            called.countDown();
+            answer.await(5, TimeUnit.SECONDS);
+            return new FraudCheckResponse(true);
+        });
+        CompletableFuture<FraudCheckResponse> first = CompletableFuture.supplyAsync(() -> underTest.isFraudster(alex));
+        assertThat(called.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // when
+        CompletableFuture<FraudCheckResponse> second = CompletableFuture.supplyAsync(() -> underTest.isFraudster(alex));
+        answer.countDown();
+
+        // then
+        assertThat(first.get(5, TimeUnit.SECONDS).isFraudster()).isTrue();
+        assertThat(second.get(5, TimeUnit.SECONDS).isFraudster()).isTrue();
+        then(fraudClient).should(times(1)).isFraudster(alex);
+    }
+
+    @Test
+    void itShouldNotCallAgainForRequestInFlightInOverlappingBatch() throws Exception {
+        // given
+        FraudVerdictCache underTest = cache("fail-closed");
+        CountDownLatch called = new CountDownLatch(1);
+        CountDownLatch answer = new CountDownLatch(1);
+        given(fraudClient.areFraudsters(List.of(alex))).willAnswer(invocation -> {
+            called.countDown();
+            answer.await(5, TimeUnit.SECONDS);
+            return Map.of(alex.customerId(), true);
+        });
+        given(fraudClient.areFraudsters(List.of(jamila))).willReturn(Map.of(jamila.customerId(), false));
+        CompletableFuture<Map<UUID, Boolean>> first =
+                CompletableFuture.supplyAsync(() -> underTest.areFraudsters(List.of(alex)));
+        assertThat(called.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // when
+        CompletableFuture<Map<UUID, Boolean>> second =
+                CompletableFuture.supplyAsync(() -> underTest.areFraudsters(List.of(alex, jamila)));
+        CompletableFuture<FraudCheckResponse> single = CompletableFuture.supplyAsync(() -> underTest.isFraudster(alex));
+        answer.countDown();
+
+        // then
+        assertThat(first.get(5, TimeUnit.SECONDS)).containsEntry(alex.customerId(), true);
+        assertThat(second.get(5, TimeUnit.SECONDS))
+                .containsEntry(alex.customerId(), true)
+                .containsEntry(jamila.customerId(), false);
+        assertThat(single.get(5, TimeUnit.SECONDS).isFraudster()).isTrue();
+        then(fraudClient).should(never()).isFraudster(any(FraudCheckRequest.class));
+        then(fraudClient).should(times(1)).areFraudsters(List.of(alex));
+    }
+
+    @Test
+    void itShouldSendOnlyUncachedRequestsInBatch() {
+        // given
+        FraudVerdictCache underTest = cache("fail-closed");
+        given(fraudClient.isFraudster(alex)).willReturn(new FraudCheckResponse(true));
+        given(fraudClient.areFraudsters(List.of(jamila))).willReturn(Map.of(jamila.customerId(), false));
+        underTest.isFraudster(alex);
+
+        // when
+        Map<UUID, Boolean> verdicts = underTest.areFraudsters(List.of(alex, jamila));
+
+        // then
+        assertThat(verdicts).containsEntry(alex.customerId(), true).containsEntry(jamila.customerId(), false);
+        then(fraudClient).should(times(1)).areFraudsters(anyList());
+    }
+
+    @Test
+    void itShouldFailClosedForCustomersMissingFromBatchReply() {
+        // given
+        FraudVerdictCache underTest = cache("fail-closed");
+        given(fraudClient.areFraudsters(anyList())).willReturn(Map.of(alex.customerId(), false));
+
+        // when
+        // then
+        assertThatThrownBy(() -> underTest.areFraudsters(List.of(alex, jamila)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("fraud check unavailable");
+        assertThat(meterRegistry.get("fraud.client.fallback").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldFailOpenForCustomersMissingFromBatchReplyWithoutCachingThem() {
+        // given
+        FraudVerdictCache underTest = cache("fail-open");
+        given(fraudClient.areFraudsters(anyList())).willReturn(Map.of(alex.customerId(), false));
+        given(fraudClient.areFraudsters(List.of(jamila))).willReturn(Map.of(jamila.customerId(), true));
+        Map<UUID, Boolean> partial = underTest.areFraudsters(List.of(alex, jamila));
+
+        // when
+        Map<UUID, Boolean> verdicts = underTest.areFraudsters(List.of(alex, jamila));
+
+        // then
+        assertThat(partial).containsEntry(alex.customerId(), false).containsEntry(jamila.customerId(), false);
+        assertThat(verdicts).containsEntry(jamila.customerId(), true);
+        assertThat(meterRegistry.get("fraud.client.fallback").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldFallBackForEmptyBatchReply() {
+        // given
+        FraudVerdictCache underTest = cache("fail-closed");
+        given(fraudClient.areFraudsters(anyList())).willReturn(Map.of());
+
+        // when
+        // then
+        assertThatThrownBy(() -> underTest.areFraudsters(List.of(alex)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void itShouldPropagateErrorAndReleaseLoad() {
+        // given
+        FraudVerdictCache underTest = cache("fail-closed");
+        given(fraudClient.isFraudster(alex))
+                .willThrow(new StackOverflowError())
+                .willReturn(new FraudCheckResponse(false));
+        assertThatThrownBy(() -> underTest.isFraudster(alex)).isInstanceOf(StackOverflowError.class);
+
+        // when
+        FraudCheckResponse response = underTest.isFraudster(alex);
+
+        // then
+        assertThat(response.isFraudster()).isFalse();
+        then(fraudClient).should(times(2)).isFraudster(alex);
+    }
+
+    @Test
+    void itShouldCollapseAsyncLookupsIntoOneCallAndCacheVerdict() {
+        // given
+        FraudVerdictCache underTest = cache("fail-closed");
+        CompletableFuture<FraudCheckResponse> call = new CompletableFuture<>();
+        given(asyncFraudClient.isFraudster(alex)).willReturn(call);
+        CompletableFuture<FraudCheckResponse> first = underTest.isFraudsterAsync(alex, asyncFraudClient);
+        CompletableFuture<FraudCheckResponse> second = underTest.isFraudsterAsync(alex, asyncFraudClient);
+
+        // when
+        call.complete(new FraudCheckResponse(true));
+
+        // then
+        assertThat(first.join().isFraudster()).isTrue();
+        assertThat(second.join().isFraudster()).isTrue();
+        assertThat(underTest.isFraudster(alex).isFraudster()).isTrue();
+        then(asyncFraudClient).should(times(1)).isFraudster(alex);
+        then(fraudClient).should(never()).isFraudster(any(FraudCheckRequest.class));
+        assertThat(meterRegistry.get("fraud.client.inflight").gauge().value()).isZero();
+    }
+
+    @Test
+    void itShouldApplyFallbackToFailedAsyncLookup() {
+        // given
+        FraudVerdictCache failClosed = cache("fail-closed");
+        given(asyncFraudClient.isFraudster(alex))
+                .willReturn(CompletableFuture.failedFuture(new IllegalStateException("down")));
+
+        // when
+        CompletableFuture<FraudCheckResponse> refused = failClosed.isFraudsterAsync(alex, asyncFraudClient);
+
+        // then
+        assertThatThrownBy(refused::join).hasRootCauseMessage("down").hasMessageContaining("fraud check unavailable");
+        assertThat(cache("fail-open").isFraudsterAsync(alex, asyncFraudClient).join().isFraudster()).isFalse();
+        then(asyncFraudClient).should(times(2)).isFraudster(alex);
+    }
+
+    private FraudVerdictCache cache(String fallback) {
+        FraudCheckGuard fraudCheckGuard = new FraudCheckGuard(
+                fraudClient, meterRegistry, 20, 4, 200, Duration.ofMillis(500), 0.9,
+                0.5, 50, 20, Duration.ofSeconds(10), 5, fallback);
+        return new FraudVerdictCache(fraudCheckGuard, meterRegistry, 1000, CLEAN_TTL, FRAUDSTER_TTL, nanos::get);
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+}
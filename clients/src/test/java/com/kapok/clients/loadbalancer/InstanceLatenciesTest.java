@@ -0,0 +1,160 @@
+package com.kapok.clients.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class InstanceLatenciesTest {
+
+    private static final long DECAY = TimeUnit.SECONDS.toNanos(10);
+    private static final long PENALTY = TimeUnit.SECONDS.toNanos(1);
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ServiceInstance first = instance("fraud-1");
+    private final ServiceInstance second = instance("fraud-2");
+    private InstanceLatencies underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new InstanceLatencies("fraud", Duration.ofNanos(DECAY), Duration.ofNanos(PENALTY), meterRegistry);
+    }
+
+    @Test
+    void itShouldCostNothingForUnknownInstance() {
+        // given
+        // when
+        // then
+        assertThat(underTest.cost(first, 0)).isZero();
+    }
+
+    @Test
+    void itShouldChargeFailurePenaltyPerRequestWithoutSample() {
+        // given
+        underTest.onStart(first);
+        underTest.onStart(first);
+
+        // when
+        double cost = underTest.cost(first, 0);
+
+        // then
+        assertThat(cost).isEqualTo(PENALTY * 3.0);
+    }
+
+    @Test
+    void itShouldTakeHigherSampleAtOnce() {
+        // given
+        record(first, 10 * MS, false, 0);
+
+        // when
+        record(first, 100 * MS, false, 1);
+
+        // then
+        assertThat(underTest.cost(first, 1)).isCloseTo(100.0 * MS, within(1.0));
+    }
+
+    @Test
+    void itShouldPullLatencyDownGraduallyWithLowerSamples() {
+        // given
+        record(first, 100 * MS, false, 0);
+
+        // when
+        record(first, 10 * MS, false, DECAY);
+
+        // then
+        double weight = Math.exp(-1);
+        assertThat(underTest.cost(first, DECAY)).isCloseTo(100.0 * MS * weight + 10.0 * MS * (1 - weight), within(1.0));
+    }
+
+    @Test
+    void itShouldDecayLatencyWhileIdle() {
+        // given
+        record(first, 100 * MS, false, 0);
+
+        // when
+        double cost = underTest.cost(first, 2 * DECAY);
+
+        // then
+        assertThat(cost).isCloseTo(100.0 * MS * Math.exp(-2), within(1.0));
+    }
+
+    @Test
+    void itShouldMultiplyLatencyByOutstandingRequests() {
+        // given
+        record(first, 100 * MS, false, 0);
+
+        // when
+        underTest.onStart(first);
+        underTest.onStart(first);
+
+        // then
+        assertThat(underTest.cost(first, 0)).isCloseTo(300.0 * MS, within(1.0));
+    }
+
+    @Test
+    void itShouldRecordFastFailureAsFailurePenalty() {
+        // given
+        // when
+        record(first, 5 * MS, true, 0);
+
+        // then
+        assertThat(underTest.cost(first, 0)).isCloseTo((double) PENALTY, within(1.0));
+    }
+
+    @Test
+    void itShouldKeepSlowFailureLatency() {
+        // given
+        // when
+        record(first, 2 * PENALTY, true, 0);
+
+        // then
+        assertThat(underTest.cost(first, 0)).isCloseTo(2.0 * PENALTY, within(1.0));
+    }
+
+    @Test
+    void itShouldOnlyReleaseRequestWithoutLatency() {
+        // given
+        underTest.onStart(first);
+
+        // when
+        underTest.onComplete(first, -1, true, 0);
+
+        // then
+        assertThat(underTest.cost(first, 0)).isZero();
+    }
+
+    @Test
+    void itShouldForgetInstancesThatLeftAndTheirMeters() {
+        // given
+        record(first, 100 * MS, false, 0);
+        record(second, 100 * MS, false, 0);
+
+        // when
+        underTest.retain(List.of(second));
+
+        // then
+        assertThat(underTest.cost(first, 0)).isZero();
+        assertThat(underTest.cost(second, 0)).isCloseTo(100.0 * MS, within(1.0));
+        assertThat(meterRegistry.find("loadbalancer.instance.latency").tag("instance", "fraud-1").meter()).isNull();
+        assertThat(meterRegistry.find("loadbalancer.instance.outstanding").tag("instance", "fraud-2").meter())
+                .isNotNull();
+    }
+
+    private void record(ServiceInstance instance, long latencyNanos, boolean failed, long now) {
+        underTest.onStart(instance);
+        underTest.onComplete(instance, latencyNanos, failed, now);
+    }
+
+    static ServiceInstance instance(String instanceId) {
+        return new DefaultServiceInstance(instanceId, "fraud", instanceId, 8081, false);
+    }
+}
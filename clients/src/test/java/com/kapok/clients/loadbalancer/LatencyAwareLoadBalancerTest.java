@@ -0,0 +1,142 @@
+package com.kapok.clients.loadbalancer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.kapok.clients.loadbalancer.InstanceLatenciesTest.instance;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyAwareLoadBalancerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ServiceInstance fast = instance("fraud-1");
+    private final ServiceInstance slow = instance("fraud-2");
+    private final ServiceInstance slowest = instance("fraud-3");
+    private final StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+    private InstanceLatencies instanceLatencies;
+    private LatencyAwareLoadBalancer underTest;
+
+    @BeforeEach
+    void setUp() {
+        instanceLatencies = new InstanceLatencies("fraud", Duration.ofMinutes(10), Duration.ofSeconds(1), null);
+        underTest = new LatencyAwareLoadBalancer(
+                beanFactory.getBeanProvider(ServiceInstanceListSupplier.class), "fraud", instanceLatencies);
+    }
+
+    @Test
+    void itShouldPickCheaperOfTwoInstances() {
+        // given
+        record(fast, 10 * MS);
+        record(slow, 100 * MS);
+
+        // when
+        // then
+        for (int i = 0; i < 100; i++) {
+            assertThat(underTest.choose(List.of(fast, slow))).isSameAs(fast);
+            assertThat(underTest.choose(List.of(slow, fast))).isSameAs(fast);
+        }
+    }
+
+    @Test
+    void itShouldNeverPickMostExpensiveOfSeveralButSpreadTheRest() {
+        // given
+        record(fast, 10 * MS);
+        record(slow, 100 * MS);
+        record(slowest, 1000 * MS);
+
+        // when
+        Map<ServiceInstance, Integer> picks = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            picks.merge(underTest.choose(List.of(fast, slow, slowest)), 1, Integer::sum);
+        }
+
+        // then
+        // the slow instance wins every pair drawn with the slowest, a third of them
+        assertThat(picks).doesNotContainKey(slowest);
+        assertThat(picks.get(slow)).isBetween(700, 1300);
+    }
+
+    @Test
+    void itShouldAvoidInstanceWithRequestsPilingUp() {
+        // given
+        record(fast, 10 * MS);
+        record(slow, 10 * MS);
+        instanceLatencies.onStart(fast);
+        instanceLatencies.onStart(fast);
+
+        // when
+        // then
+        assertThat(underTest.choose(List.of(fast, slow))).isSameAs(slow);
+    }
+
+    @Test
+    void itShouldPickOnlyInstanceAndForgetDepartedOnes() {
+        // given
+        record(slow, 100 * MS);
+
+        // when
+        ServiceInstance chosen = underTest.choose(List.of(fast));
+
+        // then
+        assertThat(chosen).isSameAs(fast);
+        assertThat(instanceLatencies.cost(slow, System.nanoTime())).isZero();
+    }
+
+    @Test
+    void itShouldAnswerEmptyResponseWithoutInstances() {
+        // given
+        beanFactory.addBean("supplier", supplier(List.of()));
+
+        // when
+        Response<ServiceInstance> response = underTest.choose(new DefaultRequest<>()).block();
+
+        // then
+        assertThat(response.hasServer()).isFalse();
+    }
+
+    @Test
+    void itShouldChooseFromSuppliedInstances() {
+        // given
+        record(fast, 10 * MS);
+        record(slow, 100 * MS);
+        beanFactory.addBean("supplier", supplier(List.of(fast, slow)));
+
+        // when
+        Response<ServiceInstance> response = underTest.choose(new DefaultRequest<>()).block();
+
+        // then
+        assertThat(response.getServer()).isSameAs(fast);
+    }
+
+    private void record(ServiceInstance instance, long latencyNanos) {
+        instanceLatencies.onStart(instance);
+        instanceLatencies.onComplete(instance, latencyNanos, false, System.nanoTime());
+    }
+
+    private static ServiceInstanceListSupplier supplier(List<ServiceInstance> instances) {
+        return new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return "fraud";
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return Flux.just(instances);
+            }
+        };
+    }
+}
@@ -0,0 +1,146 @@
+package com.kapok.clients.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long THRESHOLD = 1_000;
+    private static final long FAST = 10;
+    private static final long SLOW = 10_000;
+
+    private final AdaptiveConcurrencyLimiter underTest = new AdaptiveConcurrencyLimiter(4, 2, 6, THRESHOLD, 0.5);
+
+    @Test
+    void itShouldRejectCallsBeyondTheLimit() {
+        // given
+        for (int i = 0; i < 4; i++) {
+            assertThat(underTest.tryAcquire()).isTrue();
+        }
+
+        // when
+        boolean acquired = underTest.tryAcquire();
+
+        // then
+        assertThat(acquired).isFalse();
+        assertThat(underTest.inflight()).isEqualTo(4);
+        assertThat(underTest.rejected()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldGrowAdditivelyWhileTheLimitIsInUse() {
+        // given
+        // when
+        fullRound(FAST);
+
+        // then, 1/4 + 1/4.25 from the calls released with half the limit or more in flight
+        assertThat(underTest.limit()).isEqualTo(4);
+
+        // when
+        fullRound(FAST);
+        fullRound(FAST);
+
+        // then
+        assertThat(underTest.limit()).isEqualTo(5);
+    }
+
+    @Test
+    void itShouldNotGrowBeyondMaxLimit() {
+        // given
+        // when
+        for (int i = 0; i < 100; i++) {
+            fullRound(FAST);
+        }
+
+        // then
+        assertThat(underTest.limit()).isEqualTo(6);
+    }
+
+    @Test
+    void itShouldNotGrowForAnIdleCaller() {
+        // given
+        // when
+        for (int i = 0; i < 100; i++) {
+            assertThat(underTest.tryAcquire()).isTrue();
+            underTest.onSuccess(FAST);
+        }
+
+        // then
+        assertThat(underTest.limit()).isEqualTo(4);
+    }
+
+    @Test
+    void itShouldBackOffMultiplicativelyOnSlowCalls() {
+        // given
+        underTest.tryAcquire();
+
+        // when
+        underTest.onSuccess(SLOW);
+
+        // then
+        assertThat(underTest.limit()).isEqualTo(2);
+        assertThat(underTest.inflight()).isZero();
+    }
+
+    @Test
+    void itShouldBackOffOnDroppedCallsDownToMinLimit() {
+        // given
+        // when
+        for (int i = 0; i < 10; i++) {
+            underTest.tryAcquire();
+            underTest.onDropped();
+        }
+
+        // then
+        assertThat(underTest.limit()).isEqualTo(2);
+        assertThat(underTest.inflight()).isZero();
+    }
+
+    @Test
+    void itShouldBackOffOnceForCallsDroppedTogether() {
+        // given
+        AdaptiveConcurrencyLimiter underTest = new AdaptiveConcurrencyLimiter(20, 4, 200, THRESHOLD, 0.9);
+        for (int i = 0; i < 20; i++) {
+            assertThat(underTest.tryAcquire()).isTrue();
+        }
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            underTest.onDropped();
+        }
+
+        // then
+        assertThat(underTest.limit()).isEqualTo(18);
+
+        // when, a call admitted after the back off is slow as well
+        underTest.tryAcquire();
+        underTest.onSuccess(SLOW);
+
+        // then
+        assertThat(underTest.limit()).isEqualTo(16);
+    }
+
+    @Test
+    void itShouldReleaseIgnoredCallsWithoutChangingTheLimit() {
+        // given
+        underTest.tryAcquire();
+
+        // when
+        underTest.onIgnored();
+
+        // then
+        assertThat(underTest.limit()).isEqualTo(4);
+        assertThat(underTest.inflight()).isZero();
+    }
+
+    private void fullRound(long latencyNanos) {
+        int acquired = 0;
+        while (underTest.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            underTest.onSuccess(latencyNanos);
+        }
+    }
+}
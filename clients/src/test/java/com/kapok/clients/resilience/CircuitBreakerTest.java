@@ -0,0 +1,173 @@
+package com.kapok.clients.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final long LONG_OPEN = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    void itShouldStayClosedUntilMinimumCalls() {
+        // given
+        CircuitBreaker underTest = new CircuitBreaker(0.5, 4, 4, LONG_OPEN, 2);
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            call(underTest, false);
+        }
+
+        // then
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void itShouldOpenAtFailureRateThresholdAndRejectCalls() {
+        // given
+        CircuitBreaker underTest = new CircuitBreaker(0.5, 4, 4, LONG_OPEN, 2);
+        call(underTest, false);
+        call(underTest, false);
+        call(underTest, true);
+
+        // when
+        call(underTest, true);
+
+        // then
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(underTest.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+        assertThat(underTest.rejected()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldForgetOutcomesOlderThanTheWindow() {
+        // given
+        CircuitBreaker underTest = new CircuitBreaker(0.5, 4, 4, LONG_OPEN, 2);
+        call(underTest, true);
+        call(underTest, false);
+        call(underTest, false);
+        call(underTest, false);
+
+        // when, the first failure leaves the window as this one enters
+        call(underTest, true);
+
+        // then
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void itShouldCloseAfterHalfOpenTrialCallsSucceed() {
+        // given
+        CircuitBreaker underTest = openedBreaker(0);
+
+        // when
+        long first = acquire(underTest);
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        long second = acquire(underTest);
+        // then only the trial calls get through
+        assertThat(underTest.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+        underTest.onSuccess(first);
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        underTest.onSuccess(second);
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void itShouldReopenWhenAHalfOpenTrialCallFails() {
+        // given
+        CircuitBreaker underTest = openedBreaker(0);
+        long permit = acquire(underTest);
+
+        // when
+        underTest.onFailure(permit);
+
+        // then
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void itShouldGiveBackHalfOpenPermitOfIgnoredCall() {
+        // given
+        CircuitBreaker underTest = openedBreaker(0);
+        acquire(underTest);
+        long permit = acquire(underTest);
+
+        // when
+        underTest.onIgnored(permit);
+
+        // then
+        acquire(underTest);
+        assertThat(underTest.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+    }
+
+    @Test
+    void itShouldNotCountSuccessOfCallAdmittedWhileClosedAsHalfOpenTrial() {
+        // given
+        CircuitBreaker underTest = new CircuitBreaker(0.5, 2, 2, 0, 2);
+        long admittedWhileClosed = acquire(underTest);
+        call(underTest, true);
+        call(underTest, true);
+        long trial = acquire(underTest);
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        // when
+        underTest.onSuccess(admittedWhileClosed);
+        underTest.onSuccess(trial);
+
+        // then, one of the two trial calls has yet to succeed
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    }
+
+    @Test
+    void itShouldNotGiveBackHalfOpenPermitForIgnoredCallAdmittedWhileClosed() {
+        // given
+        CircuitBreaker underTest = new CircuitBreaker(0.5, 2, 2, 0, 2);
+        long admittedWhileClosed = acquire(underTest);
+        call(underTest, true);
+        call(underTest, true);
+        acquire(underTest);
+        acquire(underTest);
+
+        // when
+        underTest.onIgnored(admittedWhileClosed);
+
+        // then
+        assertThat(underTest.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+    }
+
+    @Test
+    void itShouldStayOpenForOpenDuration() {
+        // given
+        CircuitBreaker underTest = openedBreaker(LONG_OPEN);
+
+        // when
+        // then
+        assertThat(underTest.tryAcquire()).isEqualTo(CircuitBreaker.REJECTED);
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private static CircuitBreaker openedBreaker(long openNanos) {
+        CircuitBreaker breaker = new CircuitBreaker(0.5, 2, 2, openNanos, 2);
+        call(breaker, true);
+        call(breaker, true);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        return breaker;
+    }
+
+    private static long acquire(CircuitBreaker breaker) {
+        long permit = breaker.tryAcquire();
+        assertThat(permit).isNotEqualTo(CircuitBreaker.REJECTED);
+        return permit;
+    }
+
+    private static void call(CircuitBreaker breaker, boolean failure) {
+        long permit = acquire(breaker);
+        if (failure) {
+            breaker.onFailure(permit);
+        } else {
+            breaker.onSuccess(permit);
+        }
+    }
+}
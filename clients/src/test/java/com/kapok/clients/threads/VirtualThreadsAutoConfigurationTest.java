@@ -0,0 +1,66 @@
+package com.kapok.clients.threads;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VirtualThreadsAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    VirtualThreadsAutoConfiguration.class, TaskExecutionAutoConfiguration.class))
+            .withBean("rabbitListenerContainerFactory", SimpleRabbitListenerContainerFactory.class);
+
+    @Test
+    void itShouldKeepPlatformThreadsByDefault() {
+        contextRunner.run(context -> {
+            assertThat(context).doesNotHaveBean(TomcatProtocolHandlerCustomizer.class);
+            assertThat(context).doesNotHaveBean("virtualThreadsRabbitListenerContainerFactoryPostProcessor");
+            assertThat(context.getBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME))
+                    .isInstanceOf(ThreadPoolTaskExecutor.class);
+            assertThat(listenerTaskExecutor(context.getBean(SimpleRabbitListenerContainerFactory.class))).isNull();
+        });
+    }
+
+    @Test
+    void itShouldKeepPlatformThreadsWhenDisabled() {
+        contextRunner.withPropertyValues("kapok.threads.virtual.enabled=false").run(context -> {
+            assertThat(context).doesNotHaveBean(TomcatProtocolHandlerCustomizer.class);
+            assertThat(context).doesNotHaveBean("virtualThreadsRabbitListenerContainerFactoryPostProcessor");
+            assertThat(listenerTaskExecutor(context.getBean(SimpleRabbitListenerContainerFactory.class))).isNull();
+        });
+    }
+
+    @Test
+    void itShouldRunTasksRequestsAndListenersOnVirtualThreadsWhenEnabled() {
+        contextRunner.withPropertyValues("kapok.threads.virtual.enabled=true").run(context -> {
+            assertThat(context).hasSingleBean(TomcatProtocolHandlerCustomizer.class);
+            assertThat(context).hasBean("virtualThreadsRabbitListenerContainerFactoryPostProcessor");
+            assertThat(context.getBean("taskExecutor")).isSameAs(
+                    context.getBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME));
+
+            AsyncTaskExecutor executor = context.getBean(
+                    TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, AsyncTaskExecutor.class);
+            Future<Boolean> virtual = executor.submit(() -> Thread.currentThread().isVirtual());
+            assertThat(virtual.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(listenerTaskExecutor(context.getBean(SimpleRabbitListenerContainerFactory.class)))
+                    .isInstanceOf(SimpleAsyncTaskExecutor.class);
+        });
+    }
+
+    private static Object listenerTaskExecutor(SimpleRabbitListenerContainerFactory factory) {
+        return ReflectionTestUtils.getField(factory, "taskExecutor");
+    }
+}
@@ -10,7 +10,8 @@ import org.springframework.context.annotation.PropertySources;
 @SpringBootApplication(
         scanBasePackages = {
                 "com.kapok.customer",
-                "com.kapok.amqp"
+                "com.kapok.amqp",
+                "com.kapok.clients"
         }
 )
 @EnableEurekaClient
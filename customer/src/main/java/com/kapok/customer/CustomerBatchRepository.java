@@ -0,0 +1,13 @@
+package com.kapok.customer;
+
+import java.util.List;
+
+public interface CustomerBatchRepository {
+
+    /**
+     * Persists new customers with JDBC batching. Unlike {@code saveAll}, this never
+     * issues a select per entity to decide between persist and merge, so the ids
+     * must be assigned and must not exist yet.
+     */
+    void persistAll(List<Customer> customers);
+}
@@ -0,0 +1,32 @@
+package com.kapok.customer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+public class CustomerBatchRepositoryImpl implements CustomerBatchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}")
+    private int batchSize;
+
+    @Override
+    @Transactional
+    public void persistAll(List<Customer> customers) {
+        for (int i = 0; i < customers.size(); i++) {
+            entityManager.persist(customers.get(i));
+            // flush and detach per JDBC batch so the persistence context stays small
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
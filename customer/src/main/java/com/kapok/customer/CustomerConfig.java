@@ -1,10 +1,17 @@
 package com.kapok.customer;
 
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.web.client.RestTemplate;
 
+import javax.persistence.EntityManagerFactory;
+
 @Configuration
 public class CustomerConfig {
 
@@ -13,4 +20,33 @@ public class CustomerConfig {
     public RestTemplate restTemplate(){
         return new RestTemplate();
     }
+
+    /**
+     * The JDBC datasource auto-configuration backs off as soon as an R2DBC
+     * {@code ConnectionFactory} exists, taking JPA with it, so the datasource behind JPA
+     * is declared here from the same {@code spring.datasource.*} properties.
+     */
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * R2DBC brings its own transaction manager; the JPA one stays the default for
+     * {@code @Transactional} and {@link org.springframework.transaction.support.TransactionTemplate}.
+     */
+    @Bean
+    @Primary
+    public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
 }
@@ -1,21 +1,96 @@
 package com.kapok.customer;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import reactor.core.publisher.Mono;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
 
 @Slf4j
 @RestController
 @RequestMapping("api/v1/customers")
-@AllArgsConstructor
 public class CustomerController {
     private final CustomerService customerService;
+    private final ReactiveCustomerService reactiveCustomerService;
+    private final ObjectMapper objectMapper;
+    private final Duration exportTimeout;
+
+    public CustomerController(
+            CustomerService customerService,
+            ReactiveCustomerService reactiveCustomerService,
+            ObjectMapper objectMapper,
+            @Value("${customer.export.timeout:30m}") Duration exportTimeout) {
+        this.customerService = customerService;
+        this.reactiveCustomerService = reactiveCustomerService;
+        this.objectMapper = objectMapper;
+        this.exportTimeout = exportTimeout;
+    }
+
+    @GetMapping
+    public CustomerPage getCustomers(
+            @RequestParam(name = "after", required = false) UUID after,
+            @RequestParam(name = "limit", defaultValue = "100") int limit){
+        return customerService.getCustomers(after, limit);
+    }
+
+    /**
+     * Streams every customer as NDJSON from the async request executor. The export gets
+     * {@code customer.export.timeout} of its own, other async requests keep the default.
+     */
+    @GetMapping(path = "export", produces = "application/x-ndjson")
+    public WebAsyncTask<Void> exportCustomers(HttpServletResponse response){
+        log.info("customer export started");
+        ObjectWriter writer = objectMapper.writerFor(CustomerDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return new WebAsyncTask<>(exportTimeout.toMillis(), () -> {
+            response.setContentType("application/x-ndjson");
+            try (JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream())) {
+                generator.setRootValueSeparator(null);
+                customerService.exportCustomers(customer -> {
+                    try {
+                        writer.writeValue(generator, customer);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            return null;
+        });
+    }
+
     @PostMapping
     public void registerCustomer(@RequestBody CustomerRegistrationRequest customerRegistrationRequest){
         log.info("new customer registration {}", customerRegistrationRequest);
         customerService.registerCustomer(customerRegistrationRequest);
     }
+
+    @PostMapping(path = "reactive")
+    public Mono<Void> registerCustomerReactive(@RequestBody CustomerRegistrationRequest customerRegistrationRequest){
+        log.info("new reactive customer registration {}", customerRegistrationRequest);
+        return reactiveCustomerService.registerCustomer(customerRegistrationRequest);
+    }
+
+    @PostMapping(path = "batch")
+    public List<CustomerRegistrationResult> registerCustomers(
+            @RequestBody List<CustomerRegistrationRequest> customerRegistrationRequests){
+        log.info("new customer batch registration of {} customers", customerRegistrationRequests.size());
+        return customerService.registerCustomers(customerRegistrationRequests);
+    }
 }
@@ -0,0 +1,14 @@
+package com.kapok.customer;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One page of customers in id order; {@code next} is the cursor for the following page
+ * and is null on the last one.
+ */
+public record CustomerPage(
+        List<CustomerDTO> customers,
+        UUID next
+) {
+}
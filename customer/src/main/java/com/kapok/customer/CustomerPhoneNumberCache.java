@@ -0,0 +1,93 @@
+package com.kapok.customer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Near-cache of phone number to owning customer in front of
+ * {@link CustomerRepository#findCustomerByPhoneNumber(Integer)}, bounded by size and by
+ * time since write. Only numbers that are taken are cached: a number is never released,
+ * so a cached owner cannot go stale, while caching "free" could let two pods hand out the
+ * same number. Concurrent misses on one number share a single query.
+ * <p>
+ * Published as the {@code customer.phone-number} cache in the standard {@code cache.*}
+ * meters (gets by hit/miss, puts, evictions, size).
+ */
+@Component
+public class CustomerPhoneNumberCache {
+
+    private final CustomerRepository customerRepository;
+    private final Cache<Integer, PhoneNumberOwner> owners;
+
+    public CustomerPhoneNumberCache(
+            CustomerRepository customerRepository,
+            MeterRegistry meterRegistry,
+            @Value("${customer.phone-number-cache.maximum-size:100000}") long maximumSize,
+            @Value("${customer.phone-number-cache.ttl:10m}") Duration ttl) {
+        this.customerRepository = customerRepository;
+        this.owners = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, owners, "customer.phone-number");
+    }
+
+    public Optional<PhoneNumberOwner> findOwner(Integer phoneNumber) {
+        return Optional.ofNullable(owners.get(phoneNumber, number ->
+                customerRepository.findCustomerByPhoneNumber(number)
+                        .map(PhoneNumberOwner::of)
+                        .orElse(null)));
+    }
+
+    /**
+     * Cached owner only, never queries; for callers that cannot block on a miss.
+     */
+    public Optional<PhoneNumberOwner> findCachedOwner(Integer phoneNumber) {
+        return Optional.ofNullable(owners.getIfPresent(phoneNumber));
+    }
+
+    public Map<Integer, PhoneNumberOwner> findOwners(Collection<Integer> phoneNumbers) {
+        return owners.getAll(phoneNumbers, missing ->
+                customerRepository.findCustomersByPhoneNumberIn(toList(missing)).stream()
+                        .collect(Collectors.toMap(Customer::getPhoneNumber, PhoneNumberOwner::of)));
+    }
+
+    private static List<Integer> toList(Iterable<? extends Integer> phoneNumbers) {
+        List<Integer> list = new ArrayList<>();
+        phoneNumbers.forEach(list::add);
+        return list;
+    }
+
+    /**
+     * Records owners whose insert has been committed.
+     */
+    public void putAll(Collection<Customer> customers) {
+        owners.putAll(customers.stream()
+                .collect(Collectors.toMap(Customer::getPhoneNumber, PhoneNumberOwner::of, (first, second) -> first)));
+    }
+
+    public void put(Customer customer) {
+        owners.put(customer.getPhoneNumber(), PhoneNumberOwner.of(customer));
+    }
+
+    public record PhoneNumberOwner(UUID id, String email) {
+
+        static PhoneNumberOwner of(Customer customer) {
+            return new PhoneNumberOwner(customer.getId(), customer.getEmail());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.kapok.customer;
+
+import com.kapok.clients.fraud.FraudCheckRequest;
+import com.kapok.clients.fraud.FraudCheckResponse;
+import com.kapok.clients.fraud.FraudVerdictCache;
+import com.kapok.customer.CustomerPhoneNumberCache.PhoneNumberOwner;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.sleuth.CurrentTraceContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the duplicate lookup and the fraud check of {@link CustomerService#registerCustomer}
+ * side by side, so registration waits for the slower of the two instead of their sum. A
+ * cached owner settles the registration without starting either step; an owner found in
+ * the database cancels the fraud check. Each step waits at most its own timeout.
+ * <p>
+ * Steps run on a pool of {@code customer.registration.threads} with the caller's trace
+ * context. Steps are never run on the caller's thread, where no timeout would bound them:
+ * once {@code queue-capacity} steps are waiting, a rejected fraud check gets the fraud
+ * guard's fallback verdict and a rejected duplicate lookup fails the registration. The
+ * pool is published as the {@code customer.registration} executor meters, rejections as
+ * {@code customer.registration.rejected} tagged with the step.
+ */
+@Component
+public class CustomerRegistrationChecks {
+
+    private final CustomerPhoneNumberCache customerPhoneNumberCache;
+    private final FraudVerdictCache fraudVerdictCache;
+    private final ExecutorService executor;
+    private final Duration duplicateLookupTimeout;
+    private final Duration fraudCheckTimeout;
+    private final Counter rejectedFraudChecks;
+    private final Counter rejectedDuplicateLookups;
+
+    @Autowired
+    public CustomerRegistrationChecks(
+            CustomerPhoneNumberCache customerPhoneNumberCache,
+            FraudVerdictCache fraudVerdictCache,
+            ObjectProvider<CurrentTraceContext> currentTraceContext,
+            MeterRegistry meterRegistry,
+            @Value("${customer.registration.threads:16}") int threads,
+            @Value("${customer.registration.queue-capacity:256}") int queueCapacity,
+            @Value("${customer.registration.duplicate-lookup-timeout:2s}") Duration duplicateLookupTimeout,
+            @Value("${customer.registration.fraud-check-timeout:3s}") Duration fraudCheckTimeout) {
+        this(customerPhoneNumberCache, fraudVerdictCache,
+                tracedPool(currentTraceContext, meterRegistry, threads, queueCapacity), meterRegistry,
+                duplicateLookupTimeout, fraudCheckTimeout);
+    }
+
+    CustomerRegistrationChecks(
+            CustomerPhoneNumberCache customerPhoneNumberCache,
+            FraudVerdictCache fraudVerdictCache,
+            ExecutorService executor,
+            MeterRegistry meterRegistry,
+            Duration duplicateLookupTimeout,
+            Duration fraudCheckTimeout) {
+        this.customerPhoneNumberCache = customerPhoneNumberCache;
+        this.fraudVerdictCache = fraudVerdictCache;
+        this.executor = executor;
+        this.duplicateLookupTimeout = duplicateLookupTimeout;
+        this.fraudCheckTimeout = fraudCheckTimeout;
+        this.rejectedFraudChecks = meterRegistry.counter("customer.registration.rejected", "step", "fraud-check");
+        this.rejectedDuplicateLookups =
+                meterRegistry.counter("customer.registration.rejected", "step", "duplicate-lookup");
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The owner of the customer's phone number if there is one, otherwise the fraud verdict.
+     */
+    public Result check(Customer customer) {
+        Optional<PhoneNumberOwner> cached = customerPhoneNumberCache.findCachedOwner(customer.getPhoneNumber());
+        if (cached.isPresent()) {
+            return new Result(cached, null);
+        }
+        FraudCheckRequest fraudCheckRequest = CustomerService.fraudCheckRequest(customer);
+        Future<FraudCheckResponse> fraudCheck = submitFraudCheck(fraudCheckRequest);
+        Optional<PhoneNumberOwner> owner;
+        try {
+            owner = await(submitDuplicateLookup(customer), duplicateLookupTimeout, "duplicate lookup");
+        } catch (RuntimeException e) {
+            fraudCheck.cancel(true);
+            throw e;
+        }
+        if (owner.isPresent()) {
+            // the registration is settled, the verdict would go unused
+            fraudCheck.cancel(true);
+            return new Result(owner, null);
+        }
+        return new Result(owner, await(fraudCheck, fraudCheckTimeout, "fraud check"));
+    }
+
+    private Future<FraudCheckResponse> submitFraudCheck(FraudCheckRequest fraudCheckRequest) {
+        try {
+            return executor.submit(() -> fraudVerdictCache.isFraudster(fraudCheckRequest));
+        } catch (RejectedExecutionException e) {
+            // no thread to bound the call with a timeout, as if the fraud service were unavailable
+            rejectedFraudChecks.increment();
+            try {
+                return CompletableFuture.completedFuture(fraudVerdictCache.fallback(fraudCheckRequest, e));
+            } catch (RuntimeException fallbackFailure) {
+                // fail-closed, only fails the registration if the phone number turns out to be free
+                return CompletableFuture.failedFuture(fallbackFailure);
+            }
+        }
+    }
+
+    private Future<Optional<PhoneNumberOwner>> submitDuplicateLookup(Customer customer) {
+        try {
+            return executor.submit(() -> customerPhoneNumberCache.findOwner(customer.getPhoneNumber()));
+        } catch (RejectedExecutionException e) {
+            rejectedDuplicateLookups.increment();
+            throw new IllegalStateException("registration checks are saturated, duplicate lookup rejected", e);
+        }
+    }
+
+    private static <T> T await(Future<T> step, Duration timeout, String name) {
+        try {
+            return step.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            step.cancel(true);
+            throw new IllegalStateException(String.format("%s timed out after %s", name, timeout), e);
+        } catch (InterruptedException e) {
+            step.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(String.format("interrupted during %s", name), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(String.format("%s failed", name), e.getCause());
+        }
+    }
+
+    private static ExecutorService tracedPool(ObjectProvider<CurrentTraceContext> currentTraceContext,
+                                              MeterRegistry meterRegistry, int threads, int queueCapacity) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "customer-registration-" + count.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(pool, "customer.registration", Tags.empty()).bindTo(meterRegistry);
+        CurrentTraceContext traceContext = currentTraceContext.getIfAvailable();
+        return traceContext == null ? pool : traceContext.wrap(pool);
+    }
+
+    public record Result(Optional<PhoneNumberOwner> owner, FraudCheckResponse fraudCheckResponse) {
+    }
+}
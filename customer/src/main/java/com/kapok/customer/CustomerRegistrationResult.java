@@ -0,0 +1,11 @@
+package com.kapok.customer;
+
+import java.util.UUID;
+
+public record CustomerRegistrationResult(
+        UUID id,
+        Integer phoneNumber,
+        CustomerRegistrationStatus status,
+        String message
+) {
+}
@@ -0,0 +1,10 @@
+package com.kapok.customer;
+
+public enum CustomerRegistrationStatus {
+    REGISTERED,
+    ALREADY_REGISTERED,
+    PHONE_NUMBER_TAKEN,
+    ID_TAKEN,
+    FRAUDSTER,
+    INVALID
+}
@@ -1,16 +1,45 @@
 package com.kapok.customer;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, UUID> {
+public interface CustomerRepository extends JpaRepository<Customer, UUID>, CustomerBatchRepository {
 
     @Query("select c from Customer c where c.phoneNumber = ?1")
     Optional<Customer> findCustomerByPhoneNumber(Integer phoneNumber);
 
+    @Query("select c from Customer c where c.phoneNumber in ?1")
+    List<Customer> findCustomersByPhoneNumberIn(Collection<Integer> phoneNumbers);
+
+    @Query("select c.id from Customer c where c.id in ?1")
+    Set<UUID> findExistingIds(Collection<UUID> ids);
+
+    @Query("select c from Customer c order by c.id")
+    List<Customer> findFirstCustomers(Pageable pageable);
+
+    @Query("select c from Customer c where c.id > ?1 order by c.id")
+    List<Customer> findCustomersAfter(UUID after, Pageable pageable);
+
+    /**
+     * Streams every customer with a server-side cursor; must run inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.kapok.customer.CustomerDTO(c.id, c.firstName, c.lastName, c.phoneNumber, c.email) "
+            + "from Customer c")
+    Stream<CustomerDTO> streamAllCustomers();
+
 }
@@ -1,29 +1,78 @@
 package com.kapok.customer;
 
-import com.kapok.amqp.RabbitMQMessageProducer;
+import com.kapok.clients.fraud.FraudCheckRequest;
 import com.kapok.clients.fraud.FraudCheckResponse;
-import com.kapok.clients.fraud.FraudClient;
+import com.kapok.clients.fraud.FraudVerdictCache;
 import com.kapok.clients.notification.NotificationRequest;
+import com.kapok.customer.CustomerPhoneNumberCache.PhoneNumberOwner;
+import com.kapok.customer.outbox.NotificationOutboxMessage;
+import com.kapok.customer.outbox.NotificationOutboxRepository;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
 public class CustomerService {
 
+    // keeps the phone number IN list well below the postgres bind parameter limit
+    private static final int REGISTRATION_CHUNK_SIZE = 1000;
+    private static final int FRAUD_CHECK_BATCH_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final CustomerRepository customerRepository;
-    private final FraudClient fraudClient;
-    private final RabbitMQMessageProducer rabbitMQMessageProducer;
+    private final CustomerPhoneNumberCache customerPhoneNumberCache;
+    private final FraudVerdictCache fraudVerdictCache;
+    private final CustomerRegistrationChecks customerRegistrationChecks;
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final TransactionTemplate transactionTemplate;
     private final CustomerDTOMapper CustomerDTOMapper;
 
-    public List<CustomerDTO> getAllCustomers() {
-        return customerRepository.findAll().stream()
-                .map(CustomerDTOMapper).collect(Collectors.toList());
+    /**
+     * Keyset page of customers with ids greater than {@code after}, or the first page when
+     * {@code after} is null.
+     */
+    public CustomerPage getCustomers(UUID after, int limit) {
+        int size = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        // one extra row tells whether there is a next page
+        Pageable pageable = PageRequest.of(0, size + 1);
+        List<Customer> customers = after == null
+                ? customerRepository.findFirstCustomers(pageable)
+                : customerRepository.findCustomersAfter(after, pageable);
+        UUID next = null;
+        if (customers.size() > size) {
+            customers = customers.subList(0, size);
+            next = customers.get(size - 1).getId();
+        }
+        return new CustomerPage(customers.stream().map(CustomerDTOMapper).collect(Collectors.toList()), next);
+    }
+
+    /**
+     * Hands every customer to {@code consumer} from a database cursor, so memory use does
+     * not depend on the number of customers.
+     */
+    @Transactional(readOnly = true)
+    public void exportCustomers(Consumer<CustomerDTO> consumer) {
+        try (Stream<CustomerDTO> customers = customerRepository.streamAllCustomers()) {
+            customers.forEach(consumer);
+        }
     }
 
     public void registerCustomer(CustomerRegistrationRequest request) {
@@ -36,18 +85,19 @@ public class CustomerService {
                 .phoneNumber(request.phoneNumber())
                 .build();
 
-        Optional<Customer> customerOptional = customerRepository.findCustomerByPhoneNumber(request.phoneNumber());
-        if (customerOptional.isPresent()) {
+        // duplicate lookup and fraud check overlap, an existing owner cancels the fraud check
+        CustomerRegistrationChecks.Result checks = customerRegistrationChecks.check(customer);
+        Optional<PhoneNumberOwner> owner = checks.owner();
+        if (owner.isPresent()) {
             // make sure that's the exact same customer
-            if (!customerOptional.get().getEmail().equals(customer.getEmail())) {
+            if (!owner.get().email().equals(customer.getEmail())) {
                 throw new IllegalStateException(String.format("phone number [%s] is taken", request.phoneNumber()));
             }
             // If duplicate commits occur, return directly
             return;
         }
 
-
-        FraudCheckResponse fraudCheckResponse = fraudClient.isFraudster(customer.getId());
+        FraudCheckResponse fraudCheckResponse = checks.fraudCheckResponse();
 
         if (fraudCheckResponse != null && fraudCheckResponse.isFraudster()) { // fraudCheckResponse != null is fix when unit test customer entity id is null situation
             throw new IllegalStateException("fraudster exception");
@@ -56,19 +106,163 @@ public class CustomerService {
         if(request.id() == null)
             customer.setId(UUID.randomUUID());
 
-        customerRepository.save(customer);
+        // the welcome notification commits with the customer, NotificationOutboxRelay publishes it
+        transactionTemplate.executeWithoutResult(status -> {
+            customerRepository.save(customer);
+            notificationOutboxRepository.save(NotificationOutboxMessage.of(welcomeNotification(customer)));
+        });
+        customerPhoneNumberCache.put(customer);
+    }
+
+    /**
+     * Registers the requests in chunks of {@value #REGISTRATION_CHUNK_SIZE}, each committed
+     * in its own transaction, and reports a result per request. Requests that clash with
+     * a customer, in the database or earlier in the batch, are reported rather than
+     * failing the batch. If a chunk still fails to commit, for instance because a
+     * concurrent registration took one of its phone numbers, the exception propagates and
+     * earlier chunks stay committed. Resubmitting the whole batch is safe: the committed
+     * customers come back as {@link CustomerRegistrationStatus#ALREADY_REGISTERED}.
+     */
+    public List<CustomerRegistrationResult> registerCustomers(List<CustomerRegistrationRequest> requests) {
+        List<CustomerRegistrationResult> results = new ArrayList<>(requests.size());
+        for (int from = 0; from < requests.size(); from += REGISTRATION_CHUNK_SIZE) {
+            int to = Math.min(from + REGISTRATION_CHUNK_SIZE, requests.size());
+            results.addAll(registerChunk(requests.subList(from, to)));
+        }
+        return results;
+    }
+
+    private List<CustomerRegistrationResult> registerChunk(List<CustomerRegistrationRequest> requests) {
+        CustomerRegistrationResult[] results = new CustomerRegistrationResult[requests.size()];
+
+        // one set-based lookup instead of a query per phone number, and one for the ids
+        Map<Integer, PhoneNumberOwner> existing = customerPhoneNumberCache.findOwners(
+                requests.stream()
+                        .map(CustomerRegistrationRequest::phoneNumber)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()));
+        Set<UUID> requestedIds = requests.stream()
+                .map(CustomerRegistrationRequest::id)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<UUID> takenIds = requestedIds.isEmpty()
+                ? new HashSet<>()
+                : new HashSet<>(customerRepository.findExistingIds(requestedIds));
 
-        NotificationRequest notificationRequest = new NotificationRequest(
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CustomerRegistrationRequest request = requests.get(i);
+            if (request.firstName() == null || request.lastName() == null
+                    || request.email() == null || request.phoneNumber() == null) {
+                results[i] = new CustomerRegistrationResult(request.id(), request.phoneNumber(),
+                        CustomerRegistrationStatus.INVALID, "firstName, lastName, email and phoneNumber are required");
+            } else {
+                pending.add(i);
+            }
+        }
+
+        // Only customers that pass the fraud check own their phone number and id. Requests
+        // sharing either with a customer still being checked wait for the verdict: they
+        // resolve against the customer if it passes and get checked themselves if it does not.
+        Map<Integer, PhoneNumberOwner> owners = new HashMap<>(existing);
+        List<Customer> customers = new ArrayList<>();
+        while (!pending.isEmpty()) {
+            List<Customer> candidates = new ArrayList<>();
+            List<Integer> candidateIndexes = new ArrayList<>();
+            Set<Integer> candidatePhoneNumbers = new HashSet<>();
+            Set<UUID> candidateIds = new HashSet<>();
+            List<Integer> deferred = new ArrayList<>();
+            for (int i : pending) {
+                CustomerRegistrationRequest request = requests.get(i);
+                PhoneNumberOwner owner = owners.get(request.phoneNumber());
+                if (owner != null) {
+                    // make sure that's the exact same customer
+                    results[i] = owner.email().equals(request.email())
+                            ? new CustomerRegistrationResult(owner.id(), request.phoneNumber(),
+                                    CustomerRegistrationStatus.ALREADY_REGISTERED, null)
+                            : new CustomerRegistrationResult(request.id(), request.phoneNumber(),
+                                    CustomerRegistrationStatus.PHONE_NUMBER_TAKEN,
+                                    String.format("phone number [%s] is taken", request.phoneNumber()));
+                } else if (request.id() != null && takenIds.contains(request.id())) {
+                    results[i] = new CustomerRegistrationResult(request.id(), request.phoneNumber(),
+                            CustomerRegistrationStatus.ID_TAKEN, String.format("id [%s] is taken", request.id()));
+                } else if (candidatePhoneNumbers.contains(request.phoneNumber())
+                        || (request.id() != null && candidateIds.contains(request.id()))) {
+                    deferred.add(i);
+                } else {
+                    Customer customer = Customer.builder()
+                            .id(request.id() == null ? UUID.randomUUID() : request.id())
+                            .firstName(request.firstName())
+                            .lastName(request.lastName())
+                            .email(request.email())
+                            .phoneNumber(request.phoneNumber())
+                            .build();
+                    candidatePhoneNumbers.add(customer.getPhoneNumber());
+                    candidateIds.add(customer.getId());
+                    candidates.add(customer);
+                    candidateIndexes.add(i);
+                }
+            }
+
+            Set<UUID> fraudsters = findFraudsters(candidates);
+
+            for (int i = 0; i < candidates.size(); i++) {
+                Customer customer = candidates.get(i);
+                int index = candidateIndexes.get(i);
+                if (fraudsters.contains(customer.getId())) {
+                    results[index] = new CustomerRegistrationResult(customer.getId(), customer.getPhoneNumber(),
+                            CustomerRegistrationStatus.FRAUDSTER, "fraudster exception");
+                } else {
+                    customers.add(customer);
+                    owners.put(customer.getPhoneNumber(), PhoneNumberOwner.of(customer));
+                    takenIds.add(customer.getId());
+                    results[index] = new CustomerRegistrationResult(customer.getId(), customer.getPhoneNumber(),
+                            CustomerRegistrationStatus.REGISTERED, null);
+                }
+            }
+            pending = deferred;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            customerRepository.persistAll(customers);
+            notificationOutboxRepository.saveAll(customers.stream()
+                    .map(customer -> NotificationOutboxMessage.of(welcomeNotification(customer)))
+                    .collect(Collectors.toList()));
+        });
+        customerPhoneNumberCache.putAll(customers);
+        return Arrays.asList(results);
+    }
+
+    private Set<UUID> findFraudsters(List<Customer> customers) {
+        Set<UUID> fraudsters = new HashSet<>();
+        for (int from = 0; from < customers.size(); from += FRAUD_CHECK_BATCH_SIZE) {
+            List<FraudCheckRequest> fraudCheckRequests = customers
+                    .subList(from, Math.min(from + FRAUD_CHECK_BATCH_SIZE, customers.size()))
+                    .stream()
+                    .map(CustomerService::fraudCheckRequest)
+                    .collect(Collectors.toList());
+            Map<UUID, Boolean> verdicts = fraudVerdictCache.areFraudsters(fraudCheckRequests);
+            if (verdicts != null) {
+                verdicts.forEach((customerId, isFraudster) -> {
+                    if (Boolean.TRUE.equals(isFraudster)) {
+                        fraudsters.add(customerId);
+                    }
+                });
+            }
+        }
+        return fraudsters;
+    }
+
+    static FraudCheckRequest fraudCheckRequest(Customer customer) {
+        return new FraudCheckRequest(customer.getId(), customer.getEmail(), customer.getPhoneNumber());
+    }
+
+    static NotificationRequest welcomeNotification(Customer customer) {
+        return new NotificationRequest(
                 customer.getId(),
                 customer.getEmail(),
                 String.format("Hi %s, welcome to kapok ...",
                         customer.getEmail())
         );
-
-        rabbitMQMessageProducer.publish(
-                notificationRequest,
-                "internal.exchange",
-                "internal.notification.routing-key"
-        );
     }
 }
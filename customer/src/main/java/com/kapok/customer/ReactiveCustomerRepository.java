@@ -0,0 +1,59 @@
+package com.kapok.customer;
+
+import com.kapok.customer.CustomerPhoneNumberCache.PhoneNumberOwner;
+import com.kapok.customer.outbox.NotificationOutboxMessage;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * R2DBC access to the tables the JPA entities map, for the reactive registration path.
+ */
+@Repository
+public class ReactiveCustomerRepository {
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+
+    public ReactiveCustomerRepository(DatabaseClient databaseClient, ReactiveTransactionManager transactionManager) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+    }
+
+    public Mono<PhoneNumberOwner> findOwner(Integer phoneNumber) {
+        return databaseClient.sql("select id, email from customer where phone_number = :phoneNumber")
+                .bind("phoneNumber", phoneNumber)
+                .map((row, metadata) -> new PhoneNumberOwner(row.get("id", UUID.class), row.get("email", String.class)))
+                .one();
+    }
+
+    /**
+     * Inserts the customer and its outbox message in one transaction.
+     */
+    public Mono<Void> insert(Customer customer, NotificationOutboxMessage notification) {
+        Mono<Void> insertCustomer = databaseClient.sql("insert into customer "
+                        + "(id, first_name, last_name, email, phone_number) "
+                        + "values (:id, :firstName, :lastName, :email, :phoneNumber)")
+                .bind("id", customer.getId())
+                .bind("firstName", customer.getFirstName())
+                .bind("lastName", customer.getLastName())
+                .bind("email", customer.getEmail())
+                .bind("phoneNumber", customer.getPhoneNumber())
+                .then();
+        // ids drawn straight from the sequence never fall in a range pooled by hibernate
+        Mono<Void> insertNotification = databaseClient.sql("insert into notification_outbox_message "
+                        + "(id, to_customer_id, to_customer_name, message, created_at) "
+                        + "values (nextval('notification_outbox_id_sequence'), "
+                        + ":toCustomerId, :toCustomerName, :message, :createdAt)")
+                .bind("toCustomerId", notification.getToCustomerId())
+                .bind("toCustomerName", notification.getToCustomerName())
+                .bind("message", notification.getMessage())
+                .bind("createdAt", notification.getCreatedAt())
+                .then();
+        return insertCustomer.then(insertNotification).as(transactionalOperator::transactional);
+    }
+}
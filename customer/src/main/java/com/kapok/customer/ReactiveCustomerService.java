@@ -0,0 +1,68 @@
+package com.kapok.customer;
+
+import com.kapok.clients.fraud.FraudCheckResponse;
+import com.kapok.clients.fraud.FraudVerdictCache;
+import com.kapok.customer.CustomerPhoneNumberCache.PhoneNumberOwner;
+import com.kapok.customer.outbox.NotificationOutboxMessage;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Non-blocking variant of {@link CustomerService#registerCustomer}. The phone number
+ * lookup and the fraud check are independent, so both are in flight at once and a
+ * duplicate submission pays for a fraud check it did not need. The fraud check goes
+ * through {@link ReactiveFraudClient} without blocking, behind the {@link FraudVerdictCache}
+ * the blocking path uses, and with it the fraud guard and its fallback policy. The welcome
+ * notification goes through the same outbox as the blocking path.
+ */
+@Service
+@AllArgsConstructor
+public class ReactiveCustomerService {
+
+    private final ReactiveCustomerRepository reactiveCustomerRepository;
+    private final FraudVerdictCache fraudVerdictCache;
+    private final ReactiveFraudClient reactiveFraudClient;
+    private final CustomerPhoneNumberCache customerPhoneNumberCache;
+
+    public Mono<Void> registerCustomer(CustomerRegistrationRequest request) {
+        Customer customer = Customer.builder()
+                .id(request.id() == null ? UUID.randomUUID() : request.id())
+                .firstName(request.firstName())
+                .lastName(request.lastName())
+                .email(request.email())
+                .phoneNumber(request.phoneNumber())
+                .build();
+
+        Mono<Optional<PhoneNumberOwner>> owner = customerPhoneNumberCache.findCachedOwner(request.phoneNumber())
+                .map(cached -> Mono.just(Optional.of(cached)))
+                .orElseGet(() -> reactiveCustomerRepository.findOwner(request.phoneNumber())
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty()));
+        Mono<FraudCheckResponse> fraudCheckResponse = Mono
+                .fromFuture(() -> fraudVerdictCache.isFraudsterAsync(
+                        CustomerService.fraudCheckRequest(customer), reactiveFraudClient))
+                .defaultIfEmpty(new FraudCheckResponse(false));
+
+        return Mono.zip(owner, fraudCheckResponse).flatMap(checks -> {
+            if (checks.getT1().isPresent()) {
+                // make sure that's the exact same customer
+                if (!checks.getT1().get().email().equals(customer.getEmail())) {
+                    return Mono.error(new IllegalStateException(
+                            String.format("phone number [%s] is taken", request.phoneNumber())));
+                }
+                // If duplicate commits occur, return directly
+                return Mono.empty();
+            }
+            if (Boolean.TRUE.equals(checks.getT2().isFraudster())) {
+                return Mono.error(new IllegalStateException("fraudster exception"));
+            }
+            return reactiveCustomerRepository
+                    .insert(customer, NotificationOutboxMessage.of(CustomerService.welcomeNotification(customer)))
+                    .then(Mono.fromRunnable(() -> customerPhoneNumberCache.put(customer)));
+        });
+    }
+}
@@ -0,0 +1,51 @@
+package com.kapok.customer;
+
+import com.kapok.clients.fraud.AsyncFraudClient;
+import com.kapok.clients.fraud.FraudCheckRequest;
+import com.kapok.clients.fraud.FraudCheckResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link com.kapok.clients.fraud.FraudClient#isFraudster(FraudCheckRequest)}
+ * for the reactive registration path, on the WebClient event loop instead of a thread per
+ * call. It is only reached through {@link com.kapok.clients.fraud.FraudVerdictCache}, which
+ * puts the fraud guard and its fallback in front of it. A 4xx answer fails as an
+ * {@link HttpClientErrorException}, which the guard treats as the request's fault.
+ */
+@Component
+public class ReactiveFraudClient implements AsyncFraudClient {
+
+    private final WebClient webClient;
+    private final Duration timeout;
+
+    public ReactiveFraudClient(
+            WebClient.Builder webClientBuilder,
+            @Value("${clients.fraud.url}") String fraudUrl,
+            @Value("${customer.registration.fraud-check-timeout:3s}") Duration timeout) {
+        this.webClient = webClientBuilder.baseUrl(fraudUrl).build();
+        this.timeout = timeout;
+    }
+
+    @Override
+    public CompletableFuture<FraudCheckResponse> isFraudster(FraudCheckRequest fraudCheckRequest) {
+        return webClient.post()
+                .uri("/api/v1/fraud-check")
+                .bodyValue(fraudCheckRequest)
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, response -> response.createException()
+                        .map(e -> HttpClientErrorException.create(
+                                e.getStatusCode(), e.getStatusText(), e.getHeaders(),
+                                e.getResponseBodyAsByteArray(), null)))
+                .bodyToMono(FraudCheckResponse.class)
+                // a hung call would hold its guard permit until the connection gives up
+                .timeout(timeout)
+                .toFuture();
+    }
+}
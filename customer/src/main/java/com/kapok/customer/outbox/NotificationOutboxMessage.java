@@ -0,0 +1,64 @@
+package com.kapok.customer.outbox;
+
+import com.kapok.clients.notification.NotificationRequest;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Notification written in the same transaction as the customer it belongs to and
+ * deleted by {@link NotificationOutboxRelay} once the broker has confirmed it.
+ */
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class NotificationOutboxMessage {
+
+    @Id
+    @SequenceGenerator(
+            name = "notification_outbox_id_sequence",
+            sequenceName = "notification_outbox_id_sequence",
+            // pooled: one sequence call per allocationSize inserts
+            allocationSize = 500
+    )
+    @GeneratedValue(
+            strategy = GenerationType.SEQUENCE,
+            generator = "notification_outbox_id_sequence"
+    )
+    private Long id;
+    @Column(nullable = false)
+    private UUID toCustomerId;
+    @Column(nullable = false)
+    private String toCustomerName;
+    @Column(nullable = false)
+    private String message;
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public static NotificationOutboxMessage of(NotificationRequest request) {
+        return NotificationOutboxMessage.builder()
+                .toCustomerId(request.toCustomerId())
+                .toCustomerName(request.toCustomerName())
+                .message(request.message())
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    public NotificationRequest toRequest() {
+        return new NotificationRequest(toCustomerId, toCustomerName, message);
+    }
+}
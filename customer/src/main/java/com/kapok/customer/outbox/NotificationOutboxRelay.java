@@ -0,0 +1,165 @@
+package com.kapok.customer.outbox;
+
+import com.kapok.amqp.RabbitMQMessageProducer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Moves {@link NotificationOutboxMessage}s to the broker. Each of {@code workers} threads
+ * claims up to {@code batch-size} of the oldest messages with {@code skip locked},
+ * publishes them, waits for the publisher confirms and deletes them in the same
+ * transaction. A failed or unconfirmed batch rolls back and is claimed again, so delivery
+ * is at-least-once. Workers poll every {@code poll-interval} while the outbox is drained.
+ * <p>
+ * The claimed rows stay locked while the confirms are awaited. {@code skip locked} keeps
+ * other relays off them, and the wait is bounded twice: by {@code confirm-timeout}, and by
+ * {@code transaction-timeout}, which must exceed it and which rolls the batch back, lock
+ * released, should the claim or delete statements stall on top of the wait.
+ */
+@Slf4j
+@Component
+public class NotificationOutboxRelay {
+
+    private static final String EXCHANGE = "internal.exchange";
+    private static final String ROUTING_KEY = "internal.notification.routing-key";
+
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final RabbitMQMessageProducer rabbitMQMessageProducer;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final long confirmTimeoutMillis;
+    private final Timer relayTimer;
+    private final Counter relayedCounter;
+    private final Counter failedCounter;
+    private final int workers;
+    private final ExecutorService executor;
+    private volatile boolean running;
+
+    public NotificationOutboxRelay(
+            NotificationOutboxRepository notificationOutboxRepository,
+            RabbitMQMessageProducer rabbitMQMessageProducer,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${customer.outbox.workers:4}") int workers,
+            @Value("${customer.outbox.batch-size:500}") int batchSize,
+            @Value("${customer.outbox.poll-interval:200ms}") Duration pollInterval,
+            @Value("${customer.outbox.confirm-timeout:10s}") Duration confirmTimeout,
+            @Value("${customer.outbox.transaction-timeout:15s}") Duration transactionTimeout) {
+        if (transactionTimeout.compareTo(confirmTimeout) <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "customer.outbox.transaction-timeout %s must exceed confirm-timeout %s",
+                    transactionTimeout, confirmTimeout));
+        }
+        this.notificationOutboxRepository = notificationOutboxRepository;
+        this.rabbitMQMessageProducer = rabbitMQMessageProducer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout((int) Math.ceil(transactionTimeout.toMillis() / 1000.0));
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollInterval.toMillis();
+        this.confirmTimeoutMillis = confirmTimeout.toMillis();
+
+        this.relayTimer = Timer.builder("customer.outbox.relay")
+                .description("time to publish, confirm and delete one batch of outbox messages")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.relayedCounter = meterRegistry.counter("customer.outbox.messages", "result", "relayed");
+        this.failedCounter = meterRegistry.counter("customer.outbox.messages", "result", "failed");
+
+        this.workers = workers;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "customer-outbox-relay-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        new ExecutorServiceMetrics(executor, "customer.outbox.relay", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::run);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        executor.shutdownNow();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("notification outbox relay did not stop within 30s");
+        }
+        log.info("notification outbox relay stopped");
+    }
+
+    private void run() {
+        while (running) {
+            int relayed = 0;
+            try {
+                relayed = relayTimer.recordCallable(this::relayBatch);
+            } catch (Exception e) {
+                log.error("failed to relay notification outbox batch", e);
+            }
+            if (relayed < batchSize) {
+                try {
+                    Thread.sleep(pollIntervalMillis);
+                } catch (InterruptedException e) {
+                    // stop() interrupts us, the loop condition takes care of exiting
+                }
+            }
+        }
+    }
+
+    int relayBatch() {
+        Integer relayed = transactionTemplate.execute(status -> {
+            List<NotificationOutboxMessage> batch =
+                    notificationOutboxRepository.claimOldest(PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            try {
+                rabbitMQMessageProducer.publishAll(
+                        batch.stream().map(NotificationOutboxMessage::toRequest).collect(Collectors.toList()),
+                        EXCHANGE,
+                        ROUTING_KEY
+                ).get(confirmTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failedCounter.increment(batch.size());
+                throw new IllegalStateException("interrupted while waiting for publisher confirms", e);
+            } catch (ExecutionException | TimeoutException e) {
+                failedCounter.increment(batch.size());
+                throw new IllegalStateException(
+                        String.format("outbox batch of %s messages was not confirmed", batch.size()), e);
+            }
+            notificationOutboxRepository.deleteByIdIn(
+                    batch.stream().map(NotificationOutboxMessage::getId).collect(Collectors.toList()));
+            relayedCounter.increment(batch.size());
+            return batch.size();
+        });
+        return relayed == null ? 0 : relayed;
+    }
+}
@@ -0,0 +1,31 @@
+package com.kapok.customer.outbox;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutboxMessage, Long> {
+
+    /**
+     * Oldest pending messages, locked with {@code for update skip locked} so concurrent
+     * relays, in this instance or another, always claim disjoint batches.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select m from NotificationOutboxMessage m order by m.id")
+    List<NotificationOutboxMessage> claimOldest(Pageable pageable);
+
+    @Modifying
+    @Query("delete from NotificationOutboxMessage m where m.id in ?1")
+    int deleteByIdIn(Collection<Long> ids);
+}
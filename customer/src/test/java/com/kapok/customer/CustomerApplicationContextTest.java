@@ -0,0 +1,63 @@
+package com.kapok.customer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.ReactiveTransactionManager;
+import reactor.test.StepVerifier;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The customer service runs JPA and R2DBC side by side; both stacks must come up and
+ * reach the same database. In-memory H2 stands in for Postgres.
+ */
+@SpringBootTest(
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:customer;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.r2dbc.url=r2dbc:h2:mem:///customer;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "spring.r2dbc.username=sa",
+                "spring.r2dbc.password=",
+                "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "eureka.client.enabled=false"
+        }
+)
+class CustomerApplicationContextTest {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private ReactiveCustomerRepository reactiveCustomerRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ReactiveTransactionManager reactiveTransactionManager;
+
+    @Test
+    void itShouldLoadJpaAndR2dbcStacks() {
+        // given
+        UUID id = UUID.randomUUID();
+
+        // when
+        customerRepository.save(Customer.builder()
+                .id(id)
+                .firstName("kapok")
+                .lastName("code")
+                .email("kapokoffical@gmail.com")
+                .phoneNumber(131)
+                .build());
+
+        // then
+        assertThat(transactionManager).isInstanceOf(JpaTransactionManager.class);
+        assertThat(reactiveTransactionManager).isNotNull();
+        assertThat(customerRepository.findCustomerByPhoneNumber(131)).isPresent();
+        // the customer table hibernate created is there for R2DBC too
+        StepVerifier.create(reactiveCustomerRepository.findOwner(132)).verifyComplete();
+    }
+}
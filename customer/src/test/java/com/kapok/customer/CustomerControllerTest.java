@@ -0,0 +1,70 @@
+package com.kapok.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CustomerControllerTest {
+
+    @Mock
+    private CustomerService customerService;
+    @Mock
+    private ReactiveCustomerService reactiveCustomerService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(new CustomerController(
+                        customerService, reactiveCustomerService, new ObjectMapper(), Duration.ofMinutes(30)))
+                .build();
+    }
+
+    @Test
+    void itShouldExportCustomersAsNdjsonWithExportTimeout() throws Exception {
+        // given
+        CustomerDTO first = new CustomerDTO(UUID.randomUUID(), "kapok", "code", 131, "kapoktest@gmail.com");
+        CustomerDTO second = new CustomerDTO(UUID.randomUUID(), "john", "math", 132, "johnmath@gmail.com");
+        willAnswer(invocation -> {
+            Consumer<CustomerDTO> consumer = invocation.getArgument(0);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).given(customerService).exportCustomers(any());
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/v1/customers/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        assertThat(result.getRequest().getAsyncContext().getTimeout())
+                .isEqualTo(Duration.ofMinutes(30).toMillis());
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertThat(body).isEqualTo(objectMapper.writeValueAsString(first) + "\n"
+                + objectMapper.writeValueAsString(second) + "\n");
+    }
+}
@@ -0,0 +1,152 @@
+package com.kapok.customer;
+
+import com.kapok.clients.fraud.FraudCheckGuard;
+import com.kapok.clients.fraud.FraudCheckRequest;
+import com.kapok.clients.fraud.FraudClient;
+import com.kapok.clients.fraud.FraudVerdictCache;
+import com.kapok.customer.CustomerPhoneNumberCache.PhoneNumberOwner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+class CustomerRegistrationChecksTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+    @Mock
+    private FraudClient fraudClient;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ExecutorService executor;
+    private CustomerPhoneNumberCache customerPhoneNumberCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        customerPhoneNumberCache = new CustomerPhoneNumberCache(
+                customerRepository, meterRegistry, 1000, Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void itShouldApplyFailOpenFallbackWhenFraudCheckIsRejected() {
+        // given
+        CustomerRegistrationChecks underTest = underTest("fail-open", 1);
+        given(customerRepository.findCustomerByPhoneNumber(123456)).willReturn(Optional.empty());
+
+        // when
+        CustomerRegistrationChecks.Result result = underTest.check(customer());
+
+        // then
+        assertThat(result.owner()).isEmpty();
+        assertThat(result.fraudCheckResponse().isFraudster()).isFalse();
+        then(fraudClient).should(never()).isFraudster(any(FraudCheckRequest.class));
+        assertThat(rejected("fraud-check")).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldRefuseFreePhoneNumberWhenFraudCheckIsRejectedAndFailsClosed() {
+        // given
+        CustomerRegistrationChecks underTest = underTest("fail-closed", 1);
+        given(customerRepository.findCustomerByPhoneNumber(123456)).willReturn(Optional.empty());
+
+        // when
+        // then
+        assertThatThrownBy(() -> underTest.check(customer()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("fraud check unavailable");
+        then(fraudClient).should(never()).isFraudster(any(FraudCheckRequest.class));
+    }
+
+    @Test
+    void itShouldReturnOwnerWhenFraudCheckIsRejectedAndFailsClosed() {
+        // given
+        CustomerRegistrationChecks underTest = underTest("fail-closed", 1);
+        Customer owner = customer();
+        given(customerRepository.findCustomerByPhoneNumber(123456)).willReturn(Optional.of(owner));
+
+        // when
+        CustomerRegistrationChecks.Result result = underTest.check(customer());
+
+        // then
+        assertThat(result.owner()).contains(new PhoneNumberOwner(owner.getId(), owner.getEmail()));
+    }
+
+    @Test
+    void itShouldFailWithoutRunningDuplicateLookupInlineWhenItIsRejected() {
+        // given
+        CustomerRegistrationChecks underTest = underTest("fail-open", 2);
+
+        // when
+        // then
+        assertThatThrownBy(() -> underTest.check(customer()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("saturated");
+        then(customerRepository).should(never()).findCustomerByPhoneNumber(any());
+        assertThat(rejected("duplicate-lookup")).isEqualTo(1);
+    }
+
+    /**
+     * Checks on a pool that rejects its first {@code rejections} steps, the fraud check
+     * being submitted first.
+     */
+    private CustomerRegistrationChecks underTest(String fallback, int rejections) {
+        AtomicInteger remaining = new AtomicInteger(rejections);
+        executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(Runnable command) {
+                if (remaining.getAndDecrement() > 0) {
+                    throw new RejectedExecutionException("saturated");
+                }
+                super.execute(command);
+            }
+        };
+        FraudCheckGuard fraudCheckGuard = new FraudCheckGuard(
+                fraudClient, meterRegistry, 20, 4, 200, Duration.ofMillis(500), 0.9,
+                0.5, 50, 20, Duration.ofSeconds(10), 5, fallback);
+        FraudVerdictCache fraudVerdictCache = new FraudVerdictCache(
+                fraudCheckGuard, meterRegistry, 1000, Duration.ofMinutes(1), Duration.ofMinutes(10));
+        return new CustomerRegistrationChecks(customerPhoneNumberCache, fraudVerdictCache,
+                executor, meterRegistry, Duration.ofSeconds(2), Duration.ofMillis(500));
+    }
+
+    private double rejected(String step) {
+        return meterRegistry.counter("customer.registration.rejected", "step", step).count();
+    }
+
+    private static Customer customer() {
+        return Customer.builder()
+                .id(UUID.randomUUID())
+                .firstName("Alex")
+                .lastName("Jones")
+                .email("alex@gmail.com")
+                .phoneNumber(123456)
+                .build();
+    }
+}
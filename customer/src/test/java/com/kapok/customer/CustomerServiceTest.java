@@ -1,26 +1,43 @@
 package com.kapok.customer;
 
-import com.kapok.amqp.RabbitMQMessageProducer;
+import com.kapok.clients.fraud.FraudCheckGuard;
+import com.kapok.clients.fraud.FraudCheckRequest;
 import com.kapok.clients.fraud.FraudCheckResponse;
 import com.kapok.clients.fraud.FraudClient;
+import com.kapok.clients.fraud.FraudVerdictCache;
 import com.kapok.clients.notification.NotificationRequest;
+import com.kapok.customer.outbox.NotificationOutboxMessage;
+import com.kapok.customer.outbox.NotificationOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 class CustomerServiceTest {
@@ -30,31 +47,85 @@ class CustomerServiceTest {
     @Mock
     private FraudClient fraudClient;
     @Mock
-    private RabbitMQMessageProducer rabbitMQMessageProducer;
+    private NotificationOutboxRepository notificationOutboxRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
     @Mock
     private CustomerDTOMapper customerDTOMapper;
 
     @Captor
     private ArgumentCaptor<Customer> customerArgumentCaptor;
+    @Captor
+    private ArgumentCaptor<List<Customer>> customerListArgumentCaptor;
+    @Captor
+    private ArgumentCaptor<NotificationOutboxMessage> outboxMessageArgumentCaptor;
+    @Captor
+    private ArgumentCaptor<List<NotificationOutboxMessage>> outboxMessageListArgumentCaptor;
 
+    private ExecutorService registrationExecutor;
     private CustomerService underTest;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        // the fraud service clears everyone unless a test says otherwise
+        given(fraudClient.isFraudster(any(FraudCheckRequest.class))).willReturn(new FraudCheckResponse(false));
+        given(fraudClient.areFraudsters(anyList())).willAnswer(invocation -> {
+            List<FraudCheckRequest> requests = invocation.getArgument(0);
+            return requests.stream().collect(Collectors.toMap(FraudCheckRequest::customerId, request -> false));
+        });
+        CustomerPhoneNumberCache customerPhoneNumberCache = new CustomerPhoneNumberCache(
+                customerRepository, new SimpleMeterRegistry(), 1000, Duration.ofMinutes(10));
+        FraudCheckGuard fraudCheckGuard = new FraudCheckGuard(
+                fraudClient, new SimpleMeterRegistry(), 20, 4, 200, Duration.ofMillis(500), 0.9,
+                0.5, 50, 20, Duration.ofSeconds(10), 5, "fail-closed");
+        FraudVerdictCache fraudVerdictCache = new FraudVerdictCache(
+                fraudCheckGuard, new SimpleMeterRegistry(), 1000, Duration.ofMinutes(1), Duration.ofMinutes(10));
+        registrationExecutor = Executors.newFixedThreadPool(2);
         underTest = new CustomerService(
                 customerRepository,
-                fraudClient,
-                rabbitMQMessageProducer,
+                customerPhoneNumberCache,
+                fraudVerdictCache,
+                new CustomerRegistrationChecks(customerPhoneNumberCache, fraudVerdictCache,
+                        registrationExecutor, new SimpleMeterRegistry(),
+                        Duration.ofSeconds(2), Duration.ofMillis(500)),
+                notificationOutboxRepository,
+                new TransactionTemplate(transactionManager),
                 customerDTOMapper);
     }
 
+    @AfterEach
+    void tearDown() {
+        registrationExecutor.shutdownNow();
+    }
+
     @Test
-    void itShouldGetAllCustomers() {
+    void itShouldGetFirstPageOfCustomers() {
         // when
-        underTest.getAllCustomers();
+        underTest.getCustomers(null, 100);
         // then
-        verify(customerRepository).findAll();
+        verify(customerRepository).findFirstCustomers(PageRequest.of(0, 101));
+    }
+
+    @Test
+    void itShouldGetCustomersAfterCursor() {
+        // given
+        UUID after = UUID.randomUUID();
+        List<Customer> customers = List.of(
+                Customer.builder().id(UUID.randomUUID()).build(),
+                Customer.builder().id(UUID.randomUUID()).build(),
+                Customer.builder().id(UUID.randomUUID()).build());
+        given(customerRepository.findCustomersAfter(after, PageRequest.of(0, 3)))
+                .willReturn(customers);
+        given(customerDTOMapper.apply(any(Customer.class)))
+                .willAnswer(invocation -> new CustomerDTOMapper().apply(invocation.getArgument(0)));
+
+        // when
+        CustomerPage page = underTest.getCustomers(after, 2);
+
+        // then
+        assertThat(page.customers().size()).isEqualTo(2);
+        assertThat(page.next()).isEqualTo(customers.get(1).getId());
     }
 
     @Test
@@ -74,7 +145,8 @@ class CustomerServiceTest {
                 .willReturn(Optional.empty());
 
         // ... Customer is not fraud
-        given(fraudClient.isFraudster(request.id()))
+        given(fraudClient.isFraudster(
+                new FraudCheckRequest(request.id(), request.email(), request.phoneNumber())))
                 .willReturn(new FraudCheckResponse(false));
         // ... The customer successfully registers the notification request
         NotificationRequest notificationRequest = new NotificationRequest(
@@ -89,13 +161,11 @@ class CustomerServiceTest {
 
         // then
         then(customerRepository).should().save(customerArgumentCaptor.capture());
-        then(fraudClient).should().isFraudster(request.id());
+        then(fraudClient).should().isFraudster(
+                new FraudCheckRequest(request.id(), request.email(), request.phoneNumber()));
 
-        then(rabbitMQMessageProducer).should().publish(
-                notificationRequest,
-                "internal.exchange",
-                "internal.notification.routing-key"
-        );
+        then(notificationOutboxRepository).should().save(outboxMessageArgumentCaptor.capture());
+        assertThat(outboxMessageArgumentCaptor.getValue().toRequest()).isEqualTo(notificationRequest);
         Customer customerArgumentCaptorValue = customerArgumentCaptor.getValue();
         assertThat(customerArgumentCaptorValue).usingRecursiveComparison().ignoringFields("id").isEqualTo(request);
     }
@@ -123,7 +193,8 @@ class CustomerServiceTest {
                 .willReturn(Optional.of(customer));
 
         // ... customer is not fraud
-        given(fraudClient.isFraudster(customer.getId()))
+        given(fraudClient.isFraudster(
+                new FraudCheckRequest(customer.getId(), customer.getEmail(), customer.getPhoneNumber())))
                 .willReturn(new FraudCheckResponse(false));
 
         // When
@@ -133,6 +204,32 @@ class CustomerServiceTest {
         then(customerRepository).should(never()).save(any());
     }
 
+    @Test
+    void itShouldLookUpRegisteredPhoneNumberOnlyOnce() {
+        // given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                UUID.randomUUID(),
+                "kapok",
+                "code",
+                131,
+                "kapoktest@gmail.com"
+        );
+        given(customerRepository.findCustomerByPhoneNumber(request.phoneNumber()))
+                .willReturn(Optional.empty());
+        given(fraudClient.isFraudster(
+                new FraudCheckRequest(request.id(), request.email(), request.phoneNumber())))
+                .willReturn(new FraudCheckResponse(false));
+
+        // when
+        // ... the same registration is submitted again
+        underTest.registerCustomer(request);
+        underTest.registerCustomer(request);
+
+        // then
+        then(customerRepository).should(times(1)).findCustomerByPhoneNumber(request.phoneNumber());
+        then(customerRepository).should(times(1)).save(any(Customer.class));
+    }
+
     @Test
     void itShouldNotSaveCustomerWhenCustomerExists() {
         CustomerRegistrationRequest request = new CustomerRegistrationRequest(
@@ -181,7 +278,8 @@ class CustomerServiceTest {
                 .willReturn(Optional.empty());
 
         // ... Customer is not fraud
-        given(fraudClient.isFraudster(request.id()))
+        given(fraudClient.isFraudster(
+                new FraudCheckRequest(request.id(), request.email(), request.phoneNumber())))
                 .willReturn(new FraudCheckResponse(true));
 
         // When
@@ -194,6 +292,87 @@ class CustomerServiceTest {
         then(customerRepository).should(never()).save(any(Customer.class));
     }
 
+    @Test
+    void itShouldCheckRetriedFrauderOnlyOnce() {
+        // given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                UUID.randomUUID(),
+                "kapok",
+                "code",
+                131,
+                "kapoktest@gmail.com"
+        );
+        given(customerRepository.findCustomerByPhoneNumber(request.phoneNumber()))
+                .willReturn(Optional.empty());
+        given(fraudClient.isFraudster(
+                new FraudCheckRequest(request.id(), request.email(), request.phoneNumber())))
+                .willReturn(new FraudCheckResponse(true));
+
+        // When
+        // ... the client retries the rejected registration
+        assertThatThrownBy(() -> underTest.registerCustomer(request))
+                .hasMessageContaining("fraudster exception");
+        assertThatThrownBy(() -> underTest.registerCustomer(request))
+                .hasMessageContaining("fraudster exception");
+
+        // Then
+        then(fraudClient).should(times(1)).isFraudster(
+                new FraudCheckRequest(request.id(), request.email(), request.phoneNumber()));
+    }
+
+    @Test
+    void itShouldNotSaveCustomerWhenFraudCheckTimesOut() {
+        // given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                UUID.randomUUID(),
+                "kapok",
+                "code",
+                131,
+                "kapoktest@gmail.com"
+        );
+        given(customerRepository.findCustomerByPhoneNumber(request.phoneNumber()))
+                .willReturn(Optional.empty());
+        // ... the fraud service does not answer in time
+        given(fraudClient.isFraudster(
+                new FraudCheckRequest(request.id(), request.email(), request.phoneNumber())))
+                .willAnswer(invocation -> {
+                    Thread.sleep(Duration.ofSeconds(10).toMillis());
+                    return new FraudCheckResponse(false);
+                });
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.registerCustomer(request))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("fraud check timed out");
+        then(customerRepository).should(never()).save(any(Customer.class));
+    }
+
+    @Test
+    void itShouldNotSaveCustomerWhenFraudServiceFails() {
+        // given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                UUID.randomUUID(),
+                "kapok",
+                "code",
+                131,
+                "kapoktest@gmail.com"
+        );
+        given(customerRepository.findCustomerByPhoneNumber(request.phoneNumber()))
+                .willReturn(Optional.empty());
+        // ... the fraud service is down, the fallback policy is fail-closed
+        given(fraudClient.isFraudster(
+                new FraudCheckRequest(request.id(), request.email(), request.phoneNumber())))
+                .willThrow(new IllegalStateException("connection refused"));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.registerCustomer(request))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("fraud check unavailable");
+        then(customerRepository).should(never()).save(any(Customer.class));
+    }
+
     @Test
     void itShouldSaveCustomerWhenIdIsNull(){
         CustomerRegistrationRequest request = new CustomerRegistrationRequest(
@@ -219,4 +398,149 @@ class CustomerServiceTest {
         assertThat(customerArgumentCaptorValue.getId()).isNotNull();
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void itShouldRegisterCustomersInBatch() {
+        // given
+        CustomerRegistrationRequest newCustomer = new CustomerRegistrationRequest(
+                UUID.randomUUID(), "kapok", "code", 131, "kapoktest@gmail.com");
+        CustomerRegistrationRequest existingCustomer = new CustomerRegistrationRequest(
+                UUID.randomUUID(), "john", "math", 132, "johnmath@gmail.com");
+        CustomerRegistrationRequest takenPhoneNumber = new CustomerRegistrationRequest(
+                UUID.randomUUID(), "jane", "math", 132, "janemath@gmail.com");
+        CustomerRegistrationRequest fraudster = new CustomerRegistrationRequest(
+                UUID.randomUUID(), "fraud", "ster", 133, "fraudster@gmail.com");
+        CustomerRegistrationRequest invalid = new CustomerRegistrationRequest(
+                UUID.randomUUID(), null, "code", 134, "invalid@gmail.com");
+
+        // ... one customer already registered with phone number 132
+        given(customerRepository.findCustomersByPhoneNumberIn(any()))
+                .willReturn(List.of(Customer.builder()
+                        .id(existingCustomer.id())
+                        .firstName(existingCustomer.firstName())
+                        .lastName(existingCustomer.lastName())
+                        .email(existingCustomer.email())
+                        .phoneNumber(existingCustomer.phoneNumber())
+                        .build()));
+        given(fraudClient.areFraudsters(List.of(
+                new FraudCheckRequest(newCustomer.id(), newCustomer.email(), newCustomer.phoneNumber()),
+                new FraudCheckRequest(fraudster.id(), fraudster.email(), fraudster.phoneNumber()))))
+                .willReturn(Map.of(newCustomer.id(), false, fraudster.id(), true));
+
+        // when
+        List<CustomerRegistrationResult> results = underTest.registerCustomers(
+                List.of(newCustomer, existingCustomer, takenPhoneNumber, fraudster, invalid));
+
+        // then
+        assertThat(results.stream().map(CustomerRegistrationResult::status).collect(Collectors.toList()))
+                .isEqualTo(List.of(
+                        CustomerRegistrationStatus.REGISTERED,
+                        CustomerRegistrationStatus.ALREADY_REGISTERED,
+                        CustomerRegistrationStatus.PHONE_NUMBER_TAKEN,
+                        CustomerRegistrationStatus.FRAUDSTER,
+                        CustomerRegistrationStatus.INVALID));
+        then(customerRepository).should().findCustomersByPhoneNumberIn(any());
+        then(customerRepository).should(never()).findCustomerByPhoneNumber(any());
+        then(fraudClient).should(never()).isFraudster(any(FraudCheckRequest.class));
+        then(customerRepository).should().persistAll(customerListArgumentCaptor.capture());
+        assertThat(customerListArgumentCaptor.getValue().size()).isEqualTo(1);
+        assertThat(customerListArgumentCaptor.getValue().get(0))
+                .usingRecursiveComparison().isEqualTo(newCustomer);
+        then(notificationOutboxRepository).should().saveAll(outboxMessageListArgumentCaptor.capture());
+        assertThat(outboxMessageListArgumentCaptor.getValue().stream()
+                .map(NotificationOutboxMessage::toRequest)
+                .collect(Collectors.toList()))
+                .isEqualTo(List.of(new NotificationRequest(
+                        newCustomer.id(),
+                        newCustomer.email(),
+                        String.format("Hi %s, welcome to kapok ...", newCustomer.email()))));
+    }
+
+    @Test
+    void itShouldNotRegisterSamePhoneNumberTwiceInOneBatch() {
+        // given
+        CustomerRegistrationRequest first = new CustomerRegistrationRequest(
+                null, "kapok", "code", 131, "kapoktest@gmail.com");
+        CustomerRegistrationRequest resubmitted = new CustomerRegistrationRequest(
+                null, "kapok", "code", 131, "kapoktest@gmail.com");
+        CustomerRegistrationRequest other = new CustomerRegistrationRequest(
+                null, "john", "math", 131, "johnmath@gmail.com");
+
+        given(customerRepository.findCustomersByPhoneNumberIn(any()))
+                .willReturn(List.of());
+
+        // when
+        List<CustomerRegistrationResult> results = underTest.registerCustomers(List.of(first, resubmitted, other));
+
+        // then
+        assertThat(results.get(0).status()).isEqualTo(CustomerRegistrationStatus.REGISTERED);
+        assertThat(results.get(0).id()).isNotNull();
+        assertThat(results.get(1).status()).isEqualTo(CustomerRegistrationStatus.ALREADY_REGISTERED);
+        assertThat(results.get(1).id()).isEqualTo(results.get(0).id());
+        assertThat(results.get(2).status()).isEqualTo(CustomerRegistrationStatus.PHONE_NUMBER_TAKEN);
+        then(customerRepository).should().persistAll(customerListArgumentCaptor.capture());
+        assertThat(customerListArgumentCaptor.getValue().size()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldCheckSamePhoneNumberAgainWhenFirstRequestIsFraudster() {
+        // given
+        CustomerRegistrationRequest fraudster = new CustomerRegistrationRequest(
+                UUID.randomUUID(), "fraud", "ster", 131, "kapoktest@gmail.com");
+        CustomerRegistrationRequest resubmitted = new CustomerRegistrationRequest(
+                UUID.randomUUID(), "kapok", "code", 131, "kapoktest@gmail.com");
+
+        given(customerRepository.findCustomersByPhoneNumberIn(any()))
+                .willReturn(List.of());
+        given(fraudClient.areFraudsters(List.of(
+                new FraudCheckRequest(fraudster.id(), fraudster.email(), fraudster.phoneNumber()))))
+                .willReturn(Map.of(fraudster.id(), true));
+        given(fraudClient.areFraudsters(List.of(
+                new FraudCheckRequest(resubmitted.id(), resubmitted.email(), resubmitted.phoneNumber()))))
+                .willReturn(Map.of(resubmitted.id(), false));
+
+        // when
+        List<CustomerRegistrationResult> results = underTest.registerCustomers(List.of(fraudster, resubmitted));
+
+        // then
+        assertThat(results.get(0).status()).isEqualTo(CustomerRegistrationStatus.FRAUDSTER);
+        assertThat(results.get(1).status()).isEqualTo(CustomerRegistrationStatus.REGISTERED);
+        assertThat(results.get(1).id()).isEqualTo(resubmitted.id());
+        then(customerRepository).should().persistAll(customerListArgumentCaptor.capture());
+        assertThat(customerListArgumentCaptor.getValue().size()).isEqualTo(1);
+        assertThat(customerListArgumentCaptor.getValue().get(0).getId()).isEqualTo(resubmitted.id());
+    }
+
+    @Test
+    void itShouldReportTakenIdsInsteadOfFailingBatch() {
+        // given
+        UUID existingId = UUID.randomUUID();
+        UUID sharedId = UUID.randomUUID();
+        CustomerRegistrationRequest existingIdRequest = new CustomerRegistrationRequest(
+                existingId, "kapok", "code", 131, "kapoktest@gmail.com");
+        CustomerRegistrationRequest first = new CustomerRegistrationRequest(
+                sharedId, "john", "math", 132, "johnmath@gmail.com");
+        CustomerRegistrationRequest sameId = new CustomerRegistrationRequest(
+                sharedId, "jane", "math", 133, "janemath@gmail.com");
+
+        given(customerRepository.findCustomersByPhoneNumberIn(any()))
+                .willReturn(List.of());
+        given(customerRepository.findExistingIds(any()))
+                .willReturn(Set.of(existingId));
+
+        // when
+        List<CustomerRegistrationResult> results = underTest.registerCustomers(
+                List.of(existingIdRequest, first, sameId));
+
+        // then
+        assertThat(results.stream().map(CustomerRegistrationResult::status).collect(Collectors.toList()))
+                .isEqualTo(List.of(
+                        CustomerRegistrationStatus.ID_TAKEN,
+                        CustomerRegistrationStatus.REGISTERED,
+                        CustomerRegistrationStatus.ID_TAKEN));
+        then(customerRepository).should().persistAll(customerListArgumentCaptor.capture());
+        assertThat(customerListArgumentCaptor.getValue().size()).isEqualTo(1);
+        assertThat(customerListArgumentCaptor.getValue().get(0))
+                .usingRecursiveComparison().isEqualTo(first);
+    }
+}
@@ -0,0 +1,208 @@
+package com.kapok.customer;
+
+import com.kapok.clients.fraud.FraudCheckGuard;
+import com.kapok.clients.fraud.FraudCheckRequest;
+import com.kapok.clients.fraud.FraudCheckResponse;
+import com.kapok.clients.fraud.FraudClient;
+import com.kapok.clients.fraud.FraudVerdictCache;
+import com.kapok.customer.CustomerPhoneNumberCache.PhoneNumberOwner;
+import com.kapok.customer.outbox.NotificationOutboxMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+class ReactiveCustomerServiceTest {
+
+    @Mock
+    private ReactiveCustomerRepository reactiveCustomerRepository;
+    @Mock
+    private FraudClient fraudClient;
+    @Mock
+    private ReactiveFraudClient reactiveFraudClient;
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Captor
+    private ArgumentCaptor<Customer> customerArgumentCaptor;
+    @Captor
+    private ArgumentCaptor<NotificationOutboxMessage> outboxMessageArgumentCaptor;
+
+    private CustomerPhoneNumberCache customerPhoneNumberCache;
+    private ReactiveCustomerService underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        customerPhoneNumberCache = new CustomerPhoneNumberCache(
+                customerRepository, new SimpleMeterRegistry(), 1000, Duration.ofMinutes(10));
+        underTest = new ReactiveCustomerService(
+                reactiveCustomerRepository, fraudVerdictCache("fail-closed"), reactiveFraudClient, customerPhoneNumberCache);
+    }
+
+    private FraudVerdictCache fraudVerdictCache(String fallback) {
+        FraudCheckGuard fraudCheckGuard = new FraudCheckGuard(
+                fraudClient, new SimpleMeterRegistry(), 20, 4, 200, Duration.ofMillis(500), 0.9,
+                0.5, 50, 20, Duration.ofSeconds(10), 5, fallback);
+        return new FraudVerdictCache(
+                fraudCheckGuard, new SimpleMeterRegistry(), 1000, Duration.ofMinutes(1), Duration.ofMinutes(10));
+    }
+
+    @Test
+    void itShouldRegisterCustomerAndQueueWelcomeNotification() {
+        // given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                UUID.randomUUID(), "Alex", "Jones", 123456, "alex@gmail.com");
+        given(reactiveCustomerRepository.findOwner(request.phoneNumber())).willReturn(Mono.empty());
+        given(reactiveFraudClient.isFraudster(any(FraudCheckRequest.class)))
+                .willReturn(CompletableFuture.completedFuture(new FraudCheckResponse(false)));
+        given(reactiveCustomerRepository.insert(any(), any())).willReturn(Mono.empty());
+
+        // when
+        StepVerifier.create(underTest.registerCustomer(request)).verifyComplete();
+
+        // then
+        then(reactiveCustomerRepository).should()
+                .insert(customerArgumentCaptor.capture(), outboxMessageArgumentCaptor.capture());
+        assertThat(customerArgumentCaptor.getValue().getId()).isEqualTo(request.id());
+        assertThat(outboxMessageArgumentCaptor.getValue().getToCustomerId()).isEqualTo(request.id());
+        assertThat(customerPhoneNumberCache.findCachedOwner(request.phoneNumber()))
+                .isEqualTo(Optional.of(new PhoneNumberOwner(request.id(), request.email())));
+        then(fraudClient).shouldHaveNoInteractions();
+    }
+
+    @Test
+    void itShouldNotSaveCustomerWhenCachedOwnerIsSameCustomer() {
+        // given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                UUID.randomUUID(), "Alex", "Jones", 123456, "alex@gmail.com");
+        customerPhoneNumberCache.put(Customer.builder()
+                .id(request.id()).email(request.email()).phoneNumber(request.phoneNumber()).build());
+        given(reactiveFraudClient.isFraudster(any(FraudCheckRequest.class)))
+                .willReturn(CompletableFuture.completedFuture(new FraudCheckResponse(false)));
+
+        // when
+        StepVerifier.create(underTest.registerCustomer(request)).verifyComplete();
+
+        // then
+        then(reactiveCustomerRepository).should(never()).findOwner(any());
+        then(reactiveCustomerRepository).should(never()).insert(any(), any());
+    }
+
+    @Test
+    void itShouldFailWhenPhoneNumberIsTaken() {
+        // given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                UUID.randomUUID(), "Alex", "Jones", 123456, "alex@gmail.com");
+        given(reactiveCustomerRepository.findOwner(request.phoneNumber()))
+                .willReturn(Mono.just(new PhoneNumberOwner(UUID.randomUUID(), "other@gmail.com")));
+        given(reactiveFraudClient.isFraudster(any(FraudCheckRequest.class)))
+                .willReturn(CompletableFuture.completedFuture(new FraudCheckResponse(false)));
+
+        // when
+        // then
+        StepVerifier.create(underTest.registerCustomer(request))
+                .verifyErrorMessage(String.format("phone number [%s] is taken", request.phoneNumber()));
+        then(reactiveCustomerRepository).should(never()).insert(any(), any());
+    }
+
+    @Test
+    void itShouldFailWhenCustomerIsFraudster() {
+        // given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                UUID.randomUUID(), "Alex", "Jones", 123456, "alex@gmail.com");
+        given(reactiveCustomerRepository.findOwner(request.phoneNumber())).willReturn(Mono.empty());
+        given(reactiveFraudClient.isFraudster(any(FraudCheckRequest.class)))
+                .willReturn(CompletableFuture.completedFuture(new FraudCheckResponse(true)));
+
+        // when
+        // then
+        StepVerifier.create(underTest.registerCustomer(request)).verifyErrorMessage("fraudster exception");
+        then(reactiveCustomerRepository).should(never()).insert(any(), any());
+    }
+
+    @Test
+    void itShouldAnswerRepeatedFraudCheckFromVerdictCache() {
+        // given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                UUID.randomUUID(), "Alex", "Jones", 123456, "alex@gmail.com");
+        given(reactiveCustomerRepository.findOwner(request.phoneNumber())).willReturn(Mono.empty());
+        given(reactiveFraudClient.isFraudster(any(FraudCheckRequest.class)))
+                .willReturn(CompletableFuture.completedFuture(new FraudCheckResponse(true)));
+        StepVerifier.create(underTest.registerCustomer(request)).verifyErrorMessage("fraudster exception");
+
+        // when
+        // then
+        StepVerifier.create(underTest.registerCustomer(request)).verifyErrorMessage("fraudster exception");
+        then(reactiveFraudClient).should(times(1)).isFraudster(any(FraudCheckRequest.class));
+    }
+
+    @Test
+    void itShouldRefuseRegistrationWhenFraudServiceFailsClosed() {
+        // given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                UUID.randomUUID(), "Alex", "Jones", 123456, "alex@gmail.com");
+        given(reactiveCustomerRepository.findOwner(request.phoneNumber())).willReturn(Mono.empty());
+        given(reactiveFraudClient.isFraudster(any(FraudCheckRequest.class)))
+                .willReturn(CompletableFuture.failedFuture(new IllegalStateException("down")));
+
+        // when
+        // then
+        StepVerifier.create(underTest.registerCustomer(request)).verifyErrorMessage("fraud check unavailable");
+        then(reactiveCustomerRepository).should(never()).insert(any(), any());
+    }
+
+    @Test
+    void itShouldRegisterWhenFraudServiceFailsOpen() {
+        // given
+        underTest = new ReactiveCustomerService(
+                reactiveCustomerRepository, fraudVerdictCache("fail-open"), reactiveFraudClient, customerPhoneNumberCache);
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                UUID.randomUUID(), "Alex", "Jones", 123456, "alex@gmail.com");
+        given(reactiveCustomerRepository.findOwner(request.phoneNumber())).willReturn(Mono.empty());
+        given(reactiveFraudClient.isFraudster(any(FraudCheckRequest.class)))
+                .willReturn(CompletableFuture.failedFuture(new IllegalStateException("down")));
+        given(reactiveCustomerRepository.insert(any(), any())).willReturn(Mono.empty());
+
+        // when
+        StepVerifier.create(underTest.registerCustomer(request)).verifyComplete();
+
+        // then
+        then(reactiveCustomerRepository).should().insert(any(), any());
+    }
+
+    @Test
+    void itShouldWaitForFraudCheckWithoutBlocking() {
+        // given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                UUID.randomUUID(), "Alex", "Jones", 123456, "alex@gmail.com");
+        CompletableFuture<FraudCheckResponse> verdict = new CompletableFuture<>();
+        given(reactiveCustomerRepository.findOwner(request.phoneNumber())).willReturn(Mono.empty());
+        given(reactiveFraudClient.isFraudster(any(FraudCheckRequest.class))).willReturn(verdict);
+        given(reactiveCustomerRepository.insert(any(), any())).willReturn(Mono.empty());
+
+        // when
+        // then
+        StepVerifier.create(underTest.registerCustomer(request))
+                .then(() -> verdict.complete(new FraudCheckResponse(false)))
+                .verifyComplete();
+        then(reactiveCustomerRepository).should().insert(any(), any());
+    }
+}
@@ -0,0 +1,131 @@
+package com.kapok.customer.outbox;
+
+import com.kapok.amqp.RabbitMQMessageProducer;
+import com.kapok.clients.notification.NotificationRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.amqp.AmqpException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+class NotificationOutboxRelayTest {
+
+    @Mock
+    private NotificationOutboxRepository notificationOutboxRepository;
+    @Mock
+    private RabbitMQMessageProducer rabbitMQMessageProducer;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private NotificationOutboxRelay underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+        underTest = new NotificationOutboxRelay(
+                notificationOutboxRepository, rabbitMQMessageProducer, transactionManager,
+                new SimpleMeterRegistry(), 1, 2, Duration.ofMillis(200),
+                Duration.ofMillis(100), Duration.ofSeconds(1));
+    }
+
+    @Test
+    void itShouldPublishClaimedBatchAndDeleteIt() {
+        // given
+        List<NotificationOutboxMessage> batch = List.of(message(1L), message(2L));
+        given(notificationOutboxRepository.claimOldest(PageRequest.of(0, 2))).willReturn(batch);
+        given(rabbitMQMessageProducer.publishAll(any(), eq("internal.exchange"),
+                eq("internal.notification.routing-key")))
+                .willReturn(CompletableFuture.completedFuture(null));
+
+        // when
+        int relayed = underTest.relayBatch();
+
+        // then
+        assertThat(relayed).isEqualTo(2);
+        then(rabbitMQMessageProducer).should().publishAll(
+                eq(List.of(batch.get(0).toRequest(), batch.get(1).toRequest())), any(), any());
+        then(notificationOutboxRepository).should().deleteByIdIn(List.of(1L, 2L));
+        then(transactionManager).should().commit(any());
+    }
+
+    @Test
+    void itShouldKeepBatchWhenPublishIsNotConfirmed() {
+        // given
+        given(notificationOutboxRepository.claimOldest(PageRequest.of(0, 2))).willReturn(List.of(message(1L)));
+        given(rabbitMQMessageProducer.publishAll(any(), any(), any()))
+                .willReturn(CompletableFuture.failedFuture(new AmqpException("publish not confirmed")));
+
+        // when
+        // then
+        assertThatThrownBy(() -> underTest.relayBatch())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("was not confirmed");
+        then(notificationOutboxRepository).should(never()).deleteByIdIn(anyCollection());
+        then(transactionManager).should().rollback(any());
+    }
+
+    @Test
+    void itShouldKeepBatchWhenConfirmsTimeOut() {
+        // given
+        given(notificationOutboxRepository.claimOldest(PageRequest.of(0, 2))).willReturn(List.of(message(1L)));
+        given(rabbitMQMessageProducer.publishAll(any(), any(), any())).willReturn(new CompletableFuture<>());
+
+        // when
+        // then
+        assertThatThrownBy(() -> underTest.relayBatch()).isInstanceOf(IllegalStateException.class);
+        then(notificationOutboxRepository).should(never()).deleteByIdIn(anyCollection());
+    }
+
+    @Test
+    void itShouldBoundTheTransactionHoldingTheClaimedRows() {
+        // given
+        given(notificationOutboxRepository.claimOldest(any())).willReturn(List.of());
+
+        // when
+        underTest.relayBatch();
+
+        // then
+        then(transactionManager).should().getTransaction(
+                argThat(definition -> definition.getTimeout() == 1));
+    }
+
+    @Test
+    void itShouldRejectTransactionTimeoutNotAboveConfirmTimeout() {
+        // when
+        // then
+        assertThatThrownBy(() -> new NotificationOutboxRelay(
+                notificationOutboxRepository, rabbitMQMessageProducer, transactionManager,
+                new SimpleMeterRegistry(), 1, 2, Duration.ofMillis(200),
+                Duration.ofSeconds(10), Duration.ofSeconds(10)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static NotificationOutboxMessage message(long id) {
+        NotificationOutboxMessage message = NotificationOutboxMessage.of(
+                new NotificationRequest(UUID.randomUUID(), "kapok", "Hi kapok"));
+        message.setId(id);
+        message.setCreatedAt(LocalDateTime.now());
+        return message;
+    }
+}
@@ -0,0 +1,92 @@
+package com.kapok.eurekaserver;
+
+import com.kapok.registrysnapshot.RegistrySnapshot;
+import com.kapok.registrysnapshot.RegistrySnapshotWriter;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.eureka.EurekaServerContext;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Keeps the registry across restarts of this server. The registered instances are written
+ * to {@code registry.snapshot.file} every {@code registry.snapshot.interval} and on
+ * shutdown. On startup, before the server opens for traffic, a snapshot no older than
+ * {@code registry.snapshot.max-age} is registered again, so fetches return the services
+ * right away and renewals find their lease instead of forcing every client to
+ * re-register. Instances already registered are left alone, and restored ones are not
+ * replicated to peers.
+ * <p>
+ * Registering raises the renewals the server expects per minute, and a server that gets
+ * too few of them enters self-preservation and stops evicting anything. Restoring before
+ * the registry opens for traffic leaves restored leases out of that expectation, since
+ * opening sets it from the peers' instances alone: restored instances that are gone expire
+ * with their lease like any other instead of holding the server in self-preservation, and
+ * those still renewing are counted at the next renewal threshold update. {@code max-age}
+ * bounds how stale the restored instances can be; the longer it is, the more of them are
+ * gone and briefly served to clients until their lease runs out.
+ */
+@Slf4j
+@Component
+public class RegistrySnapshots {
+
+    private final PeerAwareInstanceRegistry registry;
+    private final boolean enabled;
+    private final Path file;
+    private final Duration maxAge;
+    private final RegistrySnapshotWriter writer;
+
+    /**
+     * Takes the registry from {@code eurekaServerContext}, which has initialized it by then,
+     * so it accepts registrations before it opens for traffic.
+     */
+    public RegistrySnapshots(
+            EurekaServerContext eurekaServerContext,
+            @Value("${registry.snapshot.enabled:true}") boolean enabled,
+            @Value("${registry.snapshot.file:${java.io.tmpdir}/eureka-server-registry.json.gz}") Path file,
+            @Value("${registry.snapshot.interval:30s}") Duration interval,
+            @Value("${registry.snapshot.max-age:10m}") Duration maxAge) {
+        this.registry = eurekaServerContext.getRegistry();
+        this.enabled = enabled;
+        this.file = file;
+        this.maxAge = maxAge;
+        this.writer = new RegistrySnapshotWriter(this.registry::getApplications, file, interval);
+    }
+
+    @PostConstruct
+    void start() {
+        if (enabled) {
+            restore();
+            writer.start();
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (enabled) {
+            writer.stop();
+        }
+    }
+
+    void restore() {
+        RegistrySnapshot.read(file, maxAge).ifPresent(applications -> {
+            int restored = 0;
+            for (Application application : applications.getRegisteredApplications()) {
+                for (InstanceInfo instance : application.getInstances()) {
+                    if (registry.getInstanceByAppAndId(instance.getAppName(), instance.getId()) == null) {
+                        registry.register(instance, true);
+                        restored++;
+                    }
+                }
+            }
+            log.info("restored {} instances from registry snapshot {}", restored, file);
+        });
+    }
+}
@@ -0,0 +1,137 @@
+package com.kapok.eurekaserver;
+
+import com.kapok.registrysnapshot.RegistrySnapshot;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.EurekaServerContext;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+class RegistrySnapshotsTest {
+
+    @Mock
+    private EurekaServerContext eurekaServerContext;
+    @Mock
+    private PeerAwareInstanceRegistry registry;
+
+    @TempDir
+    Path directory;
+
+    private final InstanceInfo registered = instance("CUSTOMER", "customer-1");
+    private final InstanceInfo missing = instance("FRAUD", "fraud-1");
+    private Path file;
+    private RegistrySnapshots underTest;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        given(eurekaServerContext.getRegistry()).willReturn(registry);
+        given(registry.getInstanceByAppAndId("CUSTOMER", "customer-1")).willReturn(registered);
+        file = directory.resolve("registry.json.gz");
+        RegistrySnapshot.write(applications(registered, missing), file);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (underTest != null) {
+            underTest.stop();
+        }
+    }
+
+    @Test
+    void itShouldRegisterOnlyInstancesNotAlreadyRegistered() {
+        // given
+        underTest = registrySnapshots(true);
+
+        // when
+        underTest.start();
+
+        // then
+        ArgumentCaptor<InstanceInfo> instanceCaptor = ArgumentCaptor.forClass(InstanceInfo.class);
+        then(registry).should().register(instanceCaptor.capture(), anyBoolean());
+        assertThat(instanceCaptor.getValue().getId()).isEqualTo("fraud-1");
+    }
+
+    @Test
+    void itShouldRestoreWithoutReplicatingToPeers() {
+        // given
+        underTest = registrySnapshots(true);
+
+        // when
+        underTest.start();
+
+        // then
+        then(registry).should().register(any(InstanceInfo.class), eq(true));
+    }
+
+    @Test
+    void itShouldNotRestoreWhenDisabled() {
+        // given
+        underTest = registrySnapshots(false);
+
+        // when
+        underTest.start();
+
+        // then
+        then(registry).should(never()).register(any(InstanceInfo.class), anyBoolean());
+    }
+
+    @Test
+    void itShouldNotRestoreSnapshotOlderThanMaxAge() throws IOException {
+        // given
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofMinutes(11))));
+        underTest = registrySnapshots(true);
+
+        // when
+        underTest.start();
+
+        // then
+        then(registry).should(never()).register(any(InstanceInfo.class), anyBoolean());
+    }
+
+    private RegistrySnapshots registrySnapshots(boolean enabled) {
+        return new RegistrySnapshots(eurekaServerContext, enabled, file, Duration.ofMinutes(1), Duration.ofMinutes(10));
+    }
+
+    private static Applications applications(InstanceInfo... instances) {
+        Applications applications = new Applications();
+        for (InstanceInfo instance : instances) {
+            Application application = new Application(instance.getAppName());
+            application.addInstance(instance);
+            applications.addApplication(application);
+        }
+        return applications;
+    }
+
+    private static InstanceInfo instance(String appName, String instanceId) {
+        return InstanceInfo.Builder.newBuilder()
+                .setAppName(appName)
+                .setInstanceId(instanceId)
+                .setHostName(instanceId + ".local")
+                .setIPAddr("10.0.0.1")
+                .setStatus(InstanceInfo.InstanceStatus.UP)
+                .build();
+    }
+}
@@ -3,6 +3,7 @@ package com.kapok.fraud;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.netflix.eureka.EnableEurekaClient;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.context.annotation.PropertySources;
 
@@ -13,6 +14,10 @@ import org.springframework.context.annotation.PropertySources;
 })
 public class FraudApplication {
     public static void main(String[] args) {
-        SpringApplication.run(FraudApplication.class,args);
+        ConfigurableApplicationContext context = SpringApplication.run(FraudApplication.class,args);
+        if (context.getEnvironment().getProperty("fraud.blocklist.snapshot.generate", Boolean.class, false)) {
+            // BlocklistSnapshotGenerator has run, its exit code tells whether the snapshot was written
+            System.exit(SpringApplication.exit(context));
+        }
     }
 }
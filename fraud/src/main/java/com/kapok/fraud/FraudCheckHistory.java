@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Data
 @Builder
@@ -25,7 +26,7 @@ public class FraudCheckHistory {
 
     )
     private Integer id;
-    private Integer customerId;
+    private UUID customerId;
     private Boolean isFraudster;
     private LocalDateTime createAt;
 }
@@ -0,0 +1,163 @@
+package com.kapok.fraud;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind journal for {@link FraudCheckHistory}. Records are queued in a bounded
+ * buffer and written by a single flusher thread in batches, once {@code batch-size}
+ * records are waiting or {@code flush-interval-ms} has passed since the first one.
+ * <p>
+ * When the buffer is full, callers block for up to {@code append-timeout-ms} and then
+ * write their record themselves, so a slow database slows callers down instead of
+ * dropping history. On shutdown the buffer is drained before the bean is destroyed, and
+ * records appended from then on are written by their callers.
+ */
+@Slf4j
+@Component
+public class FraudCheckHistoryJournal {
+
+    private final FraudCheckHistoryRepository fraudCheckHistoryRepository;
+    private final BlockingQueue<FraudCheckHistory> buffer;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long appendTimeoutMillis;
+    private final Timer flushTimer;
+    private final Counter flushedCounter;
+    private final Counter failedCounter;
+    private final Counter callerRunsCounter;
+    private final Thread flusher;
+    // appends hold the read lock from checking running to queueing, so none is queued after stop()
+    private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+
+    public FraudCheckHistoryJournal(
+            FraudCheckHistoryRepository fraudCheckHistoryRepository,
+            MeterRegistry meterRegistry,
+            @Value("${fraud.history.journal.capacity:10000}") int capacity,
+            @Value("${fraud.history.journal.batch-size:500}") int batchSize,
+            @Value("${fraud.history.journal.flush-interval-ms:200}") long flushIntervalMillis,
+            @Value("${fraud.history.journal.append-timeout-ms:50}") long appendTimeoutMillis) {
+        this.fraudCheckHistoryRepository = fraudCheckHistoryRepository;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.appendTimeoutMillis = appendTimeoutMillis;
+
+        Gauge.builder("fraud.history.journal.queue.depth", buffer, BlockingQueue::size)
+                .description("fraud check history records waiting to be written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("fraud.history.journal.flush")
+                .description("time to write one batch of fraud check history")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.flushedCounter = meterRegistry.counter("fraud.history.journal.records", "result", "flushed");
+        this.failedCounter = meterRegistry.counter("fraud.history.journal.records", "result", "failed");
+        this.callerRunsCounter = meterRegistry.counter("fraud.history.journal.records", "result", "caller-runs");
+        this.flusher = new Thread(this::run, "fraud-history-journal");
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        flusher.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        runningLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        // the flusher is gone, write whatever it left behind
+        List<FraudCheckHistory> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+        }
+        log.info("fraud check history journal stopped");
+    }
+
+    public void append(FraudCheckHistory fraudCheckHistory) {
+        boolean queued;
+        runningLock.readLock().lock();
+        try {
+            queued = running && buffer.offer(fraudCheckHistory, appendTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        } finally {
+            runningLock.readLock().unlock();
+        }
+        if (!queued) {
+            callerRunsCounter.increment();
+            fraudCheckHistoryRepository.save(fraudCheckHistory);
+        }
+    }
+
+    public void appendAll(Collection<FraudCheckHistory> fraudCheckHistories) {
+        fraudCheckHistories.forEach(this::append);
+    }
+
+    private void run() {
+        List<FraudCheckHistory> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                FraudCheckHistory first = buffer.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    FraudCheckHistory next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // stop() interrupts us, the loop condition takes care of exiting
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+        }
+    }
+
+    private void flush(List<FraudCheckHistory> batch) {
+        try {
+            flushTimer.record(() -> fraudCheckHistoryRepository.saveAll(batch));
+            flushedCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            failedCounter.increment(batch.size());
+            log.error("failed to write {} fraud check history records", batch.size(), e);
+        } finally {
+            batch.clear();
+        }
+    }
+}
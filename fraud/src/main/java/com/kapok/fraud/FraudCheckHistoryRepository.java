@@ -1,8 +1,15 @@
 package com.kapok.fraud;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.UUID;
+
 @Repository
 public interface FraudCheckHistoryRepository extends JpaRepository<FraudCheckHistory, Integer> {
+
+    @Query("select count(h) from FraudCheckHistory h where h.customerId = ?1 and h.isFraudster = true and h.createAt > ?2")
+    long countFraudulentChecksSince(UUID customerId, LocalDateTime since);
 }
@@ -0,0 +1,25 @@
+package com.kapok.fraud;
+
+import com.kapok.fraud.rule.FraudSignals;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * {@link FraudSignals} counted from the fraud check history table. Checks still waiting
+ * in the {@link FraudCheckHistoryJournal} are not counted yet.
+ */
+@Component
+@AllArgsConstructor
+public class FraudCheckHistorySignals implements FraudSignals {
+
+    private final FraudCheckHistoryRepository fraudCheckHistoryRepository;
+
+    @Override
+    public long fraudulentChecksWithin(UUID customerId, Duration window) {
+        return fraudCheckHistoryRepository.countFraudulentChecksSince(customerId, LocalDateTime.now().minus(window));
+    }
+}
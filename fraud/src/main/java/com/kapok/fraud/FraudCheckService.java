@@ -1,27 +1,81 @@
 package com.kapok.fraud;
 
+import com.kapok.clients.fraud.FraudCheckRequest;
+import com.kapok.fraud.rule.FraudCheckContext;
+import com.kapok.fraud.rule.FraudRule;
+import com.kapok.fraud.rule.FraudRuleEngine;
+import com.kapok.fraud.velocity.VelocityCounters;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
 @Service
 @AllArgsConstructor
 @Slf4j
 public class FraudCheckService {
 
-    private final FraudCheckHistoryRepository fraudCheckHistoryRepository;
+    private final FraudCheckHistoryJournal fraudCheckHistoryJournal;
+    private final FraudRuleEngine fraudRuleEngine;
+    private final VelocityCounters velocityCounters;
+
 
+    public  boolean isFraudulentCustomer(UUID customerId){
+        return isFraudulentCustomer(new FraudCheckRequest(customerId, null, null));
+    }
 
-    public  boolean isFraudulentCustomer(Integer customerId){
-        fraudCheckHistoryRepository.save(
+    public boolean isFraudulentCustomer(FraudCheckRequest request) {
+        boolean isFraudster = evaluate(new FraudCheckContext(), request);
+        fraudCheckHistoryJournal.append(
                 FraudCheckHistory.builder()
-                        .customerId(customerId)
-                        .isFraudster(false)
+                        .customerId(request.customerId())
+                        .isFraudster(isFraudster)
                         .createAt(LocalDateTime.now())
                         .build()
         );
-        log.info("fraud check request for customer {}", customerId);
-        return false;
+        log.info("fraud check request for customer {}", request.customerId());
+        return isFraudster;
+    }
+
+    public Map<UUID, Boolean> areFraudulentCustomers(List<FraudCheckRequest> requests) {
+        Map<UUID, Boolean> verdicts = new LinkedHashMap<>();
+        List<FraudCheckHistory> histories = new ArrayList<>(requests.size());
+        LocalDateTime createAt = LocalDateTime.now();
+        // one context for the whole batch, reset per request
+        FraudCheckContext context = new FraudCheckContext();
+        for (FraudCheckRequest request : requests) {
+            boolean isFraudster = evaluate(context, request);
+            verdicts.put(request.customerId(), isFraudster);
+            histories.add(FraudCheckHistory.builder()
+                    .customerId(request.customerId())
+                    .isFraudster(isFraudster)
+                    .createAt(createAt)
+                    .build());
+        }
+        fraudCheckHistoryJournal.appendAll(histories);
+        log.info("fraud check request for {} customers", verdicts.size());
+        return verdicts;
+    }
+
+    /**
+     * Evaluates {@code request} in {@code context}, which the caller passes down rather than
+     * a thread-local: under virtual threads every request runs on a fresh thread, so a
+     * per-thread context would be allocated per check anyway, and kept for the thread's life.
+     */
+    private boolean evaluate(FraudCheckContext context, FraudCheckRequest request) {
+        context.reset(request.customerId(), request.email(), request.phoneNumber());
+        FraudRule rule = fraudRuleEngine.evaluate(context);
+        velocityCounters.record(context);
+        if (rule == null) {
+            return false;
+        }
+        log.info("customer {} matched fraud rule {}", request.customerId(), rule.name());
+        return true;
     }
 }
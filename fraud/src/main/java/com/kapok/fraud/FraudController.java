@@ -1,9 +1,14 @@
 package com.kapok.fraud;
 
+import com.kapok.clients.fraud.FraudCheckRequest;
 import com.kapok.clients.fraud.FraudCheckResponse;
 import lombok.AllArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
 @RestController
 @RequestMapping("api/v1/fraud-check")
 @AllArgsConstructor
@@ -14,9 +19,23 @@ public class FraudController {
 
     @GetMapping(path = "{customerId}")
     public FraudCheckResponse isFraudster(
-            @PathVariable("customerId") Integer customerId){
+            @PathVariable("customerId") UUID customerId){
         boolean isFraudulentCustomer = fraudCheckService
                 .isFraudulentCustomer(customerId);
         return new FraudCheckResponse(isFraudulentCustomer);
     }
+
+    @PostMapping
+    public FraudCheckResponse isFraudster(
+            @RequestBody FraudCheckRequest fraudCheckRequest){
+        boolean isFraudulentCustomer = fraudCheckService
+                .isFraudulentCustomer(fraudCheckRequest);
+        return new FraudCheckResponse(isFraudulentCustomer);
+    }
+
+    @PostMapping(path = "batch")
+    public Map<UUID, Boolean> areFraudsters(
+            @RequestBody List<FraudCheckRequest> fraudCheckRequests){
+        return fraudCheckService.areFraudulentCustomers(fraudCheckRequests);
+    }
 }
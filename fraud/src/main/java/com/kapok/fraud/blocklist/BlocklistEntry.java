@@ -0,0 +1,43 @@
+package com.kapok.fraud.blocklist;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"type", "identifier"}))
+public class BlocklistEntry {
+    @Id
+    @SequenceGenerator(
+            name = "blocklist_id_sequence",
+            sequenceName = "blocklist_id_sequence"
+    )
+    @GeneratedValue(
+            strategy = GenerationType.SEQUENCE,
+            generator = "blocklist_id_sequence"
+    )
+    private Long id;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BlocklistEntryType type;
+    /**
+     * Customer id, email address or phone number in the canonical form of {@link BlocklistKeys}.
+     */
+    @Column(nullable = false)
+    private String identifier;
+    private LocalDateTime createAt;
+
+    @PrePersist
+    @PreUpdate
+    void canonicalizeIdentifier() {
+        identifier = BlocklistKeys.identifier(type, identifier);
+    }
+}
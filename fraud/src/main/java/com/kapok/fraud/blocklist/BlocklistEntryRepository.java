@@ -0,0 +1,24 @@
+package com.kapok.fraud.blocklist;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+@Repository
+public interface BlocklistEntryRepository extends JpaRepository<BlocklistEntry, Long> {
+
+    boolean existsByTypeAndIdentifier(BlocklistEntryType type, String identifier);
+
+    /**
+     * Streams every key with a server-side cursor; must run inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "10000"))
+    @Query("select new com.kapok.fraud.blocklist.BlocklistKey(e.type, e.identifier) from BlocklistEntry e")
+    Stream<BlocklistKey> streamAllKeys();
+}
@@ -0,0 +1,7 @@
+package com.kapok.fraud.blocklist;
+
+public enum BlocklistEntryType {
+    CUSTOMER_ID,
+    EMAIL,
+    PHONE_NUMBER
+}
@@ -0,0 +1,14 @@
+package com.kapok.fraud.blocklist;
+
+/**
+ * Probabilistic membership test over pre-hashed blocklist keys: {@code false} is always
+ * right, {@code true} has to be confirmed.
+ */
+public interface BlocklistFilter {
+
+    boolean mightContain(long hash);
+
+    long entries();
+
+    long bitSize();
+}
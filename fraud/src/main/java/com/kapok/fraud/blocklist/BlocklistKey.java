@@ -0,0 +1,7 @@
+package com.kapok.fraud.blocklist;
+
+public record BlocklistKey(
+        BlocklistEntryType type,
+        String identifier
+) {
+}
@@ -0,0 +1,80 @@
+package com.kapok.fraud.blocklist;
+
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Canonical identifiers and 64-bit hashes of blocklist keys. Identifiers are stored,
+ * hashed and confirmed in their canonical form: the {@link UUID#toString()} of a customer
+ * id, the trimmed and lower-cased email address, the {@link Integer#toString(int)} of a
+ * phone number. The hashes of a stored identifier and of a live request field are the
+ * same, and hashing a request field does not allocate.
+ */
+final class BlocklistKeys {
+
+    private BlocklistKeys() {
+    }
+
+    /**
+     * The canonical form of {@code value}.
+     *
+     * @throws IllegalArgumentException if {@code value} is not a customer id or phone number
+     */
+    static String identifier(BlocklistEntryType type, String value) {
+        String trimmed = value.trim();
+        return switch (type) {
+            case CUSTOMER_ID -> UUID.fromString(trimmed).toString();
+            case EMAIL -> trimmed.toLowerCase(Locale.ROOT);
+            case PHONE_NUMBER -> Integer.toString(Integer.parseInt(trimmed));
+        };
+    }
+
+    static boolean isCanonical(BlocklistKey key) {
+        return key.identifier().equals(identifier(key.type(), key.identifier()));
+    }
+
+    static long hash(BlocklistKey key) {
+        return switch (key.type()) {
+            case CUSTOMER_ID -> hash(UUID.fromString(key.identifier()));
+            case EMAIL -> hashEmail(key.identifier());
+            case PHONE_NUMBER -> hash(Integer.parseInt(key.identifier()));
+        };
+    }
+
+    static long hash(UUID customerId) {
+        return mix(mix(customerId.getMostSignificantBits() ^ BlocklistEntryType.CUSTOMER_ID.ordinal())
+                ^ customerId.getLeastSignificantBits());
+    }
+
+    static long hashEmail(String email) {
+        // FNV-1a over the lower-cased characters, skipping what String.trim() would remove
+        int start = 0;
+        int end = email.length();
+        while (start < end && email.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && email.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        long hash = 0xcbf29ce484222325L ^ BlocklistEntryType.EMAIL.ordinal();
+        for (int i = start; i < end; i++) {
+            hash ^= Character.toLowerCase(email.charAt(i));
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    static long hash(int phoneNumber) {
+        return mix(((long) BlocklistEntryType.PHONE_NUMBER.ordinal() << 32) | (phoneNumber & 0xffffffffL));
+    }
+
+    static long mix(long hash) {
+        // murmur3 fmix64
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,115 @@
+package com.kapok.fraud.blocklist;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary snapshot of a blocklist {@link BloomFilter}.
+ * <pre>
+ * offset  size  field
+ *      0     4  magic "KBLS"
+ *      4     4  format version
+ *      8     4  hash functions
+ *     12     4  reserved
+ *     16     8  bits
+ *     24     8  entries
+ *     32     8  build start, epoch millis
+ *     64     -  filter words, little-endian longs
+ * </pre>
+ * Words are 8-byte aligned and never straddle a mapped segment, because segments are a
+ * power of two long and the data starts at a multiple of eight.
+ */
+public final class BlocklistSnapshot {
+
+    private static final int MAGIC = 0x4b424c53;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+
+    private BlocklistSnapshot() {
+    }
+
+    /**
+     * Writes the snapshot next to {@code path} and moves it into place atomically, so
+     * readers mapping the old file keep a consistent view.
+     *
+     * @param generatedAt when the filter build started, in epoch millis
+     */
+    public static void write(BloomFilter filter, Path path, long generatedAt) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(filter.hashFunctions())
+                    .putInt(0)
+                    .putLong(filter.bitSize())
+                    .putLong(filter.entries())
+                    .putLong(generatedAt)
+                    .position(HEADER_SIZE)
+                    .flip();
+            writeFully(channel, header);
+
+            ByteBuffer words = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < filter.wordCount(); i++) {
+                if (!words.hasRemaining()) {
+                    writeFully(channel, words.flip());
+                    words.clear();
+                }
+                words.putLong(filter.word(i));
+            }
+            writeFully(channel, words.flip());
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static MappedBloomFilter map(Path path) throws IOException {
+        return map(path, MappedBloomFilter.SEGMENT_SHIFT);
+    }
+
+    /**
+     * Maps {@code path} in segments of {@code 2^segmentShift} bytes; a shift of at least
+     * six keeps the header and every word inside one segment.
+     */
+    static MappedBloomFilter map(Path path, int segmentShift) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException(String.format("blocklist snapshot [%s] is truncated", path));
+            }
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size - 1) >>> segmentShift) + 1];
+            for (int i = 0; i < segments.length; i++) {
+                long position = (long) i << segmentShift;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(1L << segmentShift, size - position));
+            }
+
+            ByteBuffer header = segments[0].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException(String.format("[%s] is not a version %d blocklist snapshot", path, VERSION));
+            }
+            int hashFunctions = header.getInt(8);
+            long bits = header.getLong(16);
+            if (size < HEADER_SIZE + bits / 8) {
+                throw new IOException(String.format("blocklist snapshot [%s] is truncated", path));
+            }
+            return new MappedBloomFilter(segments, segmentShift, HEADER_SIZE, bits, hashFunctions,
+                    header.getLong(24), header.getLong(32));
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
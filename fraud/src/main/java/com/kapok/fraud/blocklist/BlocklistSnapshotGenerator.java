@@ -0,0 +1,49 @@
+package com.kapok.fraud.blocklist;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Paths;
+
+/**
+ * Separate step that writes the blocklist snapshot the fraud pods map at startup. Run
+ * the fraud jar with {@code --fraud.blocklist.snapshot.generate=true
+ * --spring.main.web-application-type=none}, e.g. from a scheduled job writing to the
+ * volume the pods read {@code fraud.blocklist.snapshot.path} from. {@code FraudApplication}
+ * exits once the snapshot is written, with the exit code of this generator.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "fraud.blocklist.snapshot.generate", havingValue = "true")
+public class BlocklistSnapshotGenerator implements ApplicationRunner, ExitCodeGenerator {
+
+    private final FraudBlocklist fraudBlocklist;
+    private final Environment environment;
+    private volatile int exitCode = 1;
+
+    public BlocklistSnapshotGenerator(FraudBlocklist fraudBlocklist, Environment environment) {
+        this.fraudBlocklist = fraudBlocklist;
+        this.environment = environment;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        String path = environment.getRequiredProperty("fraud.blocklist.snapshot.path");
+        long generatedAt = System.currentTimeMillis();
+        BloomFilter filter = fraudBlocklist.buildFilter();
+        BlocklistSnapshot.write(filter, Paths.get(path), generatedAt);
+        log.info("wrote blocklist snapshot [{}] with {} entries in {} bytes",
+                path, filter.entries(), filter.bitSize() / 8);
+        exitCode = 0;
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+}
@@ -0,0 +1,89 @@
+package com.kapok.fraud.blocklist;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter over pre-hashed 64-bit keys. The k probe positions are derived from the
+ * key by double hashing, so a probe costs k array reads and no allocation. Bits are set
+ * with CAS, so entries can be added while other threads are reading.
+ */
+public class BloomFilter implements BlocklistFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashFunctions;
+    private final LongAdder entries = new LongAdder();
+
+    BloomFilter(long bits, int hashFunctions) {
+        int wordCount = (int) Math.min((bits + 63) >>> 6, Integer.MAX_VALUE - 8);
+        this.words = new AtomicLongArray(wordCount);
+        this.bits = (long) wordCount << 6;
+        this.hashFunctions = hashFunctions;
+    }
+
+    public static BloomFilter create(long expectedEntries, double falsePositiveRate) {
+        long n = Math.max(expectedEntries, 1);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int hashFunctions = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        return new BloomFilter(bits, hashFunctions);
+    }
+
+    public void put(long hash) {
+        long hash2 = secondHash(hash);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = bitIndex(hash, hash2, i, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = words.get(word)) & mask) == 0) {
+                if (words.compareAndSet(word, current, current | mask)) {
+                    break;
+                }
+            }
+        }
+        entries.increment();
+    }
+
+    @Override
+    public boolean mightContain(long hash) {
+        long hash2 = secondHash(hash);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = bitIndex(hash, hash2, i, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long bitSize() {
+        return bits;
+    }
+
+    public int hashFunctions() {
+        return hashFunctions;
+    }
+
+    @Override
+    public long entries() {
+        return entries.sum();
+    }
+
+    int wordCount() {
+        return words.length();
+    }
+
+    long word(int index) {
+        return words.get(index);
+    }
+
+    static long secondHash(long hash) {
+        return BlocklistKeys.mix(hash + 0x9e3779b97f4a7c15L);
+    }
+
+    static long bitIndex(long hash, long hash2, int i, long bits) {
+        return ((hash + i * hash2) & Long.MAX_VALUE) % bits;
+    }
+}
@@ -0,0 +1,234 @@
+package com.kapok.fraud.blocklist;
+
+import com.kapok.fraud.rule.Blocklist;
+import com.kapok.fraud.rule.FraudCheckContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Blocklist lookups behind a {@link BlocklistFilter}. A filter miss answers "not blocked"
+ * without touching the database; only filter hits are confirmed with a point query,
+ * which also screens out the false positives.
+ * <p>
+ * By default the filter is a {@link BloomFilter} rebuilt from the blocklist table in the
+ * background and swapped in with a single volatile write, so checks keep running against
+ * the previous filter while the next one is built. Until the first build finishes every
+ * lookup goes to the database.
+ * <p>
+ * When {@code fraud.blocklist.snapshot.path} is set, the filter is instead a memory-mapped
+ * {@link BlocklistSnapshot} written by a separate generation step, see
+ * {@link BlocklistSnapshotGenerator}. It is mapped at startup, re-mapped whenever a newer
+ * file appears, and only rebuilt in the service, in the background, while the file is
+ * missing.
+ * <p>
+ * Rows whose identifier is malformed, or not in the canonical form of {@link
+ * BlocklistKeys} and so never found by the confirming query, are left out of the filter
+ * and counted in {@code fraud.blocklist.skipped-entries}.
+ */
+@Slf4j
+@Component
+public class FraudBlocklist implements Blocklist {
+
+    private final BlocklistEntryRepository blocklistEntryRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final double falsePositiveRate;
+    private final double headroom;
+    private final Duration rebuildInterval;
+    private final Path snapshotPath;
+    private final boolean generateSnapshot;
+    private final ScheduledExecutorService rebuilder;
+    private final Counter negatives;
+    private final Counter confirmed;
+    private final Counter falsePositives;
+    private final Counter malformed;
+    private final Counter nonCanonical;
+    private final Timer rebuildTimer;
+    private volatile BlocklistFilter filter;
+    private FileTime snapshotModified;
+
+    public FraudBlocklist(
+            BlocklistEntryRepository blocklistEntryRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${fraud.blocklist.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${fraud.blocklist.headroom:1.2}") double headroom,
+            @Value("${fraud.blocklist.rebuild-interval:10m}") Duration rebuildInterval,
+            @Value("${fraud.blocklist.snapshot.path:}") String snapshotPath,
+            @Value("${fraud.blocklist.snapshot.generate:false}") boolean generateSnapshot) {
+        this.blocklistEntryRepository = blocklistEntryRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.falsePositiveRate = falsePositiveRate;
+        this.headroom = headroom;
+        this.rebuildInterval = rebuildInterval;
+        this.snapshotPath = StringUtils.hasText(snapshotPath) ? Paths.get(snapshotPath) : null;
+        this.generateSnapshot = generateSnapshot;
+
+        this.negatives = meterRegistry.counter("fraud.blocklist.lookups", "result", "negative");
+        this.confirmed = meterRegistry.counter("fraud.blocklist.lookups", "result", "confirmed");
+        this.falsePositives = meterRegistry.counter("fraud.blocklist.lookups", "result", "false-positive");
+        this.malformed = meterRegistry.counter("fraud.blocklist.skipped-entries", "reason", "malformed");
+        this.nonCanonical = meterRegistry.counter("fraud.blocklist.skipped-entries", "reason", "non-canonical");
+        this.rebuildTimer = meterRegistry.timer("fraud.blocklist.rebuild");
+        Gauge.builder("fraud.blocklist.filter.entries", this, b -> b.filter == null ? 0 : b.filter.entries())
+                .register(meterRegistry);
+        Gauge.builder("fraud.blocklist.filter.bytes", this, b -> b.filter == null ? 0 : b.filter.bitSize() / 8)
+                .register(meterRegistry);
+
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fraud-blocklist-rebuilder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        if (generateSnapshot) {
+            // BlocklistSnapshotGenerator builds the filter once and exits
+            return;
+        }
+        boolean mapped = false;
+        if (snapshotPath != null && Files.exists(snapshotPath)) {
+            // mapping takes milliseconds whatever the list size, so the service starts with the filter
+            refreshQuietly();
+            mapped = filter != null;
+        }
+        // without a snapshot the database rebuild runs in the background, lookups go to the database meanwhile
+        rebuilder.scheduleWithFixedDelay(this::refreshQuietly,
+                mapped ? rebuildInterval.toMillis() : 0,
+                rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        rebuilder.shutdownNow();
+    }
+
+    @Override
+    public boolean isBlocked(FraudCheckContext context) {
+        BlocklistFilter current = filter;
+        UUID customerId = context.getCustomerId();
+        if (customerId != null
+                && mightBeBlocked(current, BlocklistKeys.hash(customerId))
+                && confirm(current, BlocklistEntryType.CUSTOMER_ID, customerId.toString())) {
+            return true;
+        }
+        String email = context.getEmail();
+        if (email != null
+                && mightBeBlocked(current, BlocklistKeys.hashEmail(email))
+                && confirm(current, BlocklistEntryType.EMAIL, BlocklistKeys.identifier(BlocklistEntryType.EMAIL, email))) {
+            return true;
+        }
+        return context.hasPhoneNumber()
+                && mightBeBlocked(current, BlocklistKeys.hash(context.getPhoneNumber()))
+                && confirm(current, BlocklistEntryType.PHONE_NUMBER, Integer.toString(context.getPhoneNumber()));
+    }
+
+    /**
+     * Builds a filter over the whole blocklist table with a fetch-size cursor.
+     */
+    public BloomFilter buildFilter() {
+        long expected = (long) Math.ceil(blocklistEntryRepository.count() * headroom);
+        BloomFilter next = BloomFilter.create(expected, falsePositiveRate);
+        long[] skipped = new long[2];
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<BlocklistKey> keys = blocklistEntryRepository.streamAllKeys()) {
+                keys.forEach(key -> {
+                    try {
+                        if (BlocklistKeys.isCanonical(key)) {
+                            next.put(BlocklistKeys.hash(key));
+                        } else {
+                            skipped[1]++;
+                        }
+                    } catch (IllegalArgumentException e) {
+                        skipped[0]++;
+                    }
+                });
+            }
+        });
+        if (skipped[0] + skipped[1] > 0) {
+            malformed.increment(skipped[0]);
+            nonCanonical.increment(skipped[1]);
+            log.warn("left {} malformed and {} non-canonical blocklist entries out of the filter",
+                    skipped[0], skipped[1]);
+        }
+        return next;
+    }
+
+    public void rebuild() {
+        rebuildTimer.record(() -> {
+            BloomFilter next = buildFilter();
+            filter = next;
+            log.info("rebuilt blocklist filter with {} entries in {} bytes", next.entries(), next.bitSize() / 8);
+        });
+    }
+
+    private void refreshQuietly() {
+        try {
+            if (snapshotPath != null && Files.exists(snapshotPath)) {
+                mapSnapshotIfModified();
+            } else {
+                if (snapshotPath != null) {
+                    log.warn("blocklist snapshot [{}] not found, rebuilding from the database", snapshotPath);
+                }
+                rebuild();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("failed to refresh blocklist filter, keeping the previous one", e);
+        }
+    }
+
+    private void mapSnapshotIfModified() throws IOException {
+        FileTime modified = Files.getLastModifiedTime(snapshotPath);
+        if (modified.equals(snapshotModified)) {
+            return;
+        }
+        MappedBloomFilter snapshot = BlocklistSnapshot.map(snapshotPath);
+        filter = snapshot;
+        snapshotModified = modified;
+        log.info("mapped blocklist snapshot [{}] generated at {} with {} entries",
+                snapshotPath, Instant.ofEpochMilli(snapshot.generatedAt()), snapshot.entries());
+    }
+
+    private boolean mightBeBlocked(BlocklistFilter current, long hash) {
+        if (current == null || current.mightContain(hash)) {
+            return true;
+        }
+        negatives.increment();
+        return false;
+    }
+
+    private boolean confirm(BlocklistFilter current, BlocklistEntryType type, String identifier) {
+        boolean blocked = blocklistEntryRepository.existsByTypeAndIdentifier(type, identifier);
+        if (blocked) {
+            confirmed.increment();
+        } else if (current != null) {
+            falsePositives.increment();
+        }
+        return blocked;
+    }
+}
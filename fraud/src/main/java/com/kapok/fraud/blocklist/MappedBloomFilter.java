@@ -0,0 +1,66 @@
+package com.kapok.fraud.blocklist;
+
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Read-only {@link BlocklistFilter} over a memory-mapped snapshot. The bits stay in the
+ * page cache outside the heap and probes read them in place with absolute gets, so the
+ * filter costs the garbage collector nothing regardless of its size.
+ */
+class MappedBloomFilter implements BlocklistFilter {
+
+    static final int SEGMENT_SHIFT = 30;
+
+    private final MappedByteBuffer[] segments;
+    private final int segmentShift;
+    private final long segmentMask;
+    private final long dataOffset;
+    private final long bits;
+    private final int hashFunctions;
+    private final long entries;
+    private final long generatedAt;
+
+    MappedBloomFilter(MappedByteBuffer[] segments, int segmentShift, long dataOffset, long bits,
+                      int hashFunctions, long entries, long generatedAt) {
+        this.segments = segments;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+        for (MappedByteBuffer segment : segments) {
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        this.dataOffset = dataOffset;
+        this.bits = bits;
+        this.hashFunctions = hashFunctions;
+        this.entries = entries;
+        this.generatedAt = generatedAt;
+    }
+
+    @Override
+    public boolean mightContain(long hash) {
+        long hash2 = BloomFilter.secondHash(hash);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = BloomFilter.bitIndex(hash, hash2, i, bits);
+            long offset = dataOffset + ((bit >>> 6) << 3);
+            long word = segments[(int) (offset >>> segmentShift)].getLong((int) (offset & segmentMask));
+            if ((word & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long entries() {
+        return entries;
+    }
+
+    @Override
+    public long bitSize() {
+        return bits;
+    }
+
+    long generatedAt() {
+        return generatedAt;
+    }
+}
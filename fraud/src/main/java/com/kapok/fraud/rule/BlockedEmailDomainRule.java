@@ -0,0 +1,66 @@
+package com.kapok.fraud.rule;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Matches customers whose email domain is blocked. The domains are kept in an
+ * open-addressing table hashed case-insensitively over the domain part of the email,
+ * so a lookup never creates the lower-cased substring.
+ */
+public class BlockedEmailDomainRule implements FraudRule {
+
+    private final String[] table;
+    private final int mask;
+
+    public BlockedEmailDomainRule(Collection<String> domains) {
+        int capacity = Integer.highestOneBit(Math.max(domains.size(), 1) * 2 - 1) << 1;
+        this.table = new String[Math.max(capacity, 2)];
+        this.mask = table.length - 1;
+        for (String domain : domains) {
+            String normalized = domain.trim().toLowerCase(Locale.ROOT);
+            if (normalized.isEmpty() || contains(normalized, 0, normalized.length())) {
+                continue;
+            }
+            int slot = hash(normalized, 0, normalized.length()) & mask;
+            while (table[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = normalized;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "blocked-email-domain";
+    }
+
+    @Override
+    public boolean matches(FraudCheckContext context) {
+        if (!context.hasEmailDomain()) {
+            return false;
+        }
+        String email = context.getEmail();
+        return contains(email, context.getEmailDomainStart(), email.length() - context.getEmailDomainStart());
+    }
+
+    private boolean contains(String value, int offset, int length) {
+        int slot = hash(value, offset, length) & mask;
+        String candidate;
+        while ((candidate = table[slot]) != null) {
+            if (candidate.length() == length && candidate.regionMatches(true, 0, value, offset, length)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private static int hash(String value, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + Character.toLowerCase(value.charAt(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,9 @@
+package com.kapok.fraud.rule;
+
+/**
+ * Known fraudulent customer ids, email addresses and phone numbers.
+ */
+public interface Blocklist {
+
+    boolean isBlocked(FraudCheckContext context);
+}
@@ -0,0 +1,23 @@
+package com.kapok.fraud.rule;
+
+/**
+ * Matches customers whose id, email address or phone number is on the blocklist.
+ */
+public class BlocklistRule implements FraudRule {
+
+    private final Blocklist blocklist;
+
+    public BlocklistRule(Blocklist blocklist) {
+        this.blocklist = blocklist;
+    }
+
+    @Override
+    public String name() {
+        return "blocklist";
+    }
+
+    @Override
+    public boolean matches(FraudCheckContext context) {
+        return blocklist.isBlocked(context);
+    }
+}
@@ -0,0 +1,58 @@
+package com.kapok.fraud.rule;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Input of one rule evaluation. Instances are mutable and passed down by the caller,
+ * which reuses one through {@link #reset(UUID, String, Integer)} for every check of a
+ * batch, so a batch allocates one context whatever its size. Not thread-safe.
+ * The case-insensitive hash of the email domain is computed once on reset, for the rules
+ * and counters keyed by domain.
+ */
+@Getter
+public class FraudCheckContext {
+
+    private UUID customerId;
+    private String email;
+    private int emailDomainStart;
+    private long emailDomainHash;
+    @Getter(AccessLevel.NONE)
+    private boolean hasPhoneNumber;
+    private int phoneNumber;
+
+    public FraudCheckContext reset(UUID customerId, String email, Integer phoneNumber) {
+        this.customerId = customerId;
+        this.email = email;
+        this.emailDomainStart = email == null ? -1 : email.lastIndexOf('@') + 1;
+        this.emailDomainHash = hasEmailDomain() ? hashEmailDomain(email, emailDomainStart) : 0;
+        this.hasPhoneNumber = phoneNumber != null;
+        this.phoneNumber = phoneNumber == null ? 0 : phoneNumber;
+        return this;
+    }
+
+    public boolean hasEmailDomain() {
+        return emailDomainStart > 0 && emailDomainStart < email.length();
+    }
+
+    public boolean hasPhoneNumber() {
+        return hasPhoneNumber;
+    }
+
+    private static long hashEmailDomain(String email, int start) {
+        // FNV-1a over the lower-cased characters, finished with murmur3 fmix64
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < email.length(); i++) {
+            hash ^= Character.toLowerCase(email.charAt(i));
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,12 @@
+package com.kapok.fraud.rule;
+
+/**
+ * A single fraud rule. Implementations are evaluated on the request path for every
+ * check, so {@link #matches(FraudCheckContext)} must not allocate.
+ */
+public interface FraudRule {
+
+    String name();
+
+    boolean matches(FraudCheckContext context);
+}
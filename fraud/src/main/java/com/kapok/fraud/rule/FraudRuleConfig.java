@@ -0,0 +1,55 @@
+package com.kapok.fraud.rule;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(FraudRuleProperties.class)
+public class FraudRuleConfig {
+
+    /**
+     * Compiles the enabled rules, cheapest first: the lookups run before the in-memory
+     * velocity counts, and the history rule that queries the database runs last, so most
+     * checks never reach it. The blocklist only queries the database on a filter hit.
+     */
+    @Bean
+    public FraudRuleEngine fraudRuleEngine(FraudRuleProperties properties,
+                                           Blocklist blocklist,
+                                           VelocitySignals velocitySignals,
+                                           FraudSignals fraudSignals,
+                                           MeterRegistry meterRegistry) {
+        List<FraudRule> rules = new ArrayList<>();
+        if (properties.getBlockedEmailDomains().isEnabled()) {
+            rules.add(new BlockedEmailDomainRule(properties.getBlockedEmailDomains().getDomains()));
+        }
+        if (properties.getPhoneNumberRanges().isEnabled()) {
+            rules.add(new PhoneNumberRangeRule(properties.getPhoneNumberRanges().getRanges()));
+        }
+        if (properties.getBlocklist().isEnabled()) {
+            rules.add(new BlocklistRule(blocklist));
+        }
+        if (properties.getVelocity().isEnabled()) {
+            rules.add(new VelocityRule(
+                    velocitySignals,
+                    properties.getVelocity().getMaxChecks(),
+                    properties.getVelocity().getMaxEmailDomainChecks(),
+                    properties.getVelocity().getMaxPhonePrefixChecks()));
+        }
+        if (properties.getRecentHistory().isEnabled()) {
+            rules.add(new RecentHistoryRule(
+                    fraudSignals,
+                    properties.getRecentHistory().getWindow(),
+                    properties.getRecentHistory().getMaxFraudulentChecks()));
+        }
+        log.info("compiled fraud rules {}", rules.stream().map(FraudRule::name).collect(Collectors.toList()));
+        return new FraudRuleEngine(rules, meterRegistry);
+    }
+}
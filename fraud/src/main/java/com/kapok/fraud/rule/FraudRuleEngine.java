@@ -0,0 +1,66 @@
+package com.kapok.fraud.rule;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluates the compiled rules in order and stops at the first match. Every rule keeps
+ * its own evaluation count, match count and total evaluation time, published as
+ * {@code fraud.rule.evaluation} and {@code fraud.rule.matches} tagged with the rule name.
+ */
+public class FraudRuleEngine {
+
+    private final FraudRule[] rules;
+    private final RuleStats[] stats;
+
+    public FraudRuleEngine(List<FraudRule> rules, MeterRegistry meterRegistry) {
+        this.rules = rules.toArray(new FraudRule[0]);
+        this.stats = new RuleStats[this.rules.length];
+        for (int i = 0; i < this.rules.length; i++) {
+            RuleStats ruleStats = new RuleStats();
+            stats[i] = ruleStats;
+            FunctionTimer.builder("fraud.rule.evaluation", ruleStats,
+                            s -> s.evaluations.sum(),
+                            s -> s.nanos.sum(),
+                            TimeUnit.NANOSECONDS)
+                    .tag("rule", this.rules[i].name())
+                    .register(meterRegistry);
+            FunctionCounter.builder("fraud.rule.matches", ruleStats, s -> s.matches.sum())
+                    .tag("rule", this.rules[i].name())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * @return the first rule the check matches, or {@code null} when the customer is clean
+     */
+    public FraudRule evaluate(FraudCheckContext context) {
+        for (int i = 0; i < rules.length; i++) {
+            RuleStats ruleStats = stats[i];
+            long start = System.nanoTime();
+            boolean matched = rules[i].matches(context);
+            ruleStats.nanos.add(System.nanoTime() - start);
+            ruleStats.evaluations.increment();
+            if (matched) {
+                ruleStats.matches.increment();
+                return rules[i];
+            }
+        }
+        return null;
+    }
+
+    public List<FraudRule> getRules() {
+        return List.of(rules);
+    }
+
+    private static class RuleStats {
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder matches = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+    }
+}
@@ -0,0 +1,65 @@
+package com.kapok.fraud.rule;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "fraud.rules")
+public class FraudRuleProperties {
+
+    private BlockedEmailDomains blockedEmailDomains = new BlockedEmailDomains();
+    private PhoneNumberRanges phoneNumberRanges = new PhoneNumberRanges();
+    private Toggle blocklist = new Toggle();
+    private Velocity velocity = new Velocity();
+    private RecentHistory recentHistory = new RecentHistory();
+
+    @Getter
+    @Setter
+    public static class BlockedEmailDomains {
+        private boolean enabled;
+        private List<String> domains = new ArrayList<>();
+    }
+
+    @Getter
+    @Setter
+    public static class PhoneNumberRanges {
+        private boolean enabled;
+        private List<PhoneNumberRange> ranges = new ArrayList<>();
+    }
+
+    @Getter
+    @Setter
+    public static class PhoneNumberRange {
+        private int from;
+        private int to;
+    }
+
+    @Getter
+    @Setter
+    public static class Toggle {
+        private boolean enabled;
+    }
+
+    @Getter
+    @Setter
+    public static class Velocity {
+        private boolean enabled;
+        private long maxChecks = 10;
+        private long maxEmailDomainChecks;
+        private long maxPhonePrefixChecks;
+    }
+
+    @Getter
+    @Setter
+    public static class RecentHistory {
+        private boolean enabled;
+        private Duration window = Duration.ofDays(30);
+        private long maxFraudulentChecks = 0;
+    }
+}
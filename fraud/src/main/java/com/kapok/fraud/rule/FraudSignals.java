@@ -0,0 +1,12 @@
+package com.kapok.fraud.rule;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Long-window verdict counts the recent-history rule is evaluated against.
+ */
+public interface FraudSignals {
+
+    long fraudulentChecksWithin(UUID customerId, Duration window);
+}
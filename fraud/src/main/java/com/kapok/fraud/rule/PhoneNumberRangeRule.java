@@ -0,0 +1,62 @@
+package com.kapok.fraud.rule;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Matches customers whose phone number falls into one of the configured inclusive
+ * ranges. Overlapping ranges are merged at construction and looked up by binary search.
+ * A range whose {@code from} is above its {@code to} is rejected rather than matching
+ * nothing, or its {@code from} alone.
+ */
+public class PhoneNumberRangeRule implements FraudRule {
+
+    private final int[] from;
+    private final int[] to;
+
+    public PhoneNumberRangeRule(List<FraudRuleProperties.PhoneNumberRange> ranges) {
+        for (FraudRuleProperties.PhoneNumberRange range : ranges) {
+            if (range.getFrom() > range.getTo()) {
+                throw new IllegalArgumentException(String.format(
+                        "phone number range [%d, %d] ends before it starts", range.getFrom(), range.getTo()));
+            }
+        }
+        FraudRuleProperties.PhoneNumberRange[] sorted = ranges.toArray(new FraudRuleProperties.PhoneNumberRange[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(FraudRuleProperties.PhoneNumberRange::getFrom));
+        int[] mergedFrom = new int[sorted.length];
+        int[] mergedTo = new int[sorted.length];
+        int size = 0;
+        for (FraudRuleProperties.PhoneNumberRange range : sorted) {
+            if (size > 0 && range.getFrom() <= mergedTo[size - 1]) {
+                mergedTo[size - 1] = Math.max(mergedTo[size - 1], range.getTo());
+            } else {
+                mergedFrom[size] = range.getFrom();
+                mergedTo[size] = range.getTo();
+                size++;
+            }
+        }
+        this.from = Arrays.copyOf(mergedFrom, size);
+        this.to = Arrays.copyOf(mergedTo, size);
+    }
+
+    @Override
+    public String name() {
+        return "phone-number-range";
+    }
+
+    @Override
+    public boolean matches(FraudCheckContext context) {
+        if (!context.hasPhoneNumber()) {
+            return false;
+        }
+        int phoneNumber = context.getPhoneNumber();
+        int index = Arrays.binarySearch(from, phoneNumber);
+        if (index >= 0) {
+            return true;
+        }
+        // the insertion point is the first range starting after the phone number
+        int candidate = -index - 2;
+        return candidate >= 0 && phoneNumber <= to[candidate];
+    }
+}
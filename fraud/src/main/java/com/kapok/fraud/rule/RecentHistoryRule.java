@@ -0,0 +1,31 @@
+package com.kapok.fraud.rule;
+
+import java.time.Duration;
+
+/**
+ * Matches customers that already had more than {@code maxFraudulentChecks} fraudulent
+ * verdicts within the window.
+ */
+public class RecentHistoryRule implements FraudRule {
+
+    private final FraudSignals fraudSignals;
+    private final Duration window;
+    private final long maxFraudulentChecks;
+
+    public RecentHistoryRule(FraudSignals fraudSignals, Duration window, long maxFraudulentChecks) {
+        this.fraudSignals = fraudSignals;
+        this.window = window;
+        this.maxFraudulentChecks = maxFraudulentChecks;
+    }
+
+    @Override
+    public String name() {
+        return "recent-history";
+    }
+
+    @Override
+    public boolean matches(FraudCheckContext context) {
+        return context.getCustomerId() != null
+                && fraudSignals.fraudulentChecksWithin(context.getCustomerId(), window) > maxFraudulentChecks;
+    }
+}
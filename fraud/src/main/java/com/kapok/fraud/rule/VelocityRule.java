@@ -0,0 +1,36 @@
+package com.kapok.fraud.rule;
+
+/**
+ * Matches checks whose customer, email domain or phone number prefix was already seen
+ * at least as many times as its threshold within the velocity window. A threshold of
+ * zero disables that dimension.
+ */
+public class VelocityRule implements FraudRule {
+
+    private final VelocitySignals velocitySignals;
+    private final long maxChecks;
+    private final long maxEmailDomainChecks;
+    private final long maxPhonePrefixChecks;
+
+    public VelocityRule(VelocitySignals velocitySignals,
+                        long maxChecks,
+                        long maxEmailDomainChecks,
+                        long maxPhonePrefixChecks) {
+        this.velocitySignals = velocitySignals;
+        this.maxChecks = maxChecks;
+        this.maxEmailDomainChecks = maxEmailDomainChecks;
+        this.maxPhonePrefixChecks = maxPhonePrefixChecks;
+    }
+
+    @Override
+    public String name() {
+        return "velocity";
+    }
+
+    @Override
+    public boolean matches(FraudCheckContext context) {
+        return (maxChecks > 0 && velocitySignals.customerChecks(context) >= maxChecks)
+                || (maxEmailDomainChecks > 0 && velocitySignals.emailDomainChecks(context) >= maxEmailDomainChecks)
+                || (maxPhonePrefixChecks > 0 && velocitySignals.phonePrefixChecks(context) >= maxPhonePrefixChecks);
+    }
+}
@@ -0,0 +1,14 @@
+package com.kapok.fraud.rule;
+
+/**
+ * Short-window check counts the velocity rule is evaluated against. Implementations are
+ * queried on the request path and should answer in microseconds.
+ */
+public interface VelocitySignals {
+
+    long customerChecks(FraudCheckContext context);
+
+    long emailDomainChecks(FraudCheckContext context);
+
+    long phonePrefixChecks(FraudCheckContext context);
+}
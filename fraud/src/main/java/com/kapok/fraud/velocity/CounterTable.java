@@ -0,0 +1,154 @@
+package com.kapok.fraud.velocity;
+
+import java.util.function.Predicate;
+
+/**
+ * {@link SlidingWindowCounter}s keyed by primitive longs, so neither looking a key up nor
+ * adding one boxes it. Keys are spread over stripes, each an open-addressing table with
+ * linear probing guarded by its own lock. The lock is held for a few probes only; the
+ * counters themselves are updated outside it.
+ */
+class CounterTable {
+
+    private static final int STRIPES = 64;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    CounterTable() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    SlidingWindowCounter get(long key) {
+        long hash = spread(key);
+        return stripe(hash).get(key, hash);
+    }
+
+    SlidingWindowCounter computeIfAbsent(long key, int buckets) {
+        long hash = spread(key);
+        return stripe(hash).computeIfAbsent(key, hash, buckets);
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    /**
+     * Removes the counters matching {@code filter}, one stripe at a time, and returns how
+     * many were removed.
+     */
+    int removeIf(Predicate<SlidingWindowCounter> filter) {
+        int removed = 0;
+        for (Stripe stripe : stripes) {
+            removed += stripe.removeIf(filter);
+        }
+        return removed;
+    }
+
+    private Stripe stripe(long hash) {
+        return stripes[(int) (hash >>> 58)];
+    }
+
+    private static long spread(long key) {
+        // murmur3 fmix64, keys such as phone prefixes are sequential
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static final class Stripe {
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private SlidingWindowCounter[] counters = new SlidingWindowCounter[INITIAL_CAPACITY];
+        private volatile int size;
+
+        private synchronized SlidingWindowCounter get(long key, long hash) {
+            int mask = keys.length - 1;
+            for (int slot = (int) hash & mask; counters[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return counters[slot];
+                }
+            }
+            return null;
+        }
+
+        private synchronized SlidingWindowCounter computeIfAbsent(long key, long hash, int buckets) {
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            for (; counters[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return counters[slot];
+                }
+            }
+            SlidingWindowCounter counter = new SlidingWindowCounter(buckets);
+            keys[slot] = key;
+            counters[slot] = counter;
+            size++;
+            if (size * 2 > keys.length) {
+                resize();
+            }
+            return counter;
+        }
+
+        private synchronized int removeIf(Predicate<SlidingWindowCounter> filter) {
+            int removed = 0;
+            int mask = keys.length - 1;
+            for (int slot = 0; slot < keys.length; ) {
+                if (counters[slot] != null && filter.test(counters[slot])) {
+                    delete(slot, mask);
+                    removed++;
+                    // the shift may have moved another entry into this slot
+                } else {
+                    slot++;
+                }
+            }
+            size -= removed;
+            return removed;
+        }
+
+        /**
+         * Backward-shift deletion, so probe sequences stay unbroken without tombstones.
+         */
+        private void delete(int slot, int mask) {
+            int free = slot;
+            for (int next = (free + 1) & mask; counters[next] != null; next = (next + 1) & mask) {
+                int home = (int) spread(keys[next]) & mask;
+                // move the entry back unless its home lies cyclically in (free, next]
+                if (((next - home) & mask) >= ((next - free) & mask)) {
+                    keys[free] = keys[next];
+                    counters[free] = counters[next];
+                    free = next;
+                }
+            }
+            keys[free] = 0;
+            counters[free] = null;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            SlidingWindowCounter[] oldCounters = counters;
+            keys = new long[oldKeys.length * 2];
+            counters = new SlidingWindowCounter[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldCounters[i] != null) {
+                    int slot = (int) spread(oldKeys[i]) & mask;
+                    while (counters[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    counters[slot] = oldCounters[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.kapok.fraud.velocity;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free sliding-window counter made of a ring of time buckets. Each slot packs the
+ * bucket index it belongs to and its count into one long, so rolling a slot over to a
+ * new bucket and incrementing it is a single CAS. Slots older than the ring length are
+ * ignored when summing, which makes the window slide one bucket at a time.
+ */
+class SlidingWindowCounter {
+
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final AtomicLongArray slots;
+    private final int length;
+    private volatile long lastBucket;
+
+    SlidingWindowCounter(int buckets) {
+        this.slots = new AtomicLongArray(buckets);
+        this.length = buckets;
+    }
+
+    void increment(long bucket) {
+        int slot = (int) (bucket % length);
+        long rolled = (bucket << COUNT_BITS) | 1;
+        while (true) {
+            long current = slots.get(slot);
+            long next;
+            if ((current >>> COUNT_BITS) != bucket) {
+                next = rolled;
+            } else if ((current & COUNT_MASK) == COUNT_MASK) {
+                // saturated, the window already holds more than any threshold cares about
+                break;
+            } else {
+                next = current + 1;
+            }
+            if (slots.compareAndSet(slot, current, next)) {
+                break;
+            }
+        }
+        if (lastBucket != bucket) {
+            lastBucket = bucket;
+        }
+    }
+
+    long sum(long bucket) {
+        long sum = 0;
+        for (int slot = 0; slot < length; slot++) {
+            long current = slots.get(slot);
+            if (bucket - (current >>> COUNT_BITS) < length) {
+                sum += current & COUNT_MASK;
+            }
+        }
+        return sum;
+    }
+
+    boolean isIdle(long bucket) {
+        return bucket - lastBucket >= length;
+    }
+}
@@ -0,0 +1,155 @@
+package com.kapok.fraud.velocity;
+
+import com.kapok.fraud.rule.FraudCheckContext;
+import com.kapok.fraud.rule.VelocitySignals;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process sliding-window check counts keyed by customer id, email domain and phone
+ * number prefix. Every key owns a {@link SlidingWindowCounter} in a {@link CounterTable}
+ * keyed by a primitive long: the mixed bits of the customer id, the context's email
+ * domain hash and the phone number prefix. Recording and reading a check therefore
+ * allocate nothing once its keys are tracked. Distinct domains sharing a 64-bit hash
+ * would share a count.
+ * <p>
+ * Memory is bounded by {@code max-keys} per dimension: once a map is full, new keys are
+ * not tracked until idle ones are evicted. A sweeper removes keys that have not been
+ * incremented for a whole window. A check racing with the eviction of its key can be
+ * lost, which only ever makes the counts lower.
+ */
+@Slf4j
+@Component
+public class VelocityCounters implements VelocitySignals {
+
+    private final Dimension customers;
+    private final Dimension emailDomains;
+    private final Dimension phonePrefixes;
+    private final int buckets;
+    private final long bucketNanos;
+    private final long startNanos = System.nanoTime();
+    private final int phonePrefixDivisor;
+    private final ScheduledExecutorService sweeper;
+
+    public VelocityCounters(
+            MeterRegistry meterRegistry,
+            @Value("${fraud.velocity.window:1m}") Duration window,
+            @Value("${fraud.velocity.buckets:60}") int buckets,
+            @Value("${fraud.velocity.max-keys:1000000}") int maxKeys,
+            @Value("${fraud.velocity.phone-prefix-trailing-digits:4}") int phonePrefixTrailingDigits) {
+        this.buckets = buckets;
+        this.bucketNanos = Math.max(window.toNanos() / buckets, 1);
+        this.phonePrefixDivisor = (int) Math.pow(10, phonePrefixTrailingDigits);
+        this.customers = new Dimension("customer", maxKeys, meterRegistry);
+        this.emailDomains = new Dimension("email-domain", maxKeys, meterRegistry);
+        this.phonePrefixes = new Dimension("phone-prefix", maxKeys, meterRegistry);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fraud-velocity-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepMillis = Math.max(window.toMillis(), 1);
+        sweeper.scheduleWithFixedDelay(this::evictIdle, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        sweeper.shutdownNow();
+    }
+
+    public void record(FraudCheckContext context) {
+        long bucket = currentBucket();
+        if (context.getCustomerId() != null) {
+            customers.increment(customerKey(context.getCustomerId()), bucket);
+        }
+        if (context.hasEmailDomain()) {
+            emailDomains.increment(context.getEmailDomainHash(), bucket);
+        }
+        if (context.hasPhoneNumber()) {
+            phonePrefixes.increment(context.getPhoneNumber() / phonePrefixDivisor, bucket);
+        }
+    }
+
+    @Override
+    public long customerChecks(FraudCheckContext context) {
+        return context.getCustomerId() == null
+                ? 0
+                : customers.sum(customerKey(context.getCustomerId()), currentBucket());
+    }
+
+    @Override
+    public long emailDomainChecks(FraudCheckContext context) {
+        return context.hasEmailDomain() ? emailDomains.sum(context.getEmailDomainHash(), currentBucket()) : 0;
+    }
+
+    @Override
+    public long phonePrefixChecks(FraudCheckContext context) {
+        return context.hasPhoneNumber()
+                ? phonePrefixes.sum(context.getPhoneNumber() / phonePrefixDivisor, currentBucket())
+                : 0;
+    }
+
+    void evictIdle() {
+        long bucket = currentBucket();
+        customers.evictIdle(bucket);
+        emailDomains.evictIdle(bucket);
+        phonePrefixes.evictIdle(bucket);
+    }
+
+    private long currentBucket() {
+        return (System.nanoTime() - startNanos) / bucketNanos;
+    }
+
+    private static long customerKey(UUID customerId) {
+        return customerId.getMostSignificantBits() * 0x9e3779b97f4a7c15L ^ customerId.getLeastSignificantBits();
+    }
+
+    private class Dimension {
+
+        private final CounterTable counters = new CounterTable();
+        private final int maxKeys;
+        private final Counter evicted;
+        private final Counter untracked;
+
+        private Dimension(String name, int maxKeys, MeterRegistry meterRegistry) {
+            this.maxKeys = maxKeys;
+            Gauge.builder("fraud.velocity.keys", counters, CounterTable::size)
+                    .tag("dimension", name)
+                    .register(meterRegistry);
+            this.evicted = meterRegistry.counter("fraud.velocity.evicted", "dimension", name);
+            this.untracked = meterRegistry.counter("fraud.velocity.untracked", "dimension", name);
+        }
+
+        private void increment(long key, long bucket) {
+            SlidingWindowCounter counter = counters.get(key);
+            if (counter == null) {
+                if (counters.size() >= maxKeys) {
+                    untracked.increment();
+                    return;
+                }
+                counter = counters.computeIfAbsent(key, buckets);
+            }
+            counter.increment(bucket);
+        }
+
+        private long sum(long key, long bucket) {
+            SlidingWindowCounter counter = counters.get(key);
+            return counter == null ? 0 : counter.sum(bucket);
+        }
+
+        private void evictIdle(long bucket) {
+            evicted.increment(counters.removeIf(counter -> counter.isIdle(bucket)));
+        }
+    }
+}
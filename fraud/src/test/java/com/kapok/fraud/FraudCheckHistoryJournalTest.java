@@ -0,0 +1,127 @@
+package com.kapok.fraud;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+
+class FraudCheckHistoryJournalTest {
+
+    @Mock
+    private FraudCheckHistoryRepository fraudCheckHistoryRepository;
+
+    private final Set<FraudCheckHistory> written = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger writes = new AtomicInteger();
+    private FraudCheckHistoryJournal underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        given(fraudCheckHistoryRepository.save(any())).willAnswer(invocation -> {
+            FraudCheckHistory history = invocation.getArgument(0);
+            written.add(history);
+            writes.incrementAndGet();
+            return history;
+        });
+        given(fraudCheckHistoryRepository.saveAll(anyCollection())).willAnswer(invocation -> {
+            Collection<FraudCheckHistory> histories = invocation.getArgument(0);
+            written.addAll(histories);
+            writes.addAndGet(histories.size());
+            return new ArrayList<>(histories);
+        });
+        underTest = new FraudCheckHistoryJournal(
+                fraudCheckHistoryRepository, new SimpleMeterRegistry(), 100, 10, 50, 50);
+    }
+
+    @Test
+    void itShouldWriteEveryRecordAppendedBeforeStop() throws InterruptedException {
+        // given
+        underTest.start();
+        List<FraudCheckHistory> histories = histories(95);
+
+        // when
+        underTest.appendAll(histories);
+        underTest.stop();
+
+        // then
+        assertThat(written).containsExactlyInAnyOrderElementsOf(histories);
+        assertThat(writes.get()).isEqualTo(histories.size());
+    }
+
+    @Test
+    void itShouldWriteRecordsAppendedAfterStopDirectly() throws InterruptedException {
+        // given
+        underTest.start();
+        underTest.stop();
+        FraudCheckHistory history = histories(1).get(0);
+
+        // when
+        underTest.append(history);
+
+        // then
+        then(fraudCheckHistoryRepository).should().save(history);
+        assertThat(written).containsExactly(history);
+    }
+
+    @Test
+    void itShouldNotLoseRecordsAppendedWhileStopping() throws Exception {
+        // given
+        underTest.start();
+        ExecutorService appenders = Executors.newFixedThreadPool(4);
+        CountDownLatch started = new CountDownLatch(4);
+        List<Future<List<FraudCheckHistory>>> appended = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            appended.add(appenders.submit(() -> {
+                List<FraudCheckHistory> histories = histories(2_000);
+                started.countDown();
+                histories.forEach(underTest::append);
+                return histories;
+            }));
+        }
+
+        // when
+        started.await();
+        underTest.stop();
+
+        // then
+        List<FraudCheckHistory> expected = new ArrayList<>();
+        for (Future<List<FraudCheckHistory>> future : appended) {
+            expected.addAll(future.get());
+        }
+        appenders.shutdown();
+        assertThat(written).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(writes.get()).isEqualTo(expected.size());
+    }
+
+    private static List<FraudCheckHistory> histories(int count) {
+        List<FraudCheckHistory> histories = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            histories.add(FraudCheckHistory.builder()
+                    .customerId(UUID.randomUUID())
+                    .isFraudster(false)
+                    .createAt(LocalDateTime.now())
+                    .build());
+        }
+        return histories;
+    }
+}
@@ -0,0 +1,60 @@
+package com.kapok.fraud.blocklist;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BlocklistKeysTest {
+
+    @Test
+    void itShouldCanonicalizeEveryType() {
+        // given
+        UUID customerId = UUID.randomUUID();
+
+        // then
+        assertThat(BlocklistKeys.identifier(BlocklistEntryType.CUSTOMER_ID, " " + customerId.toString().toUpperCase()))
+                .isEqualTo(customerId.toString());
+        assertThat(BlocklistKeys.identifier(BlocklistEntryType.EMAIL, " Kapok@Gmail.COM "))
+                .isEqualTo("kapok@gmail.com");
+        assertThat(BlocklistKeys.identifier(BlocklistEntryType.PHONE_NUMBER, " 00131 "))
+                .isEqualTo("131");
+    }
+
+    @Test
+    void itShouldRejectMalformedIdentifiers() {
+        assertThatThrownBy(() -> BlocklistKeys.identifier(BlocklistEntryType.CUSTOMER_ID, "not-a-uuid"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BlocklistKeys.identifier(BlocklistEntryType.PHONE_NUMBER, "+1 555"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void itShouldHashStoredAndLiveValuesAlike() {
+        // given
+        UUID customerId = UUID.randomUUID();
+
+        // then
+        assertThat(BlocklistKeys.hash(key(BlocklistEntryType.CUSTOMER_ID, customerId.toString())))
+                .isEqualTo(BlocklistKeys.hash(customerId));
+        assertThat(BlocklistKeys.hash(key(BlocklistEntryType.EMAIL, "kapok@gmail.com")))
+                .isEqualTo(BlocklistKeys.hashEmail(" Kapok@Gmail.com\t"));
+        assertThat(BlocklistKeys.hash(key(BlocklistEntryType.PHONE_NUMBER, "131")))
+                .isEqualTo(BlocklistKeys.hash(131));
+    }
+
+    @Test
+    void itShouldTellCanonicalKeys() {
+        assertThat(BlocklistKeys.isCanonical(key(BlocklistEntryType.EMAIL, "kapok@gmail.com"))).isTrue();
+        assertThat(BlocklistKeys.isCanonical(key(BlocklistEntryType.EMAIL, "Kapok@gmail.com"))).isFalse();
+        assertThat(BlocklistKeys.isCanonical(key(BlocklistEntryType.PHONE_NUMBER, "0131"))).isFalse();
+        assertThat(BlocklistKeys.isCanonical(
+                key(BlocklistEntryType.CUSTOMER_ID, UUID.randomUUID().toString().toUpperCase()))).isFalse();
+    }
+
+    private static BlocklistKey key(BlocklistEntryType type, String identifier) {
+        return new BlocklistKey(type, identifier);
+    }
+}
@@ -0,0 +1,119 @@
+package com.kapok.fraud.blocklist;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BlocklistSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void itShouldMapWhatWasWritten() throws IOException {
+        // given
+        BloomFilter filter = filter(10_000);
+        Path path = directory.resolve("blocklist.snapshot");
+
+        // when
+        BlocklistSnapshot.write(filter, path, 1234L);
+        MappedBloomFilter mapped = BlocklistSnapshot.map(path);
+
+        // then
+        assertThat(mapped.entries()).isEqualTo(filter.entries());
+        assertThat(mapped.bitSize()).isEqualTo(filter.bitSize());
+        assertThat(mapped.generatedAt()).isEqualTo(1234L);
+        assertSameAnswers(filter, mapped);
+    }
+
+    @Test
+    void itShouldReadWordsAcrossSegments() throws IOException {
+        // given a filter spanning dozens of 4 KiB segments
+        BloomFilter filter = filter(100_000);
+        Path path = directory.resolve("blocklist.snapshot");
+        BlocklistSnapshot.write(filter, path, 1234L);
+
+        // when
+        MappedBloomFilter mapped = BlocklistSnapshot.map(path, 12);
+
+        // then
+        assertThat(Files.size(path)).isGreaterThan(20L << 12);
+        assertSameAnswers(filter, mapped);
+    }
+
+    @Test
+    void itShouldWriteLittleEndianHeader() throws IOException {
+        // given
+        BloomFilter filter = filter(100);
+        Path path = directory.resolve("blocklist.snapshot");
+
+        // when
+        BlocklistSnapshot.write(filter, path, 1234L);
+
+        // then
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(new String(new byte[]{header.get(3), header.get(2), header.get(1), header.get(0)}))
+                .isEqualTo("KBLS");
+        assertThat(header.getInt(4)).isEqualTo(1);
+        assertThat(header.getInt(8)).isEqualTo(filter.hashFunctions());
+        assertThat(header.getLong(16)).isEqualTo(filter.bitSize());
+        assertThat(header.getLong(24)).isEqualTo(100);
+        assertThat(header.getLong(32)).isEqualTo(1234L);
+        assertThat(header.getLong(64)).isEqualTo(filter.word(0));
+        assertThat(header.capacity()).isEqualTo(64 + filter.bitSize() / 8);
+    }
+
+    @Test
+    void itShouldRejectTruncatedAndForeignFiles() throws IOException {
+        // given
+        Path path = directory.resolve("blocklist.snapshot");
+        BlocklistSnapshot.write(filter(1000), path, 1234L);
+        Path truncated = directory.resolve("truncated.snapshot");
+        Files.write(truncated, Files.readAllBytes(path));
+        try (FileChannel channel = FileChannel.open(truncated, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 8);
+        }
+        Path foreign = directory.resolve("foreign.snapshot");
+        Files.write(foreign, new byte[128]);
+
+        // then
+        assertThatThrownBy(() -> BlocklistSnapshot.map(truncated))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("truncated");
+        assertThatThrownBy(() -> BlocklistSnapshot.map(foreign))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("is not a version 1 blocklist snapshot");
+    }
+
+    private static BloomFilter filter(int entries) {
+        BloomFilter filter = BloomFilter.create(entries, 0.01);
+        Random random = new Random(7);
+        for (int i = 0; i < entries; i++) {
+            filter.put(random.nextLong());
+        }
+        return filter;
+    }
+
+    private static void assertSameAnswers(BloomFilter filter, MappedBloomFilter mapped) {
+        Random inserted = new Random(7);
+        for (int i = 0; i < filter.entries(); i++) {
+            assertThat(mapped.mightContain(inserted.nextLong())).isTrue();
+        }
+        Random other = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            long hash = other.nextLong();
+            assertThat(mapped.mightContain(hash)).isEqualTo(filter.mightContain(hash));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.kapok.fraud.blocklist;
+
+import com.kapok.fraud.rule.FraudCheckContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+class FraudBlocklistTest {
+
+    @Mock
+    private BlocklistEntryRepository blocklistEntryRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UUID customerId = UUID.randomUUID();
+    private FraudBlocklist underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        underTest = new FraudBlocklist(blocklistEntryRepository, transactionManager, meterRegistry,
+                0.01, 1.2, Duration.ofMinutes(10), "", false);
+    }
+
+    @Test
+    void itShouldConfirmFilterHitsWithCanonicalIdentifiers() {
+        // given
+        given(blocklistEntryRepository.count()).willReturn(3L);
+        given(blocklistEntryRepository.streamAllKeys()).willReturn(Stream.of(
+                new BlocklistKey(BlocklistEntryType.CUSTOMER_ID, customerId.toString()),
+                new BlocklistKey(BlocklistEntryType.EMAIL, "fraudster@gmail.com"),
+                new BlocklistKey(BlocklistEntryType.PHONE_NUMBER, "131")));
+        given(blocklistEntryRepository.existsByTypeAndIdentifier(BlocklistEntryType.CUSTOMER_ID, customerId.toString()))
+                .willReturn(true);
+        given(blocklistEntryRepository.existsByTypeAndIdentifier(BlocklistEntryType.EMAIL, "fraudster@gmail.com"))
+                .willReturn(true);
+        given(blocklistEntryRepository.existsByTypeAndIdentifier(BlocklistEntryType.PHONE_NUMBER, "131"))
+                .willReturn(true);
+        underTest.rebuild();
+
+        // then
+        assertThat(underTest.isBlocked(context(customerId, null, null))).isTrue();
+        assertThat(underTest.isBlocked(context(UUID.randomUUID(), " Fraudster@Gmail.com ", null))).isTrue();
+        assertThat(underTest.isBlocked(context(UUID.randomUUID(), null, 131))).isTrue();
+    }
+
+    @Test
+    void itShouldSkipMalformedAndNonCanonicalEntries() {
+        // given
+        given(blocklistEntryRepository.count()).willReturn(4L);
+        given(blocklistEntryRepository.streamAllKeys()).willReturn(Stream.of(
+                new BlocklistKey(BlocklistEntryType.CUSTOMER_ID, "not-a-uuid"),
+                new BlocklistKey(BlocklistEntryType.PHONE_NUMBER, "0131"),
+                new BlocklistKey(BlocklistEntryType.PHONE_NUMBER, "+1 555"),
+                new BlocklistKey(BlocklistEntryType.EMAIL, "fraudster@gmail.com")));
+
+        // when
+        BloomFilter filter = underTest.buildFilter();
+
+        // then the rebuild is not aborted and the skipped rows are counted
+        assertThat(filter.entries()).isEqualTo(1);
+        assertThat(meterRegistry.counter("fraud.blocklist.skipped-entries", "reason", "malformed").count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.counter("fraud.blocklist.skipped-entries", "reason", "non-canonical").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void itShouldAnswerFilterMissesWithoutQuerying() {
+        // given
+        given(blocklistEntryRepository.count()).willReturn(0L);
+        given(blocklistEntryRepository.streamAllKeys()).willReturn(Stream.empty());
+        underTest.rebuild();
+
+        // when
+        boolean blocked = underTest.isBlocked(context(customerId, "kapok@gmail.com", 131));
+
+        // then
+        assertThat(blocked).isFalse();
+        then(blocklistEntryRepository).should(never()).existsByTypeAndIdentifier(any(), any());
+    }
+
+    @Test
+    void itShouldStoreCanonicalIdentifiers() {
+        // given
+        BlocklistEntry entry = BlocklistEntry.builder()
+                .type(BlocklistEntryType.CUSTOMER_ID)
+                .identifier(customerId.toString().toUpperCase())
+                .build();
+
+        // when
+        entry.canonicalizeIdentifier();
+
+        // then
+        assertThat(entry.getIdentifier()).isEqualTo(customerId.toString());
+    }
+
+    @Test
+    void itShouldRebuildInBackgroundWhenSnapshotIsMissing() throws InterruptedException {
+        // given a rebuild that does not finish until released
+        CountDownLatch rebuilding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        given(blocklistEntryRepository.count()).willReturn(0L);
+        given(blocklistEntryRepository.streamAllKeys()).willAnswer(invocation -> {
+            rebuilding.countDown();
+            release.await();
+            return Stream.empty();
+        });
+        FraudBlocklist blocklist = new FraudBlocklist(blocklistEntryRepository, transactionManager, meterRegistry,
+                0.01, 1.2, Duration.ofMinutes(10), directory.resolve("missing.snapshot").toString(), false);
+
+        // when
+        blocklist.start();
+
+        // then startup returned and the rebuild runs on the rebuilder thread
+        assertThat(rebuilding.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+        blocklist.stop();
+    }
+
+    @Test
+    void itShouldMapExistingSnapshotOnStartup() throws IOException {
+        // given
+        BloomFilter snapshot = BloomFilter.create(10, 0.01);
+        snapshot.put(BlocklistKeys.hash(customerId));
+        Path path = directory.resolve("blocklist.snapshot");
+        BlocklistSnapshot.write(snapshot, path, 1234L);
+        FraudBlocklist blocklist = new FraudBlocklist(blocklistEntryRepository, transactionManager, meterRegistry,
+                0.01, 1.2, Duration.ofMinutes(10), path.toString(), false);
+        given(blocklistEntryRepository.existsByTypeAndIdentifier(BlocklistEntryType.CUSTOMER_ID, customerId.toString()))
+                .willReturn(true);
+
+        // when
+        blocklist.start();
+
+        // then
+        assertThat(blocklist.isBlocked(context(customerId, null, null))).isTrue();
+        assertThat(blocklist.isBlocked(context(UUID.randomUUID(), null, null))).isFalse();
+        then(blocklistEntryRepository).should(never()).streamAllKeys();
+        blocklist.stop();
+    }
+
+    private static FraudCheckContext context(UUID customerId, String email, Integer phoneNumber) {
+        return new FraudCheckContext().reset(customerId, email, phoneNumber);
+    }
+}
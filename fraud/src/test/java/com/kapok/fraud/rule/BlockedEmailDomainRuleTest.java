@@ -0,0 +1,68 @@
+package com.kapok.fraud.rule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BlockedEmailDomainRuleTest {
+
+    private final BlockedEmailDomainRule underTest =
+            new BlockedEmailDomainRule(List.of("mailinator.com", " Guerrillamail.COM ", "", "mailinator.com"));
+
+    @Test
+    void itShouldMatchBlockedDomainIgnoringCase() {
+        // given
+        // when
+        // then
+        assertThat(underTest.matches(context("alex@mailinator.com"))).isTrue();
+        assertThat(underTest.matches(context("Alex@MailInator.Com"))).isTrue();
+        assertThat(underTest.matches(context("alex@guerrillamail.com"))).isTrue();
+    }
+
+    @Test
+    void itShouldMatchOnlyTheWholeDomain() {
+        // given
+        // when
+        // then
+        assertThat(underTest.matches(context("alex@gmail.com"))).isFalse();
+        assertThat(underTest.matches(context("alex@sub.mailinator.com"))).isFalse();
+        assertThat(underTest.matches(context("alex@mailinator.co"))).isFalse();
+        assertThat(underTest.matches(context("alex@mailinator.com.au"))).isFalse();
+    }
+
+    @Test
+    void itShouldMatchDomainAfterTheLastAt() {
+        // given
+        // when
+        // then
+        assertThat(underTest.matches(context("\"alex@gmail.com\"@mailinator.com"))).isTrue();
+        assertThat(underTest.matches(context("alex@mailinator.com@gmail.com"))).isFalse();
+    }
+
+    @Test
+    void itShouldNotMatchEmailWithoutDomain() {
+        // given
+        // when
+        // then
+        assertThat(underTest.matches(context(null))).isFalse();
+        assertThat(underTest.matches(context("mailinator.com"))).isFalse();
+        assertThat(underTest.matches(context("alex@"))).isFalse();
+    }
+
+    @Test
+    void itShouldMatchNothingWithoutDomains() {
+        // given
+        BlockedEmailDomainRule empty = new BlockedEmailDomainRule(List.of());
+
+        // when
+        // then
+        assertThat(empty.matches(context("alex@mailinator.com"))).isFalse();
+    }
+
+    private static FraudCheckContext context(String email) {
+        return new FraudCheckContext().reset(UUID.randomUUID(), email, null);
+    }
+}
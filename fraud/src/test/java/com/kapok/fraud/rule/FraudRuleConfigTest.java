@@ -0,0 +1,76 @@
+package com.kapok.fraud.rule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static com.kapok.fraud.rule.PhoneNumberRangeRuleTest.range;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FraudRuleConfigTest {
+
+    @Mock
+    private Blocklist blocklist;
+    @Mock
+    private VelocitySignals velocitySignals;
+    @Mock
+    private FraudSignals fraudSignals;
+
+    private final FraudRuleConfig underTest = new FraudRuleConfig();
+    private final FraudRuleProperties properties = new FraudRuleProperties();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void itShouldCompileEnabledRulesCheapestFirst() {
+        // given
+        properties.getRecentHistory().setEnabled(true);
+        properties.getVelocity().setEnabled(true);
+        properties.getBlocklist().setEnabled(true);
+        properties.getPhoneNumberRanges().setEnabled(true);
+        properties.getBlockedEmailDomains().setEnabled(true);
+
+        // when
+        FraudRuleEngine engine = fraudRuleEngine();
+
+        // then
+        assertThat(engine.getRules()).extracting(FraudRule::name).containsExactly(
+                "blocked-email-domain", "phone-number-range", "blocklist", "velocity", "recent-history");
+    }
+
+    @Test
+    void itShouldLeaveOutDisabledRules() {
+        // given
+        properties.getBlocklist().setEnabled(true);
+        properties.getRecentHistory().setEnabled(true);
+
+        // when
+        FraudRuleEngine engine = fraudRuleEngine();
+
+        // then
+        assertThat(engine.getRules()).extracting(FraudRule::name).containsExactly("blocklist", "recent-history");
+    }
+
+    @Test
+    void itShouldRefuseInvertedPhoneNumberRange() {
+        // given
+        properties.getPhoneNumberRanges().setEnabled(true);
+        properties.getPhoneNumberRanges().setRanges(List.of(range(200, 100)));
+
+        // when
+        // then
+        assertThatThrownBy(this::fraudRuleEngine).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private FraudRuleEngine fraudRuleEngine() {
+        return underTest.fraudRuleEngine(properties, blocklist, velocitySignals, fraudSignals, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,101 @@
+package com.kapok.fraud.rule;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+class FraudRuleEngineTest {
+
+    @Mock
+    private FraudRule first;
+    @Mock
+    private FraudRule second;
+    @Mock
+    private FraudRule third;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FraudCheckContext context =
+            new FraudCheckContext().reset(UUID.randomUUID(), "alex@gmail.com", 123456);
+    private FraudRuleEngine underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        given(first.name()).willReturn("first");
+        given(second.name()).willReturn("second");
+        given(third.name()).willReturn("third");
+        underTest = new FraudRuleEngine(List.of(first, second, third), meterRegistry);
+    }
+
+    @Test
+    void itShouldStopAtFirstMatchingRule() {
+        // given
+        given(second.matches(context)).willReturn(true);
+        given(third.matches(context)).willReturn(true);
+
+        // when
+        FraudRule matched = underTest.evaluate(context);
+
+        // then
+        assertThat(matched).isSameAs(second);
+        then(first).should().matches(context);
+        then(third).should(never()).matches(any());
+    }
+
+    @Test
+    void itShouldReturnNullWhenNoRuleMatches() {
+        // given
+        // when
+        FraudRule matched = underTest.evaluate(context);
+
+        // then
+        assertThat(matched).isNull();
+        then(third).should().matches(context);
+    }
+
+    @Test
+    void itShouldCountEvaluationsAndMatchesPerRule() {
+        // given
+        given(second.matches(context)).willReturn(true, false);
+
+        // when
+        underTest.evaluate(context);
+        underTest.evaluate(context);
+
+        // then
+        assertThat(evaluations("first")).isEqualTo(2);
+        assertThat(evaluations("second")).isEqualTo(2);
+        assertThat(evaluations("third")).isEqualTo(1);
+        assertThat(matches("first")).isZero();
+        assertThat(matches("second")).isEqualTo(1);
+        assertThat(matches("third")).isZero();
+    }
+
+    @Test
+    void itShouldListRulesInEvaluationOrder() {
+        // given
+        // when
+        // then
+        assertThat(underTest.getRules()).containsExactly(first, second, third);
+    }
+
+    private long evaluations(String rule) {
+        return (long) meterRegistry.get("fraud.rule.evaluation").tag("rule", rule).functionTimer().count();
+    }
+
+    private double matches(String rule) {
+        return meterRegistry.get("fraud.rule.matches").tag("rule", rule).functionCounter().count();
+    }
+}
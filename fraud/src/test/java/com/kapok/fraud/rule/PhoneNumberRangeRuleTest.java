@@ -0,0 +1,98 @@
+package com.kapok.fraud.rule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PhoneNumberRangeRuleTest {
+
+    @Test
+    void itShouldMatchRangeEdgesInclusively() {
+        // given
+        PhoneNumberRangeRule underTest = new PhoneNumberRangeRule(List.of(range(100, 199), range(500, 599)));
+
+        // when
+        // then
+        assertThat(underTest.matches(context(99))).isFalse();
+        assertThat(underTest.matches(context(100))).isTrue();
+        assertThat(underTest.matches(context(150))).isTrue();
+        assertThat(underTest.matches(context(199))).isTrue();
+        assertThat(underTest.matches(context(200))).isFalse();
+        assertThat(underTest.matches(context(499))).isFalse();
+        assertThat(underTest.matches(context(500))).isTrue();
+        assertThat(underTest.matches(context(599))).isTrue();
+        assertThat(underTest.matches(context(600))).isFalse();
+    }
+
+    @Test
+    void itShouldMergeOverlappingAndUnsortedRanges() {
+        // given
+        PhoneNumberRangeRule underTest = new PhoneNumberRangeRule(
+                List.of(range(300, 400), range(100, 200), range(150, 320), range(120, 130)));
+
+        // when
+        // then
+        assertThat(underTest.matches(context(99))).isFalse();
+        assertThat(underTest.matches(context(100))).isTrue();
+        assertThat(underTest.matches(context(250))).isTrue();
+        assertThat(underTest.matches(context(400))).isTrue();
+        assertThat(underTest.matches(context(401))).isFalse();
+    }
+
+    @Test
+    void itShouldMatchSingleNumberRange() {
+        // given
+        PhoneNumberRangeRule underTest = new PhoneNumberRangeRule(List.of(range(131, 131)));
+
+        // when
+        // then
+        assertThat(underTest.matches(context(130))).isFalse();
+        assertThat(underTest.matches(context(131))).isTrue();
+        assertThat(underTest.matches(context(132))).isFalse();
+    }
+
+    @Test
+    void itShouldRejectInvertedRange() {
+        // given
+        // when
+        // then
+        assertThatThrownBy(() -> new PhoneNumberRangeRule(List.of(range(100, 199), range(300, 200))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("phone number range [300, 200] ends before it starts");
+    }
+
+    @Test
+    void itShouldNotMatchCustomerWithoutPhoneNumber() {
+        // given
+        PhoneNumberRangeRule underTest = new PhoneNumberRangeRule(List.of(range(-1, 1)));
+
+        // when
+        // then
+        assertThat(underTest.matches(new FraudCheckContext().reset(UUID.randomUUID(), null, null))).isFalse();
+    }
+
+    @Test
+    void itShouldMatchNothingWithoutRanges() {
+        // given
+        PhoneNumberRangeRule underTest = new PhoneNumberRangeRule(List.of());
+
+        // when
+        // then
+        assertThat(underTest.matches(context(131))).isFalse();
+    }
+
+    static FraudRuleProperties.PhoneNumberRange range(int from, int to) {
+        FraudRuleProperties.PhoneNumberRange range = new FraudRuleProperties.PhoneNumberRange();
+        range.setFrom(from);
+        range.setTo(to);
+        return range;
+    }
+
+    private static FraudCheckContext context(int phoneNumber) {
+        return new FraudCheckContext().reset(UUID.randomUUID(), null, phoneNumber);
+    }
+}
@@ -0,0 +1,67 @@
+package com.kapok.fraud.rule;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+class RecentHistoryRuleTest {
+
+    private static final Duration WINDOW = Duration.ofDays(30);
+
+    @Mock
+    private FraudSignals fraudSignals;
+
+    private final UUID customerId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void itShouldMatchOnlyAboveMaxFraudulentChecks() {
+        // given
+        RecentHistoryRule underTest = new RecentHistoryRule(fraudSignals, WINDOW, 2);
+        given(fraudSignals.fraudulentChecksWithin(customerId, WINDOW)).willReturn(2L, 3L);
+        FraudCheckContext context = new FraudCheckContext().reset(customerId, "alex@gmail.com", 123456);
+
+        // when
+        // then
+        assertThat(underTest.matches(context)).isFalse();
+        assertThat(underTest.matches(context)).isTrue();
+    }
+
+    @Test
+    void itShouldMatchAnyFraudulentCheckByDefault() {
+        // given
+        RecentHistoryRule underTest = new RecentHistoryRule(fraudSignals, WINDOW, 0);
+        given(fraudSignals.fraudulentChecksWithin(customerId, WINDOW)).willReturn(1L);
+
+        // when
+        // then
+        assertThat(underTest.matches(new FraudCheckContext().reset(customerId, null, null))).isTrue();
+    }
+
+    @Test
+    void itShouldNotQueryHistoryWithoutCustomerId() {
+        // given
+        RecentHistoryRule underTest = new RecentHistoryRule(fraudSignals, WINDOW, 0);
+
+        // when
+        boolean matched = underTest.matches(new FraudCheckContext().reset(null, "alex@gmail.com", 123456));
+
+        // then
+        assertThat(matched).isFalse();
+        then(fraudSignals).should(never()).fraudulentChecksWithin(any(), any());
+    }
+}
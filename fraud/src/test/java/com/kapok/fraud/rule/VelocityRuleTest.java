@@ -0,0 +1,69 @@
+package com.kapok.fraud.rule;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+class VelocityRuleTest {
+
+    @Mock
+    private VelocitySignals velocitySignals;
+
+    private final FraudCheckContext context =
+            new FraudCheckContext().reset(UUID.randomUUID(), "alex@gmail.com", 123456);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void itShouldMatchOnceCustomerChecksReachThreshold() {
+        // given
+        VelocityRule underTest = new VelocityRule(velocitySignals, 10, 0, 0);
+        given(velocitySignals.customerChecks(context)).willReturn(9L, 10L);
+
+        // when
+        // then
+        assertThat(underTest.matches(context)).isFalse();
+        assertThat(underTest.matches(context)).isTrue();
+    }
+
+    @Test
+    void itShouldMatchOnEmailDomainOrPhonePrefixThreshold() {
+        // given
+        VelocityRule underTest = new VelocityRule(velocitySignals, 10, 100, 50);
+        given(velocitySignals.customerChecks(context)).willReturn(1L);
+        given(velocitySignals.emailDomainChecks(context)).willReturn(99L, 100L, 1L);
+        given(velocitySignals.phonePrefixChecks(context)).willReturn(49L, 50L);
+
+        // when
+        // then
+        assertThat(underTest.matches(context)).isFalse();
+        assertThat(underTest.matches(context)).isTrue();
+        assertThat(underTest.matches(context)).isTrue();
+    }
+
+    @Test
+    void itShouldNotQueryDimensionsWithZeroThreshold() {
+        // given
+        VelocityRule underTest = new VelocityRule(velocitySignals, 0, 0, 0);
+
+        // when
+        boolean matched = underTest.matches(context);
+
+        // then
+        assertThat(matched).isFalse();
+        then(velocitySignals).should(never()).customerChecks(context);
+        then(velocitySignals).should(never()).emailDomainChecks(context);
+        then(velocitySignals).should(never()).phonePrefixChecks(context);
+    }
+}
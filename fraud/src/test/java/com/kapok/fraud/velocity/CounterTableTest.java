@@ -0,0 +1,56 @@
+package com.kapok.fraud.velocity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CounterTableTest {
+
+    @Test
+    void itShouldReturnSameCounterForSameKey() {
+        // given
+        CounterTable underTest = new CounterTable();
+
+        // when
+        SlidingWindowCounter counter = underTest.computeIfAbsent(42, 4);
+
+        // then
+        assertThat(underTest.computeIfAbsent(42, 4)).isSameAs(counter);
+        assertThat(underTest.get(42)).isSameAs(counter);
+        assertThat(underTest.get(43)).isNull();
+        assertThat(underTest.size()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldKeepEveryKeyAcrossResizesAndRemovals() {
+        // given
+        CounterTable underTest = new CounterTable();
+        Map<Long, SlidingWindowCounter> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            // sequential keys like phone prefixes, plus random ones, plus zero
+            long key = i % 2 == 0 ? i : random.nextLong();
+            expected.put(key, underTest.computeIfAbsent(key, 4));
+        }
+        expected.put(0L, underTest.computeIfAbsent(0, 4));
+        // mark about half of the counters as recently used
+        expected.forEach((key, counter) -> {
+            if ((key & 1) == 0) {
+                counter.increment(100);
+            }
+        });
+
+        // when
+        int removed = underTest.removeIf(counter -> counter.isIdle(100));
+
+        // then
+        expected.values().removeIf(counter -> counter.isIdle(100));
+        assertThat(underTest.size()).isEqualTo(expected.size());
+        assertThat(removed).isGreaterThan(0);
+        expected.forEach((key, counter) -> assertThat(underTest.get(key)).isSameAs(counter));
+    }
+}
@@ -0,0 +1,119 @@
+package com.kapok.fraud.velocity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingWindowCounterTest {
+
+    @Test
+    void itShouldSumBucketsWithinWindow() {
+        // given
+        SlidingWindowCounter underTest = new SlidingWindowCounter(4);
+
+        // when
+        underTest.increment(10);
+        underTest.increment(11);
+        underTest.increment(11);
+        underTest.increment(13);
+
+        // then
+        assertThat(underTest.sum(13)).isEqualTo(4);
+    }
+
+    @Test
+    void itShouldSlideOneBucketAtATime() {
+        // given
+        SlidingWindowCounter underTest = new SlidingWindowCounter(4);
+        underTest.increment(10);
+        underTest.increment(11);
+        underTest.increment(11);
+
+        // then bucket 10 leaves the window at 14, bucket 11 at 15
+        assertThat(underTest.sum(13)).isEqualTo(3);
+        assertThat(underTest.sum(14)).isEqualTo(2);
+        assertThat(underTest.sum(15)).isEqualTo(0);
+    }
+
+    @Test
+    void itShouldRollSlotOverToNewBucket() {
+        // given
+        SlidingWindowCounter underTest = new SlidingWindowCounter(4);
+        underTest.increment(10);
+        underTest.increment(10);
+
+        // when bucket 14 reuses the slot of bucket 10
+        underTest.increment(14);
+
+        // then the old count is replaced, not added to
+        assertThat(underTest.sum(14)).isEqualTo(1);
+        assertThat(underTest.sum(17)).isEqualTo(1);
+        assertThat(underTest.sum(18)).isEqualTo(0);
+    }
+
+    @Test
+    void itShouldSaturateInsteadOfOverflowing() {
+        // given
+        SlidingWindowCounter underTest = new SlidingWindowCounter(2);
+        int max = (1 << 24) - 1;
+
+        // when
+        for (int i = 0; i < max + 10; i++) {
+            underTest.increment(7);
+        }
+
+        // then the count does not spill into the bucket bits
+        assertThat(underTest.sum(7)).isEqualTo(max);
+        assertThat(underTest.sum(8)).isEqualTo(max);
+    }
+
+    @Test
+    void itShouldBeIdleOnceWindowPassedWithoutIncrements() {
+        // given
+        SlidingWindowCounter underTest = new SlidingWindowCounter(4);
+        underTest.increment(10);
+
+        // then
+        assertThat(underTest.isIdle(13)).isFalse();
+        assertThat(underTest.isIdle(14)).isTrue();
+    }
+
+    @Test
+    void itShouldNotLoseConcurrentIncrementsAcrossRollover() throws InterruptedException {
+        // given the slot of bucket 3 still holds an old count from bucket 0
+        SlidingWindowCounter underTest = new SlidingWindowCounter(3);
+        for (int i = 0; i < 100; i++) {
+            underTest.increment(0);
+        }
+        int threads = 4;
+        int increments = 100_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // when all threads race to roll it over and count
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < increments; i++) {
+                    underTest.increment(3);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        // then exactly one rollover happened and no increment was lost
+        assertThat(underTest.sum(3)).isEqualTo((long) threads * increments);
+    }
+}
@@ -0,0 +1,57 @@
+package com.kapok.fraud.velocity;
+
+import com.kapok.fraud.rule.FraudCheckContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VelocityCountersTest {
+
+    private final VelocityCounters underTest = new VelocityCounters(
+            new SimpleMeterRegistry(), Duration.ofMinutes(1), 60, 1000, 4);
+
+    @AfterEach
+    void tearDown() {
+        underTest.stop();
+    }
+
+    @Test
+    void itShouldCountEachDimension() {
+        // given
+        UUID customerId = UUID.randomUUID();
+        underTest.record(new FraudCheckContext().reset(customerId, "kapok@Gmail.com", 5551234));
+        underTest.record(new FraudCheckContext().reset(UUID.randomUUID(), "code@gmail.COM", 5559876));
+        underTest.record(new FraudCheckContext().reset(customerId, "other@kapok.com", 7771234));
+
+        // when
+        FraudCheckContext context = new FraudCheckContext().reset(customerId, "john@GMAIL.com", 5550000);
+
+        // then domains are case-insensitive, phone prefixes drop the trailing four digits
+        assertThat(underTest.customerChecks(context)).isEqualTo(2);
+        assertThat(underTest.emailDomainChecks(context)).isEqualTo(2);
+        assertThat(underTest.phonePrefixChecks(context)).isEqualTo(2);
+    }
+
+    @Test
+    void itShouldNotTrackKeysBeyondMaxKeys() {
+        // given
+        VelocityCounters bounded = new VelocityCounters(
+                new SimpleMeterRegistry(), Duration.ofMinutes(1), 60, 2, 4);
+        FraudCheckContext context = new FraudCheckContext();
+
+        // when
+        bounded.record(context.reset(UUID.randomUUID(), null, null));
+        bounded.record(context.reset(UUID.randomUUID(), null, null));
+        UUID untracked = UUID.randomUUID();
+        bounded.record(context.reset(untracked, null, null));
+
+        // then
+        assertThat(bounded.customerChecks(context.reset(untracked, null, null))).isZero();
+        bounded.stop();
+    }
+}
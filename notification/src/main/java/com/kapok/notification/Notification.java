@@ -4,6 +4,7 @@ import lombok.*;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
 @Builder
@@ -17,14 +18,16 @@ public class Notification {
     @Id
     @SequenceGenerator(
             name = "notification_id_sequence",
-            sequenceName = "notification_id_sequence"
+            sequenceName = "notification_id_sequence",
+            // pooled: one sequence call per allocationSize inserts
+            allocationSize = 500
     )
     @GeneratedValue(
             strategy = GenerationType.SEQUENCE,
             generator = "notification_id_sequence"
     )
     private Integer notificationId;
-    private Integer toCustomerId;
+    private UUID toCustomerId;
     private String toCustomerEmail;
     private String sender;
     private String message;
@@ -4,7 +4,9 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -23,14 +25,47 @@ public class NotificationConfig {
     @Value("${spring.rabbitmq.template.routing-key.internal-notification}")
     private String internalNotificationRoutingKey;
 
+    @Value("${spring.rabbitmq.template.exchange.dead-letter:internal.dead-letter.exchange}")
+    private String deadLetterExchange;
+
+    @Value("${spring.rabbitmq.queue.notification-dead-letter:notification.dead-letter.queue}")
+    private String notificationDeadLetterQueue;
+
     @Bean
     public TopicExchange internalTopicExchange() {
         return new TopicExchange(this.internalExchange);
     }
 
+    /**
+     * Batches the listener gives up on are dead-lettered to {@link
+     * #notificationDeadLetterQueue()}. A broker that already has the queue without the
+     * dead letter arguments refuses the declaration; delete the queue once, or add the
+     * arguments through a policy.
+     */
     @Bean
     public Queue notificationQueue() {
-        return new Queue(this.notificationQueue);
+        return QueueBuilder.durable(this.notificationQueue)
+                .deadLetterExchange(this.deadLetterExchange)
+                .deadLetterRoutingKey(this.notificationDeadLetterQueue)
+                .build();
+    }
+
+    @Bean
+    public DirectExchange deadLetterExchange() {
+        return new DirectExchange(this.deadLetterExchange);
+    }
+
+    @Bean
+    public Queue notificationDeadLetterQueue() {
+        return QueueBuilder.durable(this.notificationDeadLetterQueue).build();
+    }
+
+    @Bean
+    public Binding notificationDeadLetterBinding() {
+        return BindingBuilder
+                .bind(notificationDeadLetterQueue())
+                .to(deadLetterExchange())
+                .with(this.notificationDeadLetterQueue);
     }
 
     @Bean
@@ -3,8 +3,11 @@ package com.kapok.notification;
 import com.kapok.clients.notification.NotificationRequest;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
@@ -12,14 +15,27 @@ public class NotificationService {
     private final NotificationRepository notificationRepository;
 
     public void send(NotificationRequest request) {
-        Notification notification = Notification.builder()
+        notificationRepository.save(notification(request, LocalDateTime.now()));
+    }
+
+    /**
+     * Persists the whole batch in one transaction; inserts go out as JDBC batches.
+     */
+    @Transactional
+    public void sendAll(List<NotificationRequest> requests) {
+        LocalDateTime sentAt = LocalDateTime.now();
+        notificationRepository.saveAll(requests.stream()
+                .map(request -> notification(request, sentAt))
+                .collect(Collectors.toList()));
+    }
+
+    private Notification notification(NotificationRequest request, LocalDateTime sentAt) {
+        return Notification.builder()
                 .toCustomerId(request.toCustomerId())
                 .toCustomerEmail(request.toCustomerName())
                 .sender("kapok")
                 .message(request.message())
-                .sentAt(LocalDateTime.now())
+                .sentAt(sentAt)
                 .build();
-
-        notificationRepository.save(notification);
     }
 }
@@ -7,6 +7,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 @AllArgsConstructor
 @Slf4j
@@ -14,9 +16,12 @@ public class NotificationConsumer {
 
     private final NotificationService notificationService;
 
-    @RabbitListener(queues = "${spring.rabbitmq.queue.notification}")
-    public void consumer(NotificationRequest notificationRequest){
-        log.info("Consumed {} from queue", notificationRequest);
-        notificationService.send(notificationRequest);
+    @RabbitListener(
+            id = "notification",
+            queues = "${spring.rabbitmq.queue.notification}",
+            containerFactory = "batchRabbitListenerContainerFactory")
+    public void consumer(List<NotificationRequest> notificationRequests){
+        log.info("Consumed {} notifications from queue", notificationRequests.size());
+        notificationService.sendAll(notificationRequests);
     }
 }
@@ -0,0 +1,70 @@
+package com.kapok.registrysnapshot;
+
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.discovery.shared.Applications;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A Eureka registry on local disk: the {@link Applications} in Eureka's own JSON encoding,
+ * the one served by {@code /eureka/apps}, gzipped. A snapshot is written to a temporary
+ * file and moved into place, so readers never see a partial one and a failed write keeps
+ * the previous snapshot.
+ */
+@Slf4j
+public final class RegistrySnapshot {
+
+    private static final CodecWrapper CODEC = CodecWrappers.getCodec(CodecWrappers.JacksonJson.class);
+
+    private RegistrySnapshot() {
+    }
+
+    public static void write(Applications applications, Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary))) {
+                CODEC.encode(applications, out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * The snapshot in {@code file}, or empty if there is none, it is older than
+     * {@code maxAge} or it cannot be read.
+     */
+    public static Optional<Applications> read(Path file, Duration maxAge) {
+        try {
+            if (!Files.isRegularFile(file)) {
+                return Optional.empty();
+            }
+            Duration age = Duration.between(Files.getLastModifiedTime(file).toInstant(), Instant.now());
+            if (age.compareTo(maxAge) > 0) {
+                log.info("ignoring registry snapshot {}, {} old", file, age);
+                return Optional.empty();
+            }
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                return Optional.ofNullable(CODEC.decode(in, Applications.class));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("ignoring unreadable registry snapshot {}", file, e);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.kapok.registrysnapshot;
+
+import com.netflix.discovery.shared.Applications;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Writes a {@link RegistrySnapshot} of {@code registry} every {@code interval} and once
+ * more on shutdown. An empty registry is never written, so a process that has not fetched
+ * or received any instances yet keeps the previous snapshot.
+ */
+@Slf4j
+public class RegistrySnapshotWriter {
+
+    private final Supplier<Applications> registry;
+    private final Path file;
+    private final Duration interval;
+    private final ScheduledExecutorService writer;
+
+    public RegistrySnapshotWriter(Supplier<Applications> registry, Path file, Duration interval) {
+        this.registry = registry;
+        this.file = file;
+        this.interval = interval;
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "eureka-registry-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.scheduleWithFixedDelay(this::writeQuietly,
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        writer.shutdownNow();
+        writeQuietly();
+    }
+
+    private void writeQuietly() {
+        try {
+            Applications applications = registry.get();
+            if (applications != null && applications.size() > 0) {
+                RegistrySnapshot.write(applications, file);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("failed to write registry snapshot {}, keeping the previous one", file, e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.kapok.registrysnapshot;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RegistrySnapshotTest {
+
+    private static final Duration MAX_AGE = Duration.ofMinutes(10);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void itShouldReadBackWhatItWrote() throws IOException {
+        // given
+        Path file = directory.resolve("registry.json.gz");
+        Applications applications = applications(instance("CUSTOMER", "customer-1", 8080),
+                instance("CUSTOMER", "customer-2", 8081), instance("FRAUD", "fraud-1", 8081));
+
+        // when
+        RegistrySnapshot.write(applications, file);
+        Optional<Applications> read = RegistrySnapshot.read(file, MAX_AGE);
+
+        // then
+        assertThat(read).isPresent();
+        assertThat(read.get().size()).isEqualTo(3);
+        InstanceInfo instance = read.get().getRegisteredApplications("CUSTOMER").getByInstanceId("customer-2");
+        assertThat(instance.getPort()).isEqualTo(8081);
+        assertThat(instance.getIPAddr()).isEqualTo("10.0.0.1");
+        assertThat(read.get().getRegisteredApplications("FRAUD").getInstances()).hasSize(1);
+        try (var files = Files.list(directory)) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+
+    @Test
+    void itShouldReplacePreviousSnapshot() throws IOException {
+        // given
+        Path file = directory.resolve("registry.json.gz");
+        RegistrySnapshot.write(applications(instance("CUSTOMER", "customer-1", 8080)), file);
+
+        // when
+        RegistrySnapshot.write(applications(instance("FRAUD", "fraud-1", 8081)), file);
+
+        // then
+        Applications read = RegistrySnapshot.read(file, MAX_AGE).orElseThrow();
+        assertThat(read.getRegisteredApplications("CUSTOMER")).isNull();
+        assertThat(read.getRegisteredApplications("FRAUD").getInstances()).hasSize(1);
+    }
+
+    @Test
+    void itShouldIgnoreSnapshotOlderThanMaxAge() throws IOException {
+        // given
+        Path file = directory.resolve("registry.json.gz");
+        RegistrySnapshot.write(applications(instance("CUSTOMER", "customer-1", 8080)), file);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(MAX_AGE).minusSeconds(1)));
+
+        // when
+        Optional<Applications> read = RegistrySnapshot.read(file, MAX_AGE);
+
+        // then
+        assertThat(read).isEmpty();
+    }
+
+    @Test
+    void itShouldIgnoreCorruptSnapshot() throws IOException {
+        // given
+        Path file = directory.resolve("registry.json.gz");
+        Files.write(file, new byte[]{0x1f, (byte) 0x8b, 1, 2, 3});
+
+        // when
+        Optional<Applications> read = RegistrySnapshot.read(file, MAX_AGE);
+
+        // then
+        assertThat(read).isEmpty();
+    }
+
+    @Test
+    void itShouldReturnEmptyWithoutSnapshot() {
+        // given
+        // when
+        // then
+        assertThat(RegistrySnapshot.read(directory.resolve("registry.json.gz"), MAX_AGE)).isEmpty();
+    }
+
+    static Applications applications(InstanceInfo... instances) {
+        Applications applications = new Applications();
+        for (InstanceInfo instance : instances) {
+            Application application = applications.getRegisteredApplications(instance.getAppName());
+            if (application == null) {
+                application = new Application(instance.getAppName());
+                applications.addApplication(application);
+            }
+            application.addInstance(instance);
+        }
+        return applications;
+    }
+
+    static InstanceInfo instance(String appName, String instanceId, int port) {
+        return InstanceInfo.Builder.newBuilder()
+                .setAppName(appName)
+                .setInstanceId(instanceId)
+                .setHostName(instanceId + ".local")
+                .setIPAddr("10.0.0.1")
+                .setPort(port)
+                .setStatus(InstanceInfo.InstanceStatus.UP)
+                .build();
+    }
+}